@@ -0,0 +1,215 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.system.ApplicationHome;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.Constants.Report;
+import org.wso2.productcodecoverageservice.codecoverage.executiondata.ExecutionDataCache;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.AnalysisFilter;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ClassCoverageCache;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.CoverageCalculator;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+import org.wso2.productcodecoverageservice.codecoverage.ziputils.Unzipper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+Merge, analysis and report generation of a generated product area, through the execution data cache, class manifests
+and class coverage cache used by the service. Components are analyzed straight from their zip files unless extracted
+is set, in which case the classes are extracted up front as in the non-archive mode. The merged execution data is kept
+packed and memory mapped if packed is set. Component analysis is measured through getProductCoverageData with a
+single component, and reuses the analysis of unchanged classes if the class coverage cache has a capacity. Merging is
+measured for a product area seen for the first time and for a product area with a new build of one component. Reports
+extract the classes and sources of archived components on their first invocation only, and are generated again on
+every invocation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CoverageCalculatorBenchmark {
+
+    private static final String PRODUCT_ID = "benchmark";
+    private static final String BUILD_NUMBER = "1";
+
+    @Param({"4"})
+    public int componentCount;
+
+    @Param({"250", "2500"})
+    public int classesPerComponent;
+
+    @Param({"20"})
+    public int methodsPerClass;
+
+    @Param({"false", "true"})
+    public boolean extracted;
+
+    @Param({"false", "true"})
+    public boolean packed;
+
+    @Param({"0", "100000"})
+    public int classCoverageCacheSize;
+
+    private Path workspace;
+    private String[] components;
+    private LinkedHashMap<String, String> dataFiles;
+    private HashMap<String, String> buildNumbers;
+    private ExecutionDataCache executionDataCache;
+    private ClassCoverageCache classCoverageCache;
+    private CoverageCalculator mergedCalculator;
+    private int mergeCount;
+
+    @Setup(Level.Trial)
+    public void createFixture() throws IOException {
+
+        Fixtures.createApplicationProperties();
+        this.workspace = Files.createTempDirectory("coverage-calculator-benchmark");
+        this.components = new String[this.componentCount];
+        this.dataFiles = new LinkedHashMap<>();
+        this.buildNumbers = new HashMap<>();
+        for (int i = 0; i < this.componentCount; i++) {
+            this.components[i] = "component-" + i;
+            File sourcesZip = Fixtures.createComponent(this.workspace, this.components[i], this.classesPerComponent,
+                    this.methodsPerClass, 0.5, i);
+            File componentFolder = sourcesZip.getParentFile();
+            if (this.extracted) {
+                Unzipper.unzipFile(sourcesZip.getPath(), componentFolder);
+            } else {
+                Unzipper.unzipEntries(sourcesZip.getPath(), componentFolder, Jenkins.EXTRACTED_JACOCO_FOLDER
+                        + Jenkins.ZIP_ENTRY_SEPARATOR + Jenkins.JACOCO_DATAFILE_NAME);
+            }
+            this.dataFiles.put(this.components[i], componentFolder.getPath() + File.separator
+                    + Jenkins.EXTRACTED_JACOCO_FOLDER + File.separator + Jenkins.JACOCO_DATAFILE_NAME);
+            this.buildNumbers.put(this.components[i], BUILD_NUMBER);
+        }
+        /* Manifests of an earlier trial describe other generated classes under the same build number */
+        deleteClassManifests();
+
+        this.executionDataCache = new ExecutionDataCache(this.workspace.resolve(Coverage.EXECUTION_DATA_DIRECTORY),
+                2, this.packed ? 1 : 0);
+        this.classCoverageCache = new ClassCoverageCache(this.classCoverageCacheSize);
+        this.mergedCalculator = createCalculator(PRODUCT_ID);
+        this.mergedCalculator.mergeDataFiles(this.executionDataCache, this.dataFiles, this.buildNumbers);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixture() throws IOException {
+
+        deleteClassManifests();
+        FileUtils.deleteDirectory(this.workspace.toFile());
+    }
+
+    @Benchmark
+    public CoverageCalculator mergeDataFiles() throws IOException {
+
+        CoverageCalculator calculator = createCalculator(PRODUCT_ID + "-merge-" + this.mergeCount++);
+        calculator.mergeDataFiles(this.executionDataCache, this.dataFiles, this.buildNumbers);
+        return calculator;
+    }
+
+    @Benchmark
+    public CoverageCalculator mergeChangedComponent() throws IOException {
+
+        HashMap<String, String> changedBuildNumbers = new HashMap<>(this.buildNumbers);
+        changedBuildNumbers.put(this.components[0], Integer.toString(2 + this.mergeCount++));
+        CoverageCalculator calculator = createCalculator(PRODUCT_ID + "-incremental");
+        calculator.mergeDataFiles(this.executionDataCache, this.dataFiles, changedBuildNumbers);
+        return calculator;
+    }
+
+    @Benchmark
+    public HashMap<String, ComponentCoverage> componentCoverageData() throws IOException {
+
+        return this.mergedCalculator.getProductCoverageData(new String[]{this.components[0]});
+    }
+
+    @Benchmark
+    public HashMap<String, ComponentCoverage> productCoverageData() throws IOException {
+
+        return this.mergedCalculator.getProductCoverageData(this.components);
+    }
+
+    @Benchmark
+    public CoverageCalculator generateCoverageReports(ReportStamps reportStamps) {
+
+        for (String component : this.components) {
+            this.mergedCalculator.generateCoverageReport(component);
+        }
+        return this.mergedCalculator;
+    }
+
+    private CoverageCalculator createCalculator(String productId) {
+
+        return new CoverageCalculator(this.workspace, productId, ForkJoinPool.commonPool(),
+                CoverageMetrics.unpublished(), new AnalysisFilter("", "*", ""), this.classCoverageCache);
+    }
+
+    private void deleteClassManifests() throws IOException {
+
+        File manifestFolder = new File(new ApplicationHome(Application.class).getDir(),
+                Jenkins.ARTIFACT_CACHE_DIRECTORY + File.separator + Coverage.CLASS_MANIFEST_DIRECTORY);
+        for (String component : this.components) {
+            FileUtils.deleteDirectory(new File(manifestFolder, component));
+        }
+    }
+
+    /*
+    Removes the stamps of the reports before each invocation, as reports of the same builds are otherwise skipped
+     */
+    @State(Scope.Thread)
+    public static class ReportStamps {
+
+        @Setup(Level.Invocation)
+        public void deleteReportStamps(CoverageCalculatorBenchmark benchmark) {
+
+            File reportsFolder = new File(new ApplicationHome(Application.class).getDir(),
+                    Coverage.COVERAGE_REPORTS_DIRECTORY + File.separator + PRODUCT_ID);
+            for (String component : benchmark.components) {
+                FileUtils.deleteQuietly(new File(reportsFolder, component + File.separator + Report.REPORT_STAMP_FILE));
+            }
+        }
+    }
+}
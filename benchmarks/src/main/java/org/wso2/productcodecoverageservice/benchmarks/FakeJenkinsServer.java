@@ -0,0 +1,287 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Embeddable stand-in for a Jenkins server with the jacoco and Class-Files-Collector plugins. It serves the last
+successful build number, the jacoco resources zip file and the class files zip file of registered jobs, for the last
+successful build and for numbered builds. Downloads honour the ETag validators and byte range resumption used by the
+service. Every response is delayed by a fixed latency and bodies can be throttled to a bandwidth, so that the service
+can be loaded without a live Jenkins
+ */
+public class FakeJenkinsServer implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(FakeJenkinsServer.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String RANGE_PREFIX = "bytes=";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final long bytesPerSecond;
+    private final ConcurrentHashMap<String, JenkinsJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+
+    /**
+     * Create a server listening on all interfaces. It does not accept requests before it is started
+     *
+     * @param port           Port to listen on, 0 for any free port
+     * @param latencyMillis  Delay before every response
+     * @param bytesPerSecond Bandwidth of every response body, 0 for unlimited
+     * @throws IOException If the port cannot be bound
+     */
+    public FakeJenkinsServer(int port, long latencyMillis, long bytesPerSecond) throws IOException {
+
+        this.latencyMillis = latencyMillis;
+        this.bytesPerSecond = bytesPerSecond;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.executor);
+        this.server.createContext(General.URL_SEPARATOR, this::handle);
+    }
+
+    /**
+     * Register a job with its first build, or publish the artifacts as a new build of an existing job
+     *
+     * @param jenkinsJob    Job path as used in product area components, e.g. folder/job/name
+     * @param resourcesZip  Content of the jacoco resources zip file
+     * @param classFilesZip Content of the class files zip file
+     * @return Number of the published build
+     */
+    public long publishBuild(String jenkinsJob, byte[] resourcesZip, byte[] classFilesZip) {
+
+        JenkinsJob job = this.jobs.computeIfAbsent(jenkinsJob, JenkinsJob::new);
+        return job.publish(resourcesZip, classFilesZip);
+    }
+
+    /**
+     * Publish the artifacts of the last successful build of every job as a new build, so that the service sees new
+     * build numbers and can no longer use its cached artifacts and results
+     */
+    public void publishNewBuilds() {
+
+        for (JenkinsJob job : this.jobs.values()) {
+            Build lastSuccessfulBuild = job.lastSuccessfulBuild;
+            job.publish(lastSuccessfulBuild.resourcesZip, lastSuccessfulBuild.classFilesZip);
+        }
+    }
+
+    public void start() {
+
+        this.server.start();
+        log.info("Fake Jenkins server listening on " + getURL());
+    }
+
+    /**
+     * Base URL of the server, to be configured as the Jenkins server URL of the service
+     *
+     * @return URL of the server on the loopback interface
+     */
+    public String getURL() {
+
+        return "http://localhost:" + this.server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+
+        return this.requestCount.get();
+    }
+
+    public long getNotModifiedCount() {
+
+        return this.notModifiedCount.get();
+    }
+
+    public long getBytesServed() {
+
+        return this.bytesServed.get();
+    }
+
+    @Override
+    public void close() {
+
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            this.requestCount.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(this.latencyMillis);
+
+            /*
+            Empty path segments, e.g. from a Jenkins URL ending with a separator, are ignored. The raw request URI is
+            used as a path starting with two separators would be parsed as a host
+             */
+            String path = exchange.getRequestURI().toString().split("\\?")[0]
+                    .replaceAll("/+", General.URL_SEPARATOR);
+            String artifact = null;
+            for (String servedArtifact : new String[]{Jenkins.BUILD_NUMBER, Jenkins.JACOCO_RESOURCES_ZIP,
+                    Jenkins.CLASSES_ZIP}) {
+                if (path.endsWith(General.URL_SEPARATOR + servedArtifact)) {
+                    artifact = servedArtifact;
+                }
+            }
+            if (artifact == null) {
+                sendEmpty(exchange, 404);
+                return;
+            }
+
+            /* The path is /<job path>/<build reference>/<artifact> */
+            String jobAndBuild = path.substring(1, path.length() - artifact.length() - 1);
+            int buildSeparator = jobAndBuild.lastIndexOf(General.URL_SEPARATOR);
+            JenkinsJob job = buildSeparator < 0 ? null : this.jobs.get(jobAndBuild.substring(0, buildSeparator));
+            Build build = job == null ? null : job.getBuild(jobAndBuild.substring(buildSeparator + 1));
+            if (build == null) {
+                sendEmpty(exchange, 404);
+            } else if (Jenkins.BUILD_NUMBER.equals(artifact)) {
+                send(exchange, 200, Long.toString(build.number).getBytes(StandardCharsets.UTF_8), 0);
+            } else {
+                sendArtifact(exchange, build,
+                        Jenkins.JACOCO_RESOURCES_ZIP.equals(artifact) ? build.resourcesZip : build.classFilesZip);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Send an artifact, answering conditional requests with 304 and resumed downloads with the requested range
+     */
+    private void sendArtifact(HttpExchange exchange, Build build, byte[] content)
+            throws IOException, InterruptedException {
+
+        String eTag = build.getETag(content);
+        exchange.getResponseHeaders().set("ETag", eTag);
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            this.notModifiedCount.incrementAndGet();
+            sendEmpty(exchange, 304);
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (range != null && range.startsWith(RANGE_PREFIX) && range.endsWith("-")
+                && (ifRange == null || eTag.equals(ifRange))) {
+            int offset = Integer.parseInt(range.substring(RANGE_PREFIX.length(), range.length() - 1));
+            if (offset >= content.length) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                sendEmpty(exchange, 416);
+            } else {
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+                send(exchange, 206, content, offset);
+            }
+        } else {
+            send(exchange, 200, content, 0);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] content, int offset)
+            throws IOException, InterruptedException {
+
+        exchange.sendResponseHeaders(status, content.length - offset);
+        try (OutputStream body = exchange.getResponseBody()) {
+            for (int position = offset; position < content.length; position += CHUNK_SIZE) {
+                int length = Math.min(CHUNK_SIZE, content.length - position);
+                body.write(content, position, length);
+                this.bytesServed.addAndGet(length);
+                if (this.bytesPerSecond > 0) {
+                    TimeUnit.MICROSECONDS.sleep(length * 1000000L / this.bytesPerSecond);
+                }
+            }
+        }
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static class JenkinsJob {
+
+        private final String jenkinsJob;
+        private final ConcurrentHashMap<String, Build> builds = new ConcurrentHashMap<>();
+        private volatile Build lastSuccessfulBuild;
+
+        JenkinsJob(String jenkinsJob) {
+
+            this.jenkinsJob = jenkinsJob;
+        }
+
+        synchronized long publish(byte[] resourcesZip, byte[] classFilesZip) {
+
+            long number = this.lastSuccessfulBuild == null ? 1 : this.lastSuccessfulBuild.number + 1;
+            Build build = new Build(this.jenkinsJob, number, resourcesZip, classFilesZip);
+            this.builds.put(Long.toString(number), build);
+            this.lastSuccessfulBuild = build;
+            return number;
+        }
+
+        Build getBuild(String buildReference) {
+
+            return Jenkins.LAST_SUCCESSFUL_BUILD.equals(buildReference)
+                    ? this.lastSuccessfulBuild : this.builds.get(buildReference);
+        }
+    }
+
+    private static class Build {
+
+        private final String jenkinsJob;
+        private final long number;
+        private final byte[] resourcesZip;
+        private final byte[] classFilesZip;
+
+        Build(String jenkinsJob, long number, byte[] resourcesZip, byte[] classFilesZip) {
+
+            this.jenkinsJob = jenkinsJob;
+            this.number = number;
+            this.resourcesZip = resourcesZip;
+            this.classFilesZip = classFilesZip;
+        }
+
+        /* Artifacts change with every build, so the build identifies the version of an artifact */
+        String getETag(byte[] content) {
+
+            return "\"" + Integer.toHexString(this.jenkinsJob.hashCode()) + "-" + this.number + "-"
+                    + (content == this.resourcesZip ? "resources" : "classes") + "\"";
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.benchmarks;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.data.CRC64;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.springframework.boot.system.ApplicationHome;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+Generates synthetic product area components in the layout downloaded from Jenkins: a jacoco sources zip file with
+compiled classes, their sources and a jacoco execution data file. Every generated method is straight-line code, so it
+has exactly one probe and one line
+ */
+public final class Fixtures {
+
+    private static final int CLASSES_PER_PACKAGE = 20;
+    private static final String PACKAGE_PREFIX = "org/wso2/benchmark/";
+
+    private Fixtures() {
+
+    }
+
+    /**
+     * Generate the jacoco sources zip file of a component in its workspace folder
+     *
+     * @param workspace       Product area workspace
+     * @param component       Name of the component, used as its Jenkins job name
+     * @param classCount      Number of classes of the component
+     * @param methodsPerClass Number of methods of each class
+     * @param coveredRatio    Share of the methods marked as executed
+     * @param seed            Seed of the executed methods, so that runs are repeatable
+     * @return The generated zip file
+     * @throws IOException If the zip file cannot be written
+     */
+    public static File createComponent(Path workspace, String component, int classCount, int methodsPerClass,
+                                       double coveredRatio, long seed) throws IOException {
+
+        File componentFolder = workspace.resolve(component).toFile();
+        Files.createDirectories(componentFolder.toPath());
+        File sourcesZip = new File(componentFolder, Jenkins.JACOCO_SOURCES_FILE_ZIP);
+        try (OutputStream output = Files.newOutputStream(sourcesZip.toPath())) {
+            writeComponent(output, component, classCount, methodsPerClass, coveredRatio, seed, false);
+        }
+        return sourcesZip;
+    }
+
+    /**
+     * Generate the jacoco resources zip file of a component as served by Jenkins
+     *
+     * @param component       Name of the component, used as its Jenkins job name
+     * @param classCount      Number of classes of the component
+     * @param methodsPerClass Number of methods of each class
+     * @param coveredRatio    Share of the methods marked as executed
+     * @param seed            Seed of the executed methods, so that runs are repeatable
+     * @return Content of the zip file
+     * @throws IOException If the zip file cannot be written
+     */
+    public static byte[] createComponentArchive(String component, int classCount, int methodsPerClass,
+                                                double coveredRatio, long seed) throws IOException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeComponent(output, component, classCount, methodsPerClass, coveredRatio, seed, false);
+        return output.toByteArray();
+    }
+
+    /**
+     * Generate the class files zip file of a component as collected by the Class-Files-Collector plugin. The classes
+     * are the same as the ones of the jacoco resources zip file generated with the same parameters
+     *
+     * @param component       Name of the component, used as its Jenkins job name
+     * @param classCount      Number of classes of the component
+     * @param methodsPerClass Number of methods of each class
+     * @return Content of the zip file
+     * @throws IOException If the zip file cannot be written
+     */
+    public static byte[] createClassFilesArchive(String component, int classCount, int methodsPerClass)
+            throws IOException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeComponent(output, component, classCount, methodsPerClass, 0, 0, true);
+        return output.toByteArray();
+    }
+
+    /**
+     * Make sure the service finds an application.properties file next to its classes, as it does when deployed
+     *
+     * @throws IOException If the properties file cannot be written
+     */
+    public static void createApplicationProperties() throws IOException {
+
+        File properties = new File(new ApplicationHome(Application.class).getDir(), General.PROPERTIES_PATH);
+        if (!properties.exists()) {
+            try (OutputStream output = Files.newOutputStream(properties.toPath())) {
+                output.write((General.SKIPPED_COMPONENTS + "=none\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static void writeComponent(OutputStream output, String component, int classCount, int methodsPerClass,
+                                       double coveredRatio, long seed, boolean classesOnly) throws IOException {
+
+        Random random = new Random(seed);
+        String resourcesPrefix = Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR;
+        ByteArrayOutputStream executionData = new ByteArrayOutputStream();
+        ExecutionDataWriter executionDataWriter = new ExecutionDataWriter(executionData);
+        executionDataWriter.visitSessionInfo(new SessionInfo(component, 0, 0));
+
+        try (ZipOutputStream zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < classCount; i++) {
+                String className = PACKAGE_PREFIX + component.replaceAll("[^A-Za-z0-9]", "_")
+                        + "/p" + (i / CLASSES_PER_PACKAGE) + "/Generated" + i;
+                String simpleName = className.substring(className.lastIndexOf('/') + 1);
+                byte[] classBytes = createClass(className, simpleName + ".java", methodsPerClass);
+
+                if (classesOnly) {
+                    putEntry(zip, className + ".class", classBytes);
+                    continue;
+                }
+                putEntry(zip, resourcesPrefix + Coverage.CLASSES + Jenkins.ZIP_ENTRY_SEPARATOR + className + ".class",
+                        classBytes);
+                putEntry(zip, resourcesPrefix + Coverage.SOURCES + Jenkins.ZIP_ENTRY_SEPARATOR + className + ".java",
+                        createSource(className, methodsPerClass).getBytes(StandardCharsets.UTF_8));
+
+                boolean[] probes = new boolean[methodsPerClass];
+                for (int j = 0; j < methodsPerClass; j++) {
+                    probes[j] = random.nextDouble() < coveredRatio;
+                }
+                executionDataWriter.visitClassExecution(new ExecutionData(CRC64.checksum(classBytes), className, probes));
+            }
+            if (!classesOnly) {
+                executionDataWriter.flush();
+                putEntry(zip, resourcesPrefix + Jenkins.JACOCO_DATAFILE_NAME, executionData.toByteArray());
+            }
+        }
+    }
+
+    private static byte[] createClass(String className, String sourceFile, int methodCount) {
+
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null,
+                "java/lang/Object", null);
+        classWriter.visitSource(sourceFile, null);
+        for (int i = 0; i < methodCount; i++) {
+            MethodVisitor method = classWriter.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m" + i,
+                    "(I)I", null, null);
+            method.visitCode();
+            Label start = new Label();
+            method.visitLabel(start);
+            /* Source line of the method, see createSource */
+            method.visitLineNumber(i + 3, start);
+            method.visitVarInsn(Opcodes.ILOAD, 0);
+            method.visitLdcInsn(i);
+            method.visitInsn(Opcodes.IADD);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private static String createSource(String className, int methodCount) {
+
+        int packageEnd = className.lastIndexOf('/');
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(className.substring(0, packageEnd).replace('/', '.')).append(";\n");
+        source.append("public class ").append(className.substring(packageEnd + 1)).append(" {\n");
+        for (int i = 0; i < methodCount; i++) {
+            source.append("    public static int m").append(i).append("(int value) { return value + ").append(i)
+                    .append("; }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+}
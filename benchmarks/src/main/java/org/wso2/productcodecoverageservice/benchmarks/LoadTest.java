@@ -0,0 +1,304 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.Metrics;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductArea;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+End to end load test of a running coverage service. A fake Jenkins server is started with generated product area
+components, and concurrent code coverage requests covering every generated product area are sent to the service. The
+service has to be configured with the fake Jenkins server as its Jenkins server URL, and with the actuator metrics
+endpoint exposed so that its heap and workspace disk usage can be sampled. The test is configured with system
+properties, e.g.
+
+    java -Dloadtest.service.url=http://localhost:8080 -Dloadtest.concurrency=8 \
+        -cp benchmarks/target/benchmarks.jar org.wso2.productcodecoverageservice.benchmarks.LoadTest
+
+It reports the throughput, latency percentiles and failures of the requests, the peak heap and workspace disk usage of
+the service, and the traffic served by the fake Jenkins server
+ */
+public class LoadTest {
+
+    private static final Logger log = Logger.getLogger(LoadTest.class);
+    private static final String PROPERTY_PREFIX = "loadtest.";
+    private static final String HEAP_USAGE_METRIC = "/actuator/metrics/jvm.memory.used?tag=area:heap";
+    private static final String HEALTH_ENDPOINT = "/actuator/health";
+    private static final String METRICS_ENDPOINT = "/actuator/metrics/";
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final String serviceURL;
+    private final String authorization;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong peakHeapBytes = new AtomicLong(-1);
+    private final AtomicLong peakWorkspaceBytes = new AtomicLong(-1);
+
+    private LoadTest(String serviceURL, String user, String password) {
+
+        this.serviceURL = serviceURL.endsWith("/") ? serviceURL.substring(0, serviceURL.length() - 1) : serviceURL;
+        this.authorization = user.isEmpty() ? null : "Basic " + Base64.getEncoder()
+                .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        String serviceURL = getProperty("service.url", "http://localhost:8080");
+        int jenkinsPort = Integer.parseInt(getProperty("jenkins.port", "8090"));
+        long latencyMillis = Long.parseLong(getProperty("jenkins.latency.millis", "50"));
+        long bytesPerSecond = Long.parseLong(getProperty("jenkins.bandwidth.bytes.per.second", "0"));
+        int productAreaCount = Integer.parseInt(getProperty("product.areas", "4"));
+        int componentsPerArea = Integer.parseInt(getProperty("components.per.area", "4"));
+        int classesPerComponent = Integer.parseInt(getProperty("classes.per.component", "500"));
+        int methodsPerClass = Integer.parseInt(getProperty("methods.per.class", "20"));
+        int concurrency = Integer.parseInt(getProperty("concurrency", "4"));
+        int requestCount = Integer.parseInt(getProperty("requests", "40"));
+        int newBuildInterval = Integer.parseInt(getProperty("new.build.interval.requests", "0"));
+        long sampleIntervalMillis = Long.parseLong(getProperty("sample.interval.millis", "500"));
+        long startupTimeoutSeconds = Long.parseLong(getProperty("startup.timeout.seconds", "120"));
+
+        LoadTest loadTest = new LoadTest(serviceURL, getProperty("service.user", ""),
+                getProperty("service.password", ""));
+        try (FakeJenkinsServer jenkins = new FakeJenkinsServer(jenkinsPort, latencyMillis, bytesPerSecond)) {
+            Products products = publishProductAreas(jenkins, productAreaCount, componentsPerArea,
+                    classesPerComponent, methodsPerClass);
+            jenkins.start();
+            loadTest.awaitService(startupTimeoutSeconds);
+            loadTest.run(jenkins, products, concurrency, requestCount, newBuildInterval, sampleIntervalMillis);
+        }
+    }
+
+    private static String getProperty(String name, String defaultValue) {
+
+        return System.getProperty(PROPERTY_PREFIX + name, defaultValue).trim();
+    }
+
+    /**
+     * Generate the components of the product areas and publish them as the first builds of their Jenkins jobs
+     */
+    private static Products publishProductAreas(FakeJenkinsServer jenkins, int productAreaCount, int componentsPerArea,
+                                                int classesPerComponent, int methodsPerClass) throws IOException {
+
+        ProductArea[] productAreas = new ProductArea[productAreaCount];
+        for (int i = 0; i < productAreaCount; i++) {
+            String[] components = new String[componentsPerArea];
+            for (int j = 0; j < componentsPerArea; j++) {
+                String component = "area" + i + "-component" + j;
+                components[j] = "loadtest/job/" + component;
+                jenkins.publishBuild(components[j],
+                        Fixtures.createComponentArchive(component, classesPerComponent, methodsPerClass, 0.5,
+                                i * componentsPerArea + j),
+                        Fixtures.createClassFilesArchive(component, classesPerComponent, methodsPerClass));
+            }
+            productAreas[i] = new ProductArea();
+            productAreas[i].setProductId("loadtest-area" + i);
+            productAreas[i].setComponents(components);
+        }
+        Products products = new Products();
+        products.setProductAreas(productAreas);
+        return products;
+    }
+
+    private void awaitService(long timeoutSeconds) throws IOException, InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (true) {
+            try {
+                HttpURLConnection connection = open(HEALTH_ENDPOINT, "GET");
+                int status = connection.getResponseCode();
+                connection.disconnect();
+                if (status == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("Coverage service is not available at " + this.serviceURL, e);
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Coverage service at " + this.serviceURL + " is not healthy");
+            }
+            TimeUnit.SECONDS.sleep(1);
+        }
+    }
+
+    private void run(FakeJenkinsServer jenkins, Products products, int concurrency, int requestCount,
+                     int newBuildInterval, long sampleIntervalMillis) throws Exception {
+
+        byte[] requestBody = this.objectMapper.writeValueAsBytes(products);
+        AtomicLong issuedRequests = new AtomicLong();
+        AtomicLong failedRequests = new AtomicLong();
+        long[] latencies = new long[requestCount];
+        Arrays.fill(latencies, -1);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::sampleServiceMetrics, 0, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> runningWorkers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                runningWorkers.add(workers.submit(() -> {
+                    long request;
+                    while ((request = issuedRequests.getAndIncrement()) < requestCount) {
+                        if (newBuildInterval > 0 && request > 0 && request % newBuildInterval == 0) {
+                            jenkins.publishNewBuilds();
+                        }
+                        long requestStart = System.nanoTime();
+                        if (sendCoverageRequest(requestBody)) {
+                            latencies[(int) request] = System.nanoTime() - requestStart;
+                        } else {
+                            failedRequests.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> runningWorker : runningWorkers) {
+                runningWorker.get();
+            }
+        } finally {
+            workers.shutdownNow();
+            sampler.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        sampleServiceMetrics();
+
+        long[] completedLatencies = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        double elapsedSeconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Requests: %d completed, %d failed in %.1f s with %d concurrent "
+                        + "clients, %d product areas per request%n", completedLatencies.length, failedRequests.get(),
+                elapsedSeconds, concurrency, products.getProductAreas().length));
+        report.append(String.format(Locale.ROOT, "Throughput: %.2f requests/s%n",
+                completedLatencies.length / elapsedSeconds));
+        report.append(String.format(Locale.ROOT, "Latency (ms): p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                percentileMillis(completedLatencies, 50), percentileMillis(completedLatencies, 90),
+                percentileMillis(completedLatencies, 99), percentileMillis(completedLatencies, 100)));
+        report.append(String.format(Locale.ROOT, "Service peaks: heap %s, workspace disk %s%n",
+                formatMegabytes(this.peakHeapBytes.get()), formatMegabytes(this.peakWorkspaceBytes.get())));
+        report.append(String.format(Locale.ROOT, "Fake Jenkins: %d requests, %d not modified, %s served%n",
+                jenkins.getRequestCount(), jenkins.getNotModifiedCount(), formatMegabytes(jenkins.getBytesServed())));
+        System.out.print(report);
+    }
+
+    private boolean sendCoverageRequest(byte[] requestBody) {
+
+        try {
+            HttpURLConnection connection = open(Coverage.POST_COVERAGE_REQUEST, "POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(requestBody);
+            }
+            int status = connection.getResponseCode();
+            try (InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (response != null) {
+                    IOUtils.copy(response, NullOutputStream.NULL_OUTPUT_STREAM);
+                }
+            }
+            if (status != 200) {
+                log.warn("Coverage request failed with status " + status);
+            }
+            return status == 200;
+        } catch (IOException e) {
+            log.warn("Coverage request failed", e);
+            return false;
+        }
+    }
+
+    /**
+     * Record the heap and workspace disk usage of the service if they exceed the peaks seen so far. Metrics which
+     * are not exposed by the service are left unknown
+     */
+    private void sampleServiceMetrics() {
+
+        updatePeak(this.peakHeapBytes, readMetric(HEAP_USAGE_METRIC));
+        updatePeak(this.peakWorkspaceBytes, readMetric(METRICS_ENDPOINT + Metrics.WORKSPACE_DISK_USAGE));
+    }
+
+    private long readMetric(String metricPath) {
+
+        try {
+            HttpURLConnection connection = open(metricPath, "GET");
+            if (connection.getResponseCode() != 200) {
+                connection.disconnect();
+                return -1;
+            }
+            try (InputStream response = connection.getInputStream()) {
+                JsonNode measurements = this.objectMapper.readTree(response).path("measurements");
+                return measurements.size() == 0 ? -1 : (long) measurements.get(0).path("value").asDouble();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void updatePeak(AtomicLong peak, long value) {
+
+        peak.accumulateAndGet(value, Math::max);
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.serviceURL + path).openConnection();
+        connection.setRequestMethod(method);
+        if (this.authorization != null) {
+            connection.setRequestProperty("Authorization", this.authorization);
+        }
+        return connection;
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, int percentile) {
+
+        if (sortedLatencies.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    private static String formatMegabytes(long bytes) {
+
+        return bytes < 0 ? "unknown" : String.format(Locale.ROOT, "%.1f MB", (double) bytes / MEGABYTE);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.productcodecoverageservice.codecoverage.ziputils.Unzipper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+Extraction of a generated jacoco sources zip file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UnzipperBenchmark {
+
+    @Param({"100", "1000"})
+    public int classCount;
+
+    @Param({"20"})
+    public int methodsPerClass;
+
+    private Path fixtureFolder;
+    private File sourcesZip;
+    private File extractFolder;
+
+    @Setup(Level.Trial)
+    public void createFixture() throws IOException {
+
+        this.fixtureFolder = Files.createTempDirectory("unzipper-benchmark");
+        this.sourcesZip = Fixtures.createComponent(this.fixtureFolder, "component", this.classCount,
+                this.methodsPerClass, 0.5, 1L);
+    }
+
+    @Setup(Level.Invocation)
+    public void createExtractFolder() throws IOException {
+
+        this.extractFolder = Files.createTempDirectory(this.fixtureFolder, "extract").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteExtractFolder() throws IOException {
+
+        FileUtils.deleteDirectory(this.extractFolder);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixture() throws IOException {
+
+        FileUtils.deleteDirectory(this.fixtureFolder.toFile());
+    }
+
+    @Benchmark
+    public File unzipFile() throws IOException {
+
+        Unzipper.unzipFile(this.sourcesZip.getPath(), this.extractFolder);
+        return this.extractFolder;
+    }
+}
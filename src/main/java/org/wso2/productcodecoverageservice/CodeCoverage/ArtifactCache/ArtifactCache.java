@@ -0,0 +1,499 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.artifactcache;
+
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Persistent local cache of Jenkins artifacts. Artifacts are stored once per content digest and looked up by Jenkins job
+and build number. The least recently used artifacts are evicted when the cache grows beyond its byte budget.
+The cache lock only guards the in-memory index and usage order. Downloads, copies and deletions of artifacts run under
+the lock of their job#build key, and artifacts in use are pinned so that they are not evicted meanwhile
+ */
+@Component
+public class ArtifactCache {
+
+    private static final Logger log = Logger.getLogger(ArtifactCache.class);
+    private static final String BLOBS_FOLDER = "blobs";
+    private static final String DOWNLOADS_FOLDER = "downloads";
+    private static final String REVALIDATED_FOLDER = "revalidated";
+    private static final String INDEX_FILE = "index.properties";
+    private static final String BLOB_EXTENSION = ".zip";
+    private static final String KEY_SEPARATOR = "#";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final long budgetBytes;
+    private final Path blobsFolder;
+    private final Path downloadsFolder;
+    private final Path revalidatedFolder;
+    private final Path indexFile;
+    /*
+    Maps job#build keys to the digest of the artifact content
+     */
+    private final Properties index = new Properties();
+    /*
+    Sizes of the cached artifacts by digest, from the least to the most recently used
+     */
+    private final LinkedHashMap<String, Long> blobSizes = new LinkedHashMap<>(16, 0.75f, true);
+    /*
+    Number of threads using each artifact. Pinned artifacts are not evicted
+     */
+    private final HashMap<String, Integer> pinnedBlobs = new HashMap<>();
+    /*
+    Artifacts evicted from the index whose files are still being deleted
+     */
+    private final HashSet<String> evictingBlobs = new HashSet<>();
+    private final ConcurrentHashMap<String, KeyLock> keyLocks = new ConcurrentHashMap<>();
+    /*
+    Orders the writes of the index file, so that a later snapshot of the index is never overwritten by an earlier one
+     */
+    private final Object indexFileLock = new Object();
+    private long totalBytes;
+
+    public ArtifactCache() throws IOException {
+
+        this(loadApplicationProperties());
+    }
+
+    private ArtifactCache(Properties application) throws IOException {
+
+        this(Paths.get(new ApplicationHome(Application.class).getDir() + File.separator
+                        + Jenkins.ARTIFACT_CACHE_DIRECTORY),
+                Long.parseLong(application.getProperty(Jenkins.ARTIFACT_CACHE_BUDGET,
+                        Long.toString(Jenkins.DEFAULT_ARTIFACT_CACHE_BUDGET)).trim()));
+    }
+
+    /**
+     * Create a cache kept in the given folder
+     *
+     * @param cacheFolder Folder holding the cached artifacts and their index
+     * @param budgetBytes Maximum total size of the cached artifacts, 0 to disable the cache
+     * @throws IOException If the cache folder cannot be created or the index cannot be read
+     */
+    public ArtifactCache(Path cacheFolder, long budgetBytes) throws IOException {
+
+        this.budgetBytes = budgetBytes;
+        this.blobsFolder = Files.createDirectories(cacheFolder.resolve(BLOBS_FOLDER));
+        this.downloadsFolder = Files.createDirectories(cacheFolder.resolve(DOWNLOADS_FOLDER));
+        this.revalidatedFolder = Files.createDirectories(cacheFolder.resolve(REVALIDATED_FOLDER));
+        this.indexFile = cacheFolder.resolve(INDEX_FILE);
+
+        if (Files.exists(this.indexFile)) {
+            try (InputStream indexStream = Files.newInputStream(this.indexFile)) {
+                this.index.load(indexStream);
+            }
+        }
+        /* Artifacts are touched when used, so their modification times restore the usage order */
+        ArrayList<Path> blobs = listBlobs();
+        blobs.sort(Comparator.comparingLong(blob -> blob.toFile().lastModified()));
+        for (Path blob : blobs) {
+            long blobSize = Files.size(blob);
+            this.blobSizes.put(getDigest(blob), blobSize);
+            this.totalBytes += blobSize;
+        }
+        this.index.values().retainAll(this.blobSizes.keySet());
+    }
+
+    private static Properties loadApplicationProperties() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        return application;
+    }
+
+    /**
+     * Check whether artifacts are cached at all
+     *
+     * @return False if the cache budget is disabled
+     */
+    public boolean isEnabled() {
+
+        return this.budgetBytes > 0;
+    }
+
+    /**
+     * Place the artifact of a Jenkins build at the target location. The artifact is fetched only if it is not cached
+     * already. Concurrent requests for the same build wait for a single fetch, requests for other builds are not
+     * held up by it
+     *
+     * @param jenkinsJob  Jenkins job of the artifact
+     * @param buildNumber Concrete build number of the artifact
+     * @param target      Location the artifact is linked or copied to
+     * @param fetcher     Downloads the artifact on a cache miss
+     * @throws IOException If the artifact cannot be fetched or placed at the target location
+     */
+    public void copyArtifact(String jenkinsJob, String buildNumber, File target, ArtifactFetcher fetcher)
+            throws IOException {
+
+        String key = jenkinsJob + KEY_SEPARATOR + buildNumber;
+        KeyLock keyLock = acquireKeyLock(key);
+        try {
+            synchronized (keyLock) {
+                String cachedDigest = pinCachedArtifact(key);
+                if (cachedDigest != null) {
+                    try {
+                        log.info("Using cached artifact of " + jenkinsJob + " build " + buildNumber);
+                        useArtifact(getBlob(cachedDigest), target);
+                    } finally {
+                        unpin(cachedDigest);
+                    }
+                    return;
+                }
+                fetchArtifact(key, target, fetcher);
+            }
+        } finally {
+            releaseKeyLock(key);
+        }
+    }
+
+    /**
+     * Fetch an artifact which is not cached, add it to the cache and place it at the target location
+     */
+    private void fetchArtifact(String key, File target, ArtifactFetcher fetcher) throws IOException {
+
+        /* A stable download location lets an interrupted download be resumed by the next attempt */
+        Path download = this.downloadsFolder.resolve(calculateDigest(key) + BLOB_EXTENSION);
+        try {
+            fetcher.fetch(download.toFile());
+            String digest = calculateDigest(download);
+
+            Path blob = getBlob(digest);
+            if (reserveBlob(digest, Files.size(download))) {
+                try {
+                    Files.move(download, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    unreserveBlob(digest);
+                    throw e;
+                }
+            }
+
+            List<String> evictedDigests;
+            try {
+                useArtifact(blob, target);
+            } finally {
+                evictedDigests = addToIndex(key, digest);
+            }
+            deleteBlobs(evictedDigests);
+            saveIndex();
+        } finally {
+            Files.deleteIfExists(download);
+            Files.deleteIfExists(Paths.get(download + Jenkins.DOWNLOAD_VALIDATORS_SUFFIX));
+        }
+    }
+
+    /**
+     * Place the latest artifact of a Jenkins job at the target location, when the build number of the artifact is not
+     * known. A single copy per job is kept outside the cache budget and the fetcher is expected to revalidate it, for
+     * example with a conditional request
+     *
+     * @param jenkinsJob Jenkins job of the artifact
+     * @param target     Location the artifact is linked or copied to
+     * @param fetcher    Refreshes the kept copy of the artifact
+     * @throws IOException If the artifact cannot be fetched or placed at the target location
+     */
+    public void copyRevalidatedArtifact(String jenkinsJob, File target, ArtifactFetcher fetcher) throws IOException {
+
+        Path artifact = this.revalidatedFolder.resolve(calculateDigest(jenkinsJob) + BLOB_EXTENSION);
+        KeyLock jobLock = acquireKeyLock(jenkinsJob);
+        try {
+            synchronized (jobLock) {
+                fetcher.fetch(artifact.toFile());
+                useArtifact(artifact, target);
+            }
+        } finally {
+            releaseKeyLock(jenkinsJob);
+        }
+    }
+
+    /**
+     * Get the lock of a cache key, creating it for the first user
+     */
+    private KeyLock acquireKeyLock(String key) {
+
+        return this.keyLocks.compute(key, (lockedKey, keyLock) -> {
+            KeyLock acquiredLock = keyLock != null ? keyLock : new KeyLock();
+            acquiredLock.users++;
+            return acquiredLock;
+        });
+    }
+
+    /**
+     * Give the lock of a cache key back, removing it once no thread uses it anymore
+     */
+    private void releaseKeyLock(String key) {
+
+        this.keyLocks.computeIfPresent(key, (lockedKey, keyLock) -> --keyLock.users > 0 ? keyLock : null);
+    }
+
+    /**
+     * Find the cached artifact of a job#build key and pin it for use
+     *
+     * @return Digest of the cached artifact or null on a cache miss
+     */
+    private synchronized String pinCachedArtifact(String key) {
+
+        String digest = this.index.getProperty(key);
+        if (digest == null) {
+            return null;
+        }
+        if (this.blobSizes.get(digest) == null) {
+            this.index.remove(key);
+            return null;
+        }
+        pin(digest);
+        return digest;
+    }
+
+    /**
+     * Account for a downloaded artifact and pin it for use. Artifacts whose files are still being deleted by an
+     * eviction are waited for, so that the new file is not deleted along
+     *
+     * @return True if the file of the artifact has to be moved in place, false if the same content is cached already
+     */
+    private synchronized boolean reserveBlob(String digest, long size) throws InterruptedIOException {
+
+        while (this.evictingBlobs.contains(digest)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for an eviction of the artifact cache");
+            }
+        }
+        pin(digest);
+        if (this.blobSizes.get(digest) != null) {
+            return false;
+        }
+        this.blobSizes.put(digest, size);
+        this.totalBytes += size;
+        return true;
+    }
+
+    private synchronized void unreserveBlob(String digest) {
+
+        unpin(digest);
+        Long size = this.blobSizes.remove(digest);
+        if (size != null) {
+            this.totalBytes -= size;
+        }
+    }
+
+    /**
+     * Map a job#build key to an artifact, select the least recently used other artifacts to be evicted until the
+     * cache fits in its budget and unpin the artifact. The evicted artifacts are removed from the index right away
+     *
+     * @return Digests of the evicted artifacts, whose files have to be deleted
+     */
+    private synchronized List<String> addToIndex(String key, String digest) {
+
+        this.index.setProperty(key, digest);
+
+        ArrayList<String> evictedDigests = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> blobIterator = this.blobSizes.entrySet().iterator();
+        while (this.totalBytes > this.budgetBytes && blobIterator.hasNext()) {
+            Map.Entry<String, Long> blob = blobIterator.next();
+            if (this.pinnedBlobs.containsKey(blob.getKey())) {
+                continue;
+            }
+            blobIterator.remove();
+            this.totalBytes -= blob.getValue();
+            this.evictingBlobs.add(blob.getKey());
+            this.index.values().removeIf(blob.getKey()::equals);
+            evictedDigests.add(blob.getKey());
+        }
+        unpin(digest);
+        return evictedDigests;
+    }
+
+    private void deleteBlobs(List<String> evictedDigests) throws IOException {
+
+        if (evictedDigests.isEmpty()) {
+            return;
+        }
+        try {
+            for (String digest : evictedDigests) {
+                Files.deleteIfExists(getBlob(digest));
+                log.info("Evicted cached artifact " + digest);
+            }
+        } finally {
+            synchronized (this) {
+                this.evictingBlobs.removeAll(evictedDigests);
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void unpin(String digest) {
+
+        this.pinnedBlobs.computeIfPresent(digest, (pinnedDigest, users) -> users > 1 ? users - 1 : null);
+    }
+
+    /**
+     * Pin an artifact for use. The caller holds the cache lock
+     */
+    private void pin(String digest) {
+
+        this.pinnedBlobs.merge(digest, 1, Integer::sum);
+    }
+
+    /**
+     * Mark the artifact as recently used and link it to the target location. A hard link keeps the target intact
+     * even if the artifact gets evicted later. If linking is not possible the artifact is copied
+     */
+    private void useArtifact(Path blob, File target) throws IOException {
+
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+
+        Path targetPath = target.toPath();
+        Files.createDirectories(targetPath.getParent());
+        Files.deleteIfExists(targetPath);
+        try {
+            Files.createLink(targetPath, blob);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(blob, targetPath);
+        }
+    }
+
+    private Path getBlob(String digest) {
+
+        return this.blobsFolder.resolve(digest + BLOB_EXTENSION);
+    }
+
+    private static String getDigest(Path blob) {
+
+        return blob.getFileName().toString().replace(BLOB_EXTENSION, "");
+    }
+
+    private ArrayList<Path> listBlobs() throws IOException {
+
+        ArrayList<Path> blobs = new ArrayList<>();
+        try (DirectoryStream<Path> blobStream = Files.newDirectoryStream(this.blobsFolder, "*" + BLOB_EXTENSION)) {
+            for (Path blob : blobStream) {
+                blobs.add(blob);
+            }
+        }
+        return blobs;
+    }
+
+    private void saveIndex() throws IOException {
+
+        synchronized (this.indexFileLock) {
+            Properties indexSnapshot;
+            synchronized (this) {
+                indexSnapshot = (Properties) this.index.clone();
+            }
+            Path temporaryIndex = this.indexFile.resolveSibling(INDEX_FILE + ".tmp");
+            try (OutputStream indexStream = new FileOutputStream(temporaryIndex.toFile())) {
+                indexSnapshot.store(indexStream, "Jenkins job#build to artifact digest");
+            }
+            Files.move(temporaryIndex, this.indexFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static String calculateDigest(Path file) throws IOException {
+
+        MessageDigest messageDigest = getMessageDigest();
+        try (InputStream fileStream = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = fileStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, bytesRead);
+            }
+        }
+        return toHex(messageDigest.digest());
+    }
+
+    private static String calculateDigest(String text) throws IOException {
+
+        return toHex(getMessageDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest getMessageDigest() throws IOException {
+
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Digest algorithm " + DIGEST_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] digestBytes) {
+
+        StringBuilder digest = new StringBuilder();
+        for (byte digestByte : digestBytes) {
+            digest.append(String.format("%02x", digestByte));
+        }
+        return digest.toString();
+    }
+
+    /*
+    Lock of a job#build key, counting its users so that it is removed once released. The count is only changed within
+    the atomic updates of the lock map
+     */
+    private static class KeyLock {
+
+        private int users;
+    }
+
+    /*
+    Downloads an artifact into the given file on a cache miss
+     */
+    @FunctionalInterface
+    public interface ArtifactFetcher {
+
+        void fetch(File artifactFile) throws IOException;
+    }
+}
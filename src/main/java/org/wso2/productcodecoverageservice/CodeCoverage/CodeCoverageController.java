@@ -18,125 +18,111 @@
 
 package org.wso2.productcodecoverageservice.codecoverage;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.wso2.productcodecoverageservice.Constants.Coverage;
-import org.wso2.productcodecoverageservice.Constants.Info;
-import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
-import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.CoverageCalculator;
-import org.wso2.productcodecoverageservice.codecoverage.jenkinshandler.JenkinsServer;
-import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductArea;
-import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaCodeCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaBuildDelta;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaDelta;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaPatch;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaPatchCoverage;
 import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
 import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductsCodeCoverage;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 
 @RestController
 public class CodeCoverageController {
 
     private static final Logger log = Logger.getLogger(CodeCoverageController.class);
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+    private final CodeCoverageService codeCoverageService;
+    private final ObjectMapper objectMapper;
 
-    private static final String serviceInfo = Info.MESSAGE;
+    public CodeCoverageController(CodeCoverageService codeCoverageService, ObjectMapper objectMapper) {
+
+        this.codeCoverageService = codeCoverageService;
+        this.objectMapper = objectMapper;
+    }
 
     @RequestMapping(value = {Coverage.POST_COVERAGE_REQUEST}, method = {RequestMethod.POST})
     public ProductsCodeCoverage getProductAreaInfo(@RequestBody Products products) {
 
-        if (products != null) {
-
-            ProductsCodeCoverage productsCodeCoverage = new ProductsCodeCoverage("Success");
+        return this.codeCoverageService.calculateCoverage(products, CodeCoverageService.NO_PROGRESS_LISTENER);
+    }
 
-            ArrayList<ProductAreaCodeCoverage> productAreaCodeCoverages = new ArrayList<>();
-            for (ProductArea eachProductArea : products.getProductAreas()) {
-                String productAreaID = null;
-                try {
-                    productAreaID = eachProductArea.getProductId();
-                    log.info("Calculating coverage data for :- ProductID = " + productAreaID);
-                    ProductAreaCodeCoverage productAreaCodeCoverage = getProductAreaCodeCoverage(eachProductArea);
-                    productAreaCodeCoverages.add(productAreaCodeCoverage);
-                } catch (Exception e) {
-                    ProductAreaCodeCoverage badProductAreaCoverage;
-                    if (eachProductArea == null) {
-                        log.error("Invalid request data. Could not find productArea information");
-                        badProductAreaCoverage = new ProductAreaCodeCoverage(
-                                null,
-                                null,
-                                null,
-                                null);
-                    } else {
-                        log.error("Error occured while calculating coverage for product area " + productAreaID);
-                        badProductAreaCoverage = new ProductAreaCodeCoverage(
-                                productAreaID,
-                                null,
-                                null,
-                                null);
-                    }
-                    productAreaCodeCoverages.add(badProductAreaCoverage);
-                }
-            }
+    /*
+    Streams the result of each product area as a line of newline delimited JSON, as soon as the product area is done.
+    Results are written in completion order and carry their product ID
+     */
+    @RequestMapping(value = {Coverage.POST_COVERAGE_STREAM_REQUEST}, method = {RequestMethod.POST},
+            produces = {Coverage.NDJSON_MEDIA_TYPE})
+    public ResponseEntity<StreamingResponseBody> streamProductAreaInfo(@RequestBody Products products) {
 
-            if (productAreaCodeCoverages.size() != 0) {
-                ProductAreaCodeCoverage[] productAreaCodeCoveragesList = productAreaCodeCoverages.toArray(new ProductAreaCodeCoverage[productAreaCodeCoverages.size()]);
-                productsCodeCoverage.setProductAreas(productAreaCodeCoveragesList);
-            } else {
-                productsCodeCoverage.setProductAreas(null);
-            }
-            log.info("Code coverage calculation is successfully completed");
-            return productsCodeCoverage;
-        } else {
+        if (products == null || products.getProductAreas() == null) {
             log.error("Code coverage calculation is unsuccessful");
-            return new ProductsCodeCoverage("Invalid request data");
+            return ResponseEntity.badRequest().build();
         }
+        StreamingResponseBody responseBody = output -> this.codeCoverageService.streamCoverage(products,
+                productAreaCodeCoverage -> {
+                    output.write(this.objectMapper.writeValueAsBytes(productAreaCodeCoverage));
+                    output.write(LINE_SEPARATOR);
+                    output.flush();
+                });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Coverage.NDJSON_MEDIA_TYPE)).body(responseBody);
     }
 
-    private ProductAreaCodeCoverage getProductAreaCodeCoverage(ProductArea productArea) throws IOException {
-
-        HashMap<String, ComponentCoverage> productCodeCoverage;
-        long overallLinesToCover = 0;
-        long overallCoveredLines = 0;
-        Double overallCoveredRatio;
-
-        JenkinsServer jenkins = new JenkinsServer();
+    /*
+    Compares two builds of the components of a product area. Responds with the product area, component and class
+    counters which changed
+     */
+    @RequestMapping(value = {Coverage.POST_COVERAGE_DELTA_REQUEST}, method = {RequestMethod.POST})
+    public ResponseEntity<ProductAreaBuildDelta> getProductAreaDelta(@RequestBody ProductAreaDelta productAreaDelta) {
+
+        if (productAreaDelta == null || productAreaDelta.getProductId() == null
+                || productAreaDelta.getComponents() == null) {
+            log.error("Invalid request data. Could not find productArea information");
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            jenkins.setProductAreaJenkinsJobs(productArea.getComponents());
-            ArrayList<String> jacocoDataFiles = jenkins.downloadCoverageFiles();
-
-            CoverageCalculator coverageCalculator = new CoverageCalculator(jenkins.getTemporaryProductAreaWorkspace(), productArea.getProductId());
-            log.info("Merging retrieved jacoco data files");
-            coverageCalculator.mergeDataFiles(jacocoDataFiles);
-            productCodeCoverage = coverageCalculator.getProductCoverageData(productArea.getComponents());
-            log.info("Generating coverage reports");
-            coverageCalculator.generateCoverageReports(productArea.getComponents());
-
-            /* Calculate overall code coverage value for the product area*/
-            for (String productAreaComponent : productCodeCoverage.keySet()) {
-                /*
-                Skip the component if it's not relevant to the code coverage calculation
-                 */
-                ComponentCoverage componentCoverage = productCodeCoverage.get(productAreaComponent);
-
-                long componentLinesToCover = Long.parseLong(componentCoverage.getComponentLinesToCover());
-                Double componentCoveredRatio = Double.parseDouble(componentCoverage.getComponentLineCoveredRatio());
-                double componentCoveredLines = componentLinesToCover * componentCoveredRatio;
+            return ResponseEntity.ok(this.codeCoverageService.calculateBuildDelta(productAreaDelta));
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Error occured while comparing builds of product area " + productAreaDelta.getProductId(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-                overallCoveredLines += (long) componentCoveredLines;
-                overallLinesToCover += componentLinesToCover;
-            }
-            if (overallLinesToCover > 0) {
-                overallCoveredRatio = (double) overallCoveredLines / (double) overallLinesToCover;
-                log.info("Overall line coverage in ProductID=" + productArea.getProductId() + " is " + Double.toString(Math.round(overallCoveredRatio * 100)) + "%");
-            } else {
-                overallCoveredRatio = null;
-            }
-        } finally {
-            jenkins.clearTemporaryData();
+    /*
+    Line coverage of the lines changed by a patch, given as a unified diff or as file and line ranges
+     */
+    @RequestMapping(value = {Coverage.POST_PATCH_COVERAGE_REQUEST}, method = {RequestMethod.POST})
+    public ResponseEntity<ProductAreaPatchCoverage> getPatchCoverage(@RequestBody ProductAreaPatch productAreaPatch) {
+
+        if (productAreaPatch == null || productAreaPatch.getProductId() == null
+                || productAreaPatch.getComponents() == null
+                || (productAreaPatch.getDiff() == null && productAreaPatch.getChangedLines() == null)) {
+            log.error("Invalid request data. Could not find productArea or patch information");
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(this.codeCoverageService.calculatePatchCoverage(productAreaPatch));
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Error occured while calculating patch coverage of product area "
+                    + productAreaPatch.getProductId(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
-        return new ProductAreaCodeCoverage(productArea.getProductId(), productCodeCoverage,
-                Long.toString(overallLinesToCover), overallCoveredRatio != null ? Double.toString(overallCoveredRatio) : null);
     }
 }
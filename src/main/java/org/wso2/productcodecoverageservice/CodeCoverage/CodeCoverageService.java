@@ -0,0 +1,664 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage;
+
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Service;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.codecoverage.HTTPutils.JenkinsHttpClient;
+import org.wso2.productcodecoverageservice.codecoverage.artifactcache.ArtifactCache;
+import org.wso2.productcodecoverageservice.codecoverage.coverageindex.CoverageIndexStore;
+import org.wso2.productcodecoverageservice.codecoverage.executiondata.ExecutionDataCache;
+import org.wso2.productcodecoverageservice.codecoverage.history.CoverageHistoryStore;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.AnalysisFilter;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ClassCoverageCache;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.CoverageCalculator;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.CoverageComparator;
+import org.wso2.productcodecoverageservice.codecoverage.jenkinshandler.JenkinsServer;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.PatchFileCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductArea;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaBuildDelta;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaCodeCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaDelta;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaPatch;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaPatchCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductsCodeCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+import org.wso2.productcodecoverageservice.codecoverage.patch.ChangedLines;
+import org.wso2.productcodecoverageservice.codecoverage.reports.ReportScheduler;
+import org.wso2.productcodecoverageservice.codecoverage.resultcache.CoverageResultCache;
+import org.wso2.productcodecoverageservice.codecoverage.workspace.Workspace;
+import org.wso2.productcodecoverageservice.codecoverage.workspace.WorkspaceManager;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+Calculates code coverage of product areas. Product areas are evaluated concurrently, each in a workspace of its own
+ */
+@Service
+public class CodeCoverageService {
+
+    private static final Logger log = Logger.getLogger(CodeCoverageService.class);
+
+    /*
+    Listener which does not react to progress of product areas
+     */
+    public static final ProductAreaListener NO_PROGRESS_LISTENER = new ProductAreaListener() {
+
+        @Override
+        public void started(int index) {
+
+        }
+
+        @Override
+        public void finished(int index, ProductAreaCodeCoverage productAreaCodeCoverage) {
+
+        }
+    };
+
+    /*
+    Dedicated executor for product area evaluation, so that long running areas do not occupy servlet threads
+     */
+    private final ExecutorService productAreaExecutor;
+    /*
+    Pool for the CPU bound class analysis of components, shared by all product areas so that concurrent areas do not
+    oversubscribe the processors
+     */
+    private final ForkJoinPool componentAnalysisPool;
+    private final WorkspaceManager workspaceManager;
+    private final ArtifactCache artifactCache;
+    private final JenkinsHttpClient httpClient;
+    private final ExecutionDataCache executionDataCache;
+    private final ReportScheduler reportScheduler;
+    private final CoverageIndexStore coverageIndexStore;
+    private final CoverageHistoryStore coverageHistoryStore;
+    private final CoverageResultCache coverageResultCache;
+    private final CoverageMetrics metrics;
+    /*
+    Skip rules and analyzed classes shared by the analyses of all product areas
+     */
+    private final AnalysisFilter analysisFilter;
+    private final ClassCoverageCache classCoverageCache;
+    /*
+    Folder holding the artifacts of each job for patch requests asking for local artifacts, or null if not configured
+     */
+    private final File localArtifactsDirectory;
+
+    public CodeCoverageService(WorkspaceManager workspaceManager, ArtifactCache artifactCache,
+                               JenkinsHttpClient httpClient, ExecutionDataCache executionDataCache,
+                               ReportScheduler reportScheduler, CoverageIndexStore coverageIndexStore,
+                               CoverageHistoryStore coverageHistoryStore, CoverageResultCache coverageResultCache,
+                               CoverageMetrics metrics) throws IOException {
+
+        this.workspaceManager = workspaceManager;
+        this.artifactCache = artifactCache;
+        this.httpClient = httpClient;
+        this.executionDataCache = executionDataCache;
+        this.reportScheduler = reportScheduler;
+        this.coverageIndexStore = coverageIndexStore;
+        this.coverageHistoryStore = coverageHistoryStore;
+        this.coverageResultCache = coverageResultCache;
+        this.metrics = metrics;
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        int productAreaParallelism = Integer.parseInt(application.getProperty(Coverage.PRODUCT_AREA_PARALLELISM,
+                Integer.toString(Coverage.DEFAULT_PRODUCT_AREA_PARALLELISM)).trim());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.productAreaExecutor = Executors.newFixedThreadPool(productAreaParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "product-area-coverage-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int analysisParallelism = Integer.parseInt(application.getProperty(Coverage.ANALYSIS_PARALLELISM,
+                Integer.toString(Coverage.DEFAULT_ANALYSIS_PARALLELISM)).trim());
+        if (analysisParallelism <= 0) {
+            analysisParallelism = Runtime.getRuntime().availableProcessors();
+        }
+        this.componentAnalysisPool = new ForkJoinPool(analysisParallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("component-analysis-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+
+        this.analysisFilter = AnalysisFilter.fromProperties(application);
+        this.classCoverageCache = new ClassCoverageCache(Integer.parseInt(application.getProperty(
+                Coverage.CLASS_COVERAGE_CACHE_SIZE, Integer.toString(Coverage.DEFAULT_CLASS_COVERAGE_CACHE_SIZE)).trim()));
+        String localArtifactsDirectory = application.getProperty(Jenkins.LOCAL_ARTIFACTS_DIRECTORY, "").trim();
+        this.localArtifactsDirectory = localArtifactsDirectory.isEmpty() ? null : new File(localArtifactsDirectory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        this.productAreaExecutor.shutdownNow();
+        this.componentAnalysisPool.shutdownNow();
+    }
+
+    /**
+     * Calculate coverage of all product areas of a request. Product areas are evaluated concurrently and the results
+     * are collected in the request order
+     *
+     * @param products Product areas of the request
+     * @param listener Listener notified when each product area starts and finishes
+     * @return Coverage of the product areas
+     */
+    public ProductsCodeCoverage calculateCoverage(Products products, ProductAreaListener listener) {
+
+        try (CoverageMetrics.InFlight request = this.metrics.requestStarted()) {
+            return collectCoverage(products, listener);
+        }
+    }
+
+    private ProductsCodeCoverage collectCoverage(Products products, ProductAreaListener listener) {
+
+        if (products != null) {
+
+            ProductsCodeCoverage productsCodeCoverage = new ProductsCodeCoverage("Success");
+
+            /* Evaluate product areas concurrently and collect the results in the request order */
+            ArrayList<Future<ProductAreaCodeCoverage>> pendingProductAreas = new ArrayList<>();
+            ProductArea[] productAreas = products.getProductAreas();
+            for (int i = 0; i < productAreas.length; i++) {
+                pendingProductAreas.add(submitProductArea(productAreas[i], i, listener));
+            }
+
+            ArrayList<ProductAreaCodeCoverage> productAreaCodeCoverages = new ArrayList<>();
+            for (int i = 0; i < pendingProductAreas.size(); i++) {
+                ProductArea eachProductArea = productAreas[i];
+                try {
+                    productAreaCodeCoverages.add(pendingProductAreas.get(i).get());
+                } catch (InterruptedException e) {
+                    log.error("Interrupted while waiting for product area coverage calculation");
+                    Thread.currentThread().interrupt();
+                    pendingProductAreas.get(i).cancel(true);
+                    productAreaCodeCoverages.add(getBadProductAreaCoverage(eachProductArea));
+                } catch (ExecutionException e) {
+                    productAreaCodeCoverages.add(getBadProductAreaCoverage(eachProductArea));
+                }
+            }
+
+            if (productAreaCodeCoverages.size() != 0) {
+                ProductAreaCodeCoverage[] productAreaCodeCoveragesList = productAreaCodeCoverages.toArray(new ProductAreaCodeCoverage[productAreaCodeCoverages.size()]);
+                productsCodeCoverage.setProductAreas(productAreaCodeCoveragesList);
+            } else {
+                productsCodeCoverage.setProductAreas(null);
+            }
+            log.info("Code coverage calculation is successfully completed");
+            return productsCodeCoverage;
+        } else {
+            log.error("Code coverage calculation is unsuccessful");
+            return new ProductsCodeCoverage("Invalid request data");
+        }
+    }
+
+    /**
+     * Calculate coverage of all product areas of a request, handing each result to the writer as soon as its product
+     * area is done. Results are not kept once written, so memory stays flat however many product areas are requested
+     *
+     * @param products Product areas of the request
+     * @param writer   Writer of the product area results, called in completion order from the calling thread
+     * @throws IOException If the writer fails. Product areas not yet started are cancelled
+     */
+    public void streamCoverage(Products products, ProductAreaWriter writer) throws IOException {
+
+        try (CoverageMetrics.InFlight request = this.metrics.requestStarted()) {
+            writeCoverage(products, writer);
+        }
+    }
+
+    private void writeCoverage(Products products, ProductAreaWriter writer) throws IOException {
+
+        ProductArea[] productAreas = products.getProductAreas();
+        LinkedBlockingQueue<ProductAreaCodeCoverage> finishedProductAreas = new LinkedBlockingQueue<>();
+        AtomicReferenceArray<Future<ProductAreaCodeCoverage>> pendingProductAreas =
+                new AtomicReferenceArray<>(productAreas.length);
+        ProductAreaListener listener = new ProductAreaListener() {
+
+            @Override
+            public void started(int index) {
+
+            }
+
+            @Override
+            public void finished(int index, ProductAreaCodeCoverage productAreaCodeCoverage) {
+
+                /*
+                Queue the result before dropping the future, which references the result until it is discarded. The
+                writer only gives up once no future is pending, so the result must be queued by then
+                 */
+                finishedProductAreas.add(productAreaCodeCoverage);
+                pendingProductAreas.set(index, null);
+            }
+        };
+        for (int i = 0; i < productAreas.length; i++) {
+            pendingProductAreas.set(i, submitProductArea(productAreas[i], i, listener));
+        }
+
+        try {
+            for (int written = 0; written < productAreas.length; written++) {
+                ProductAreaCodeCoverage productAreaCodeCoverage = finishedProductAreas.poll(1, TimeUnit.SECONDS);
+                while (productAreaCodeCoverage == null) {
+                    if (!hasPendingProductAreas(pendingProductAreas)) {
+                        /* A product area may have finished after the last poll timed out */
+                        productAreaCodeCoverage = finishedProductAreas.poll();
+                        if (productAreaCodeCoverage == null) {
+                            log.error("Product areas were cancelled before they finished");
+                            return;
+                        }
+                        break;
+                    }
+                    productAreaCodeCoverage = finishedProductAreas.poll(1, TimeUnit.SECONDS);
+                }
+                writer.write(productAreaCodeCoverage);
+            }
+            log.info("Code coverage calculation is successfully completed");
+        } catch (InterruptedException e) {
+            log.error("Interrupted while waiting for product area coverage calculation");
+            Thread.currentThread().interrupt();
+            cancelProductAreas(pendingProductAreas);
+        } catch (IOException e) {
+            log.error("Could not write the product area results. Cancelling the remaining product areas");
+            cancelProductAreas(pendingProductAreas);
+            throw e;
+        }
+    }
+
+    private static boolean hasPendingProductAreas(AtomicReferenceArray<Future<ProductAreaCodeCoverage>> pendingProductAreas) {
+
+        for (int i = 0; i < pendingProductAreas.length(); i++) {
+            Future<ProductAreaCodeCoverage> pendingProductArea = pendingProductAreas.get(i);
+            if (pendingProductArea != null && !pendingProductArea.isDone()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void cancelProductAreas(AtomicReferenceArray<Future<ProductAreaCodeCoverage>> pendingProductAreas) {
+
+        for (int i = 0; i < pendingProductAreas.length(); i++) {
+            Future<ProductAreaCodeCoverage> pendingProductArea = pendingProductAreas.get(i);
+            if (pendingProductArea != null) {
+                pendingProductArea.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Queue a product area for evaluation on the product area executor
+     *
+     * @param productArea Product area to be evaluated
+     * @param index       Position of the product area in its request, passed to the listener
+     * @param listener    Listener notified when the product area starts and finishes
+     * @return Pending coverage of the product area
+     */
+    public Future<ProductAreaCodeCoverage> submitProductArea(ProductArea productArea, int index,
+                                                             ProductAreaListener listener) {
+
+        return this.productAreaExecutor.submit(() -> {
+            listener.started(index);
+            ProductAreaCodeCoverage productAreaCodeCoverage;
+            try (CoverageMetrics.InFlight inFlightProductArea = this.metrics.productAreaStarted()) {
+                productAreaCodeCoverage = evaluateProductArea(productArea, this.componentAnalysisPool, false);
+            }
+            listener.finished(index, productAreaCodeCoverage);
+            return productAreaCodeCoverage;
+        });
+    }
+
+    /**
+     * Calculate coverage of a product area on the calling thread, analyzing its classes on the given pool instead of
+     * the pool shared by the requests. Background work uses this to stay off the threads of the requests. Requests
+     * asking for the same product area meanwhile calculate it themselves rather than waiting for the background work
+     *
+     * @param productArea  Product area to be evaluated
+     * @param analysisPool Pool for the class analysis of the components
+     * @return Coverage of the product area
+     */
+    public ProductAreaCodeCoverage evaluateProductAreaInBackground(ProductArea productArea, ForkJoinPool analysisPool) {
+
+        try (CoverageMetrics.InFlight inFlightProductArea = this.metrics.productAreaStarted()) {
+            return evaluateProductArea(productArea, analysisPool, true);
+        }
+    }
+
+    /**
+     * Calculate coverage of a product area. Any failure results in a coverage entry without coverage data
+     *
+     * @param productArea  Product area to be evaluated
+     * @param analysisPool Pool for the class analysis of the components
+     * @param background   Whether the calculation is background work, which requests do not wait for
+     * @return Coverage of the product area
+     */
+    private ProductAreaCodeCoverage evaluateProductArea(ProductArea productArea, ForkJoinPool analysisPool,
+                                                        boolean background) {
+
+        try {
+            log.info("Calculating coverage data for :- ProductID = " + productArea.getProductId());
+            return getProductAreaCodeCoverage(productArea, analysisPool, background);
+        } catch (Exception e) {
+            log.error("Error while calculating coverage data for ProductID="
+                    + (productArea != null ? productArea.getProductId() : null), e);
+            return getBadProductAreaCoverage(productArea);
+        }
+    }
+
+    /**
+     * Create the coverage entry of a product area which could not be evaluated
+     *
+     * @param productArea Product area which could not be evaluated
+     * @return Coverage entry containing only the product ID if available
+     */
+    public ProductAreaCodeCoverage getBadProductAreaCoverage(ProductArea productArea) {
+
+        if (productArea == null) {
+            log.error("Invalid request data. Could not find productArea information");
+            return new ProductAreaCodeCoverage(
+                    null,
+                    null);
+        } else {
+            log.error("Error occured while calculating coverage for product area " + productArea.getProductId());
+            return new ProductAreaCodeCoverage(
+                    productArea.getProductId(),
+                    null);
+        }
+    }
+
+    private ProductAreaCodeCoverage getProductAreaCodeCoverage(ProductArea productArea, ForkJoinPool analysisPool,
+                                                               boolean background) throws Exception {
+
+        JenkinsServer buildResolver = new JenkinsServer(this.httpClient, this.metrics);
+        buildResolver.setProductAreaJenkinsJobs(productArea.getComponents());
+        Map<String, String> buildNumbers = new HashMap<>(buildResolver.resolveBuildNumbers());
+
+        /* Identical product areas built from the same builds share their result */
+        String resultKey = CoverageResultCache.getKey(productArea, buildNumbers);
+        CoverageResultCache.Calculation calculation =
+                () -> calculateProductAreaCodeCoverage(productArea, buildNumbers, analysisPool);
+        return background ? this.coverageResultCache.getInBackground(resultKey, calculation)
+                : this.coverageResultCache.get(resultKey, calculation);
+    }
+
+    private CoverageResultCache.CalculatedResult calculateProductAreaCodeCoverage(ProductArea productArea,
+                                                                                  Map<String, String> buildNumbers,
+                                                                                  ForkJoinPool analysisPool)
+            throws IOException {
+
+        /*
+        Each product area gets a workspace of its own as areas are evaluated concurrently. It is only acquired once
+        the result is to be calculated, so that a cached result is served even when the disk quota is exceeded
+         */
+        try (Workspace workspace = this.workspaceManager.acquire(productArea.getProductId())) {
+            JenkinsServer jenkins = new JenkinsServer(workspace, this.artifactCache, this.httpClient, this.metrics);
+            jenkins.setProductAreaJenkinsJobs(productArea.getComponents());
+            jenkins.setBuildNumbers(buildNumbers);
+            return calculateProductAreaCodeCoverage(productArea, workspace, jenkins, analysisPool);
+        }
+    }
+
+    private CoverageResultCache.CalculatedResult calculateProductAreaCodeCoverage(ProductArea productArea,
+                                                                                  Workspace workspace,
+                                                                                  JenkinsServer jenkins,
+                                                                                  ForkJoinPool analysisPool)
+            throws IOException {
+
+        jenkins.downloadCoverageFiles();
+
+        CoverageCalculator coverageCalculator = new CoverageCalculator(jenkins.getTemporaryProductAreaWorkspace(), productArea.getProductId(),
+                analysisPool, this.metrics, this.analysisFilter, this.classCoverageCache);
+        log.info("Merging retrieved jacoco data files");
+        coverageCalculator.mergeDataFiles(this.executionDataCache, jenkins.getDownloadedDataFiles(),
+                jenkins.getResolvedBuildNumbers());
+        HashMap<String, ComponentCoverage> productCodeCoverage = coverageCalculator.getProductCoverageData(productArea.getComponents());
+        try {
+            this.coverageIndexStore.update(productArea.getProductId(), coverageCalculator.getComponentBundles());
+        } catch (IOException e) {
+            log.warn("Could not update the coverage index of ProductID=" + productArea.getProductId());
+        }
+        try {
+            this.coverageHistoryStore.record(productArea.getProductId(), jenkins.getResolvedBuildNumbers(),
+                    coverageCalculator.getComponentBundles());
+        } catch (IOException e) {
+            log.warn("Could not record the coverage history of ProductID=" + productArea.getProductId());
+        }
+        log.info("Generating coverage reports");
+        this.reportScheduler.generateReports(workspace, coverageCalculator, productArea.getProductId(),
+                productArea.getComponents());
+
+        /* Overall code coverage of the product area is the exact total of the component counters */
+        ProductAreaCodeCoverage productAreaCodeCoverage = new ProductAreaCodeCoverage(productArea.getProductId(),
+                productCodeCoverage);
+        Double overallCoveredRatio = productAreaCodeCoverage.getOverallLineCoverageRatio();
+        if (overallCoveredRatio != null) {
+            log.info("Overall line coverage in ProductID=" + productArea.getProductId() + " is " + Double.toString(Math.round(overallCoveredRatio * 100)) + "%");
+        }
+        return new CoverageResultCache.CalculatedResult(productAreaCodeCoverage,
+                hasAllComponents(productArea.getComponents(), jenkins.getDownloadedDataFiles(), productCodeCoverage));
+    }
+
+    /**
+     * Check whether every component was downloaded and analyzed, apart from the components skipped by configuration
+     *
+     * @param components          Components of the product area
+     * @param downloadedDataFiles Data files of the downloaded components by job name
+     * @param productCodeCoverage Coverage of the analyzed components by job name
+     * @return False if a component is missing due to a download or analysis error
+     */
+    private boolean hasAllComponents(String[] components, Map<String, String> downloadedDataFiles,
+                                     Map<String, ComponentCoverage> productCodeCoverage) {
+
+        for (String component : components) {
+            String[] componentSplitted = component.split(General.URL_SEPARATOR);
+            String jobName = componentSplitted[componentSplitted.length - 1];
+            if (!this.analysisFilter.isComponentSkipped(jobName)
+                    && (!downloadedDataFiles.containsKey(jobName) || !productCodeCoverage.containsKey(jobName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculate the coverage changes of a product area between two builds of its components. The earlier build is
+     * analyzed first. Classes of the later build with the same bytecode and probes then reuse its analysis results,
+     * so only the classes which changed are analyzed twice. Both builds are merged under execution data entries of
+     * their own, as the requested builds and components may differ from the ones of the product area. The merged
+     * data of the product area stays on its latest builds
+     *
+     * @param productAreaDelta Product area and the builds of its components to compare
+     * @return Changes of the product area, the components and the classes whose counters differ
+     * @throws IOException If the coverage of either build cannot be calculated
+     */
+    public ProductAreaBuildDelta calculateBuildDelta(ProductAreaDelta productAreaDelta) throws IOException {
+
+        Map<String, String> fromBuilds = getRequestedBuilds(productAreaDelta.getFromBuilds());
+        Map<String, String> toBuilds = getRequestedBuilds(productAreaDelta.getToBuilds());
+        try (CoverageMetrics.InFlight request = this.metrics.requestStarted()) {
+            HashMap<String, String> fromBuildNumbers = new HashMap<>();
+            CoverageCalculator fromCoverage = calculateBuildCoverage(productAreaDelta.getProductId(),
+                    productAreaDelta.getProductId() + Coverage.DELTA_BASE_SUFFIX, productAreaDelta.getComponents(),
+                    fromBuilds, fromBuildNumbers);
+            HashMap<String, String> toBuildNumbers = new HashMap<>();
+            CoverageCalculator toCoverage = calculateBuildCoverage(productAreaDelta.getProductId(),
+                    productAreaDelta.getProductId() + Coverage.DELTA_TARGET_SUFFIX, productAreaDelta.getComponents(),
+                    toBuilds, toBuildNumbers);
+
+            log.info("Comparing builds " + fromBuildNumbers + " and " + toBuildNumbers + " of ProductID="
+                    + productAreaDelta.getProductId());
+            return CoverageComparator.compare(productAreaDelta.getProductId(), fromBuildNumbers, toBuildNumbers,
+                    fromCoverage.getComponentBundles(), toCoverage.getComponentBundles());
+        }
+    }
+
+    /**
+     * Validate the requested builds of the components, as they become part of the Jenkins URLs. Jobs requested at
+     * their last successful build are left to be resolved like jobs without a requested build
+     *
+     * @param builds Map of Jenkins job names to build numbers or the last successful build reference, or null
+     * @return Map of Jenkins job names to the requested build numbers
+     */
+    private static Map<String, String> getRequestedBuilds(Map<String, String> builds) {
+
+        HashMap<String, String> buildNumbers = new HashMap<>();
+        if (builds == null) {
+            return buildNumbers;
+        }
+        for (Map.Entry<String, String> build : builds.entrySet()) {
+            if (Jenkins.LAST_SUCCESSFUL_BUILD.equals(build.getValue())) {
+                continue;
+            }
+            if (build.getValue() == null || !build.getValue().matches("\\d+")) {
+                throw new IllegalArgumentException("Invalid build " + build.getValue() + " of " + build.getKey());
+            }
+            buildNumbers.put(build.getKey(), build.getValue());
+        }
+        return buildNumbers;
+    }
+
+    /**
+     * Analyze the components of a product area as of the given builds, without reports or history
+     *
+     * @param productId        ID of the product area
+     * @param executionDataKey Entry of the execution data cache the builds are merged under
+     * @param components       Components of the product area
+     * @param builds           Build number of each job, the last successful build is used for the other jobs
+     * @param buildNumbers     Receives the build number each job was analyzed from
+     * @return Calculator holding the analyzed components
+     * @throws IOException If the execution data cannot be merged or the components cannot be analyzed
+     */
+    private CoverageCalculator calculateBuildCoverage(String productId, String executionDataKey, String[] components,
+                                                      Map<String, String> builds, Map<String, String> buildNumbers)
+            throws IOException {
+
+        try (Workspace workspace = this.workspaceManager.acquire(productId)) {
+            JenkinsServer jenkins = new JenkinsServer(workspace, this.artifactCache, this.httpClient, this.metrics);
+            jenkins.setProductAreaJenkinsJobs(components);
+            jenkins.setBuildNumbers(builds);
+            jenkins.downloadCoverageFiles();
+
+            CoverageCalculator coverageCalculator = new CoverageCalculator(jenkins.getTemporaryProductAreaWorkspace(),
+                    executionDataKey, this.componentAnalysisPool, this.metrics, this.analysisFilter,
+                    this.classCoverageCache);
+            coverageCalculator.mergeDataFiles(this.executionDataCache, jenkins.getDownloadedDataFiles(),
+                    jenkins.getResolvedBuildNumbers());
+            coverageCalculator.getProductCoverageData(components);
+            buildNumbers.putAll(jenkins.getResolvedBuildNumbers());
+            return coverageCalculator;
+        }
+    }
+
+    /**
+     * Calculate the line coverage of the lines changed by a patch in a product area. The execution data of all
+     * requested components is merged under an execution data entry for patches, so that the merged data of the
+     * product area is not replaced with the components of the patch request. Only the classes in the packages of the
+     * changed files are analyzed, and no reports, index or history are produced. A patch asking for local artifacts
+     * takes them from the configured local artifacts folder, and its data is merged under an entry of its own so that
+     * it never mixes with the data from Jenkins
+     *
+     * @param productAreaPatch Product area and the diff or line ranges of the patch
+     * @return Covered and missed changed lines of each changed source file
+     * @throws IOException If the execution data cannot be merged or the components cannot be analyzed
+     * @throws IllegalArgumentException If local artifacts are asked for but no local artifacts folder is configured
+     */
+    public ProductAreaPatchCoverage calculatePatchCoverage(ProductAreaPatch productAreaPatch) throws IOException {
+
+        ChangedLines changedLines = productAreaPatch.getDiff() != null
+                ? ChangedLines.fromUnifiedDiff(productAreaPatch.getDiff())
+                : ChangedLines.fromLineRanges(productAreaPatch.getChangedLines());
+        if (changedLines.isEmpty()) {
+            return new ProductAreaPatchCoverage(productAreaPatch.getProductId(), new PatchFileCoverage[0]);
+        }
+        String executionDataKey = productAreaPatch.getProductId() + Coverage.PATCH_SUFFIX;
+        if (productAreaPatch.isLocalArtifacts()) {
+            if (this.localArtifactsDirectory == null) {
+                throw new IllegalArgumentException("Local artifacts were requested, but "
+                        + Jenkins.LOCAL_ARTIFACTS_DIRECTORY + " is not configured");
+            }
+            executionDataKey += Coverage.LOCAL_ARTIFACTS_SUFFIX;
+        }
+
+        try (CoverageMetrics.InFlight request = this.metrics.requestStarted();
+             Workspace workspace = this.workspaceManager.acquire(productAreaPatch.getProductId())) {
+            JenkinsServer jenkins = new JenkinsServer(workspace, this.artifactCache, this.httpClient, this.metrics);
+            jenkins.setProductAreaJenkinsJobs(productAreaPatch.getComponents());
+            if (productAreaPatch.isLocalArtifacts()) {
+                jenkins.setLocalArtifactsDirectory(this.localArtifactsDirectory);
+            }
+            jenkins.downloadCoverageFiles();
+
+            CoverageCalculator coverageCalculator = new CoverageCalculator(jenkins.getTemporaryProductAreaWorkspace(),
+                    executionDataKey, this.componentAnalysisPool, this.metrics, this.analysisFilter,
+                    this.classCoverageCache);
+            coverageCalculator.mergeDataFiles(this.executionDataCache, jenkins.getDownloadedDataFiles(),
+                    jenkins.getResolvedBuildNumbers());
+            PatchFileCoverage[] files = coverageCalculator.getPatchCoverage(productAreaPatch.getComponents(),
+                    changedLines).getFiles();
+            return new ProductAreaPatchCoverage(productAreaPatch.getProductId(), files);
+        }
+    }
+
+    /*
+    Receives the result of each product area of a streamed request
+     */
+    public interface ProductAreaWriter {
+
+        void write(ProductAreaCodeCoverage productAreaCodeCoverage) throws IOException;
+    }
+
+    /*
+    Receives progress of the product areas of a request
+     */
+    public interface ProductAreaListener {
+
+        void started(int index);
+
+        void finished(int index, ProductAreaCodeCoverage productAreaCodeCoverage);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.coverageindex;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.wso2.productcodecoverageservice.Constants.Index;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.IndexedCoverage;
+
+/*
+Queries of the class level coverage index. Package and class names are accepted with '.' or '/' separators
+ */
+@RestController
+public class CoverageIndexController {
+
+    private final CoverageIndexStore coverageIndexStore;
+
+    public CoverageIndexController(CoverageIndexStore coverageIndexStore) {
+
+        this.coverageIndexStore = coverageIndexStore;
+    }
+
+    @RequestMapping(value = {Index.GET_PRODUCT_AREA_INDEX_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<IndexedCoverage> getProductAreaCoverage(@PathVariable(Index.PRODUCT_ID) String productId) {
+
+        return toResponse(this.coverageIndexStore.getProductAreaCoverage(productId));
+    }
+
+    @RequestMapping(value = {Index.GET_PACKAGES_INDEX_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<IndexedCoverage[]> getPackageCoverages(@PathVariable(Index.PRODUCT_ID) String productId,
+                                                                 @RequestParam(value = Index.COMPONENT, required = false) String component) {
+
+        return toResponse(this.coverageIndexStore.getPackageCoverages(productId, component));
+    }
+
+    @RequestMapping(value = {Index.GET_PACKAGE_INDEX_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<IndexedCoverage> getPackageCoverage(@PathVariable(Index.PRODUCT_ID) String productId,
+                                                              @PathVariable(Index.PACKAGE_NAME) String packageName) {
+
+        return toResponse(this.coverageIndexStore.getPackageCoverage(productId, toVmName(packageName)));
+    }
+
+    @RequestMapping(value = {Index.GET_CLASS_INDEX_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<IndexedCoverage> getClassCoverage(@PathVariable(Index.PRODUCT_ID) String productId,
+                                                            @PathVariable(Index.CLASS_NAME) String className) {
+
+        return toResponse(this.coverageIndexStore.getClassCoverage(productId, toVmName(className)));
+    }
+
+    private static String toVmName(String name) {
+
+        return name.replace('.', '/');
+    }
+
+    private static <T> ResponseEntity<T> toResponse(T coverage) {
+
+        return coverage != null ? ResponseEntity.ok(coverage) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.coverageindex;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+Compact coverage tree of a product area component: component, packages, classes and methods, each with the missed and
+covered counts of the indexed counters. Children are sorted by name so that they can be looked up by binary search
+ */
+public class CoverageIndexNode {
+
+    /*
+    Counters kept for each node, in the order of the counter arrays and the index file
+     */
+    public static final String[] COUNTERS = {Coverage.INSTRUCTION, Coverage.BRANCH, Coverage.LINE, Coverage.METHOD};
+
+    private static final int INDEX_FILE_MAGIC = 0x43494458;
+    private static final int INDEX_FILE_VERSION = 1;
+    private static final Comparator<CoverageIndexNode> BY_NAME = Comparator.comparing(CoverageIndexNode::getName);
+
+    private final String name;
+
+    /*
+    Missed and covered count of each counter in COUNTERS, one after the other
+     */
+    private final int[] counters;
+    private final List<CoverageIndexNode> children;
+
+    private CoverageIndexNode(String name, int[] counters, List<CoverageIndexNode> children) {
+
+        this.name = name;
+        this.counters = counters;
+        this.children = children;
+    }
+
+    /**
+     * Build the index of a component from its analyzed bundle
+     *
+     * @param component Name of the component
+     * @param bundle    Coverage bundle of the component
+     * @return Index of the component
+     */
+    public static CoverageIndexNode fromBundle(String component, IBundleCoverage bundle) {
+
+        List<CoverageIndexNode> packages = new ArrayList<>();
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            List<CoverageIndexNode> classes = new ArrayList<>();
+            for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
+                List<CoverageIndexNode> methods = new ArrayList<>();
+                for (IMethodCoverage methodCoverage : classCoverage.getMethods()) {
+                    methods.add(new CoverageIndexNode(methodCoverage.getName() + methodCoverage.getDesc(),
+                            getCounters(methodCoverage), Collections.emptyList()));
+                }
+                classes.add(new CoverageIndexNode(classCoverage.getName(), getCounters(classCoverage), sorted(methods)));
+            }
+            packages.add(new CoverageIndexNode(packageCoverage.getName(), getCounters(packageCoverage), sorted(classes)));
+        }
+        return new CoverageIndexNode(component, getCounters(bundle), sorted(packages));
+    }
+
+    private static int[] getCounters(ICoverageNode coverageNode) {
+
+        int[] counters = new int[COUNTERS.length * 2];
+        for (int i = 0; i < COUNTERS.length; i++) {
+            ICounter counter = coverageNode.getCounter(ICoverageNode.CounterEntity.valueOf(COUNTERS[i]));
+            counters[i * 2] = counter.getMissedCount();
+            counters[i * 2 + 1] = counter.getCoveredCount();
+        }
+        return counters;
+    }
+
+    private static List<CoverageIndexNode> sorted(List<CoverageIndexNode> nodes) {
+
+        nodes.sort(BY_NAME);
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Write the index of a component in the binary index file format
+     *
+     * @param output Stream of the index file
+     * @throws IOException If the index cannot be written
+     */
+    public void write(DataOutputStream output) throws IOException {
+
+        output.writeInt(INDEX_FILE_MAGIC);
+        output.writeInt(INDEX_FILE_VERSION);
+        writeNode(output);
+    }
+
+    private void writeNode(DataOutputStream output) throws IOException {
+
+        output.writeUTF(this.name);
+        for (int count : this.counters) {
+            output.writeInt(count);
+        }
+        output.writeInt(this.children.size());
+        for (CoverageIndexNode child : this.children) {
+            child.writeNode(output);
+        }
+    }
+
+    /**
+     * Read the index of a component written in the binary index file format
+     *
+     * @param input Stream of the index file
+     * @return Index of the component
+     * @throws IOException If the index cannot be read or is not an index file of this version
+     */
+    public static CoverageIndexNode read(DataInputStream input) throws IOException {
+
+        if (input.readInt() != INDEX_FILE_MAGIC || input.readInt() != INDEX_FILE_VERSION) {
+            throw new IOException("Unsupported coverage index file");
+        }
+        return readNode(input);
+    }
+
+    private static CoverageIndexNode readNode(DataInputStream input) throws IOException {
+
+        String name = input.readUTF();
+        int[] counters = new int[COUNTERS.length * 2];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = input.readInt();
+        }
+        int childCount = input.readInt();
+        List<CoverageIndexNode> children = new ArrayList<>(childCount);
+        for (int i = 0; i < childCount; i++) {
+            children.add(readNode(input));
+        }
+        return new CoverageIndexNode(name, counters, Collections.unmodifiableList(children));
+    }
+
+    /**
+     * Find a direct child of this node
+     *
+     * @param childName Name of the child
+     * @return The child or null if there is no child with that name
+     */
+    public CoverageIndexNode getChild(String childName) {
+
+        int index = Collections.binarySearch(this.children,
+                new CoverageIndexNode(childName, null, null), BY_NAME);
+        return index >= 0 ? this.children.get(index) : null;
+    }
+
+    public String getName() {
+
+        return this.name;
+    }
+
+    public int getMissedCount(int counter) {
+
+        return this.counters[counter * 2];
+    }
+
+    public int getCoveredCount(int counter) {
+
+        return this.counters[counter * 2 + 1];
+    }
+
+    public List<CoverageIndexNode> getChildren() {
+
+        return this.children;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.coverageindex;
+
+import org.apache.log4j.Logger;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Index;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageCounter;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.IndexedCoverage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Class level coverage index of product areas. The index of each component is saved in a binary index file when the
+product area is analyzed, and queried from memory without analyzing the classes again
+ */
+@Component
+public class CoverageIndexStore {
+
+    private static final Logger log = Logger.getLogger(CoverageIndexStore.class);
+    private final Path storageFolder;
+
+    /*
+    Index of each component of the product areas, loaded from the index files on first use
+     */
+    private final ConcurrentHashMap<String, Map<String, CoverageIndexNode>> productAreas = new ConcurrentHashMap<>();
+
+    public CoverageIndexStore() {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+        this.storageFolder = Paths.get(home.getDir() + File.separator + Jenkins.ARTIFACT_CACHE_DIRECTORY
+                + File.separator + Index.INDEX_DIRECTORY);
+    }
+
+    /**
+     * Replace the index of a product area with the analyzed bundles of its components
+     *
+     * @param productId ID of the product area
+     * @param bundles   Coverage bundle of each analyzed component
+     * @throws IOException If the index files cannot be saved
+     */
+    public void update(String productId, Map<String, IBundleCoverage> bundles) throws IOException {
+
+        TreeMap<String, CoverageIndexNode> components = new TreeMap<>();
+        for (Map.Entry<String, IBundleCoverage> bundle : bundles.entrySet()) {
+            components.put(bundle.getKey(), CoverageIndexNode.fromBundle(bundle.getKey(), bundle.getValue()));
+        }
+
+        Path productAreaFolder = getProductAreaFolder(productId);
+        synchronized (this.productAreas) {
+            Files.createDirectories(productAreaFolder);
+            for (CoverageIndexNode component : components.values()) {
+                Path indexFile = productAreaFolder.resolve(component.getName() + Index.INDEX_FILE_EXTENSION);
+                Path temporaryIndexFile = productAreaFolder.resolve(component.getName() + Index.INDEX_FILE_EXTENSION
+                        + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temporaryIndexFile)))) {
+                    component.write(output);
+                }
+                Files.move(temporaryIndexFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            /* Components which are no longer in the product area are dropped from the index */
+            try (DirectoryStream<Path> indexFiles = Files.newDirectoryStream(productAreaFolder)) {
+                for (Path indexFile : indexFiles) {
+                    String fileName = indexFile.getFileName().toString();
+                    if (!fileName.endsWith(Index.INDEX_FILE_EXTENSION) || !components.containsKey(
+                            fileName.substring(0, fileName.length() - Index.INDEX_FILE_EXTENSION.length()))) {
+                        Files.deleteIfExists(indexFile);
+                    }
+                }
+            }
+            this.productAreas.put(productId, Collections.unmodifiableMap(components));
+        }
+    }
+
+    /**
+     * Get the indexed coverage of a product area and its components
+     *
+     * @param productId ID of the product area
+     * @return Coverage of the product area or null if the product area is not indexed
+     */
+    public IndexedCoverage getProductAreaCoverage(String productId) {
+
+        Map<String, CoverageIndexNode> components = getProductArea(productId);
+        if (components.isEmpty()) {
+            return null;
+        }
+        List<IndexedCoverage> componentCoverages = new ArrayList<>();
+        for (CoverageIndexNode component : components.values()) {
+            componentCoverages.add(toIndexedCoverage(component, component.getName(), null));
+        }
+        return new IndexedCoverage(productId, null, getCounters(components.values()),
+                componentCoverages.toArray(new IndexedCoverage[0]));
+    }
+
+    /**
+     * Get the indexed coverage of the packages of a product area
+     *
+     * @param productId ID of the product area
+     * @param component Component to list the packages of, or null for all components
+     * @return Coverage of each package or null if the product area or component is not indexed
+     */
+    public IndexedCoverage[] getPackageCoverages(String productId, String component) {
+
+        Map<String, CoverageIndexNode> components = getProductArea(productId);
+        if (component != null) {
+            components = components.containsKey(component)
+                    ? Collections.singletonMap(component, components.get(component)) : Collections.emptyMap();
+        }
+        if (components.isEmpty()) {
+            return null;
+        }
+        List<IndexedCoverage> packageCoverages = new ArrayList<>();
+        for (CoverageIndexNode componentNode : components.values()) {
+            for (CoverageIndexNode packageNode : componentNode.getChildren()) {
+                packageCoverages.add(toIndexedCoverage(packageNode, componentNode.getName(), null));
+            }
+        }
+        return packageCoverages.toArray(new IndexedCoverage[0]);
+    }
+
+    /**
+     * Get the indexed coverage of a package of a product area, together with its classes. A package found in several
+     * components is reported with the total of its counters
+     *
+     * @param productId   ID of the product area
+     * @param packageName VM name of the package, e.g. org/wso2/carbon
+     * @return Coverage of the package or null if the package is not indexed
+     */
+    public IndexedCoverage getPackageCoverage(String productId, String packageName) {
+
+        List<CoverageIndexNode> packageNodes = new ArrayList<>();
+        List<IndexedCoverage> classCoverages = new ArrayList<>();
+        for (CoverageIndexNode component : getProductArea(productId).values()) {
+            CoverageIndexNode packageNode = component.getChild(packageName);
+            if (packageNode != null) {
+                packageNodes.add(packageNode);
+                for (CoverageIndexNode classNode : packageNode.getChildren()) {
+                    classCoverages.add(toIndexedCoverage(classNode, component.getName(), null));
+                }
+            }
+        }
+        if (packageNodes.isEmpty()) {
+            return null;
+        }
+        return new IndexedCoverage(packageName, null, getCounters(packageNodes),
+                classCoverages.toArray(new IndexedCoverage[0]));
+    }
+
+    /**
+     * Get the indexed coverage of a class of a product area, together with its methods
+     *
+     * @param productId ID of the product area
+     * @param className VM name of the class, e.g. org/wso2/carbon/Example
+     * @return Coverage of the class or null if the class is not indexed
+     */
+    public IndexedCoverage getClassCoverage(String productId, String className) {
+
+        int packageEnd = className.lastIndexOf('/');
+        String packageName = packageEnd >= 0 ? className.substring(0, packageEnd) : "";
+        for (CoverageIndexNode component : getProductArea(productId).values()) {
+            CoverageIndexNode packageNode = component.getChild(packageName);
+            CoverageIndexNode classNode = packageNode != null ? packageNode.getChild(className) : null;
+            if (classNode != null) {
+                List<IndexedCoverage> methodCoverages = new ArrayList<>();
+                for (CoverageIndexNode methodNode : classNode.getChildren()) {
+                    methodCoverages.add(toIndexedCoverage(methodNode, null, null));
+                }
+                return toIndexedCoverage(classNode, component.getName(),
+                        methodCoverages.toArray(new IndexedCoverage[0]));
+            }
+        }
+        return null;
+    }
+
+    private Map<String, CoverageIndexNode> getProductArea(String productId) {
+
+        Map<String, CoverageIndexNode> components = this.productAreas.get(productId);
+        if (components == null) {
+            synchronized (this.productAreas) {
+                components = this.productAreas.computeIfAbsent(productId, this::load);
+            }
+        }
+        return components;
+    }
+
+    private Map<String, CoverageIndexNode> load(String productId) {
+
+        TreeMap<String, CoverageIndexNode> components = new TreeMap<>();
+        Path productAreaFolder = getProductAreaFolder(productId);
+        if (!Files.isDirectory(productAreaFolder)) {
+            return Collections.emptyMap();
+        }
+        try (DirectoryStream<Path> indexFiles = Files.newDirectoryStream(productAreaFolder,
+                "*" + Index.INDEX_FILE_EXTENSION)) {
+            for (Path indexFile : indexFiles) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(indexFile)))) {
+                    CoverageIndexNode component = CoverageIndexNode.read(input);
+                    components.put(component.getName(), component);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not load the coverage index of " + productId + ". It is available after the next analysis");
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(components);
+    }
+
+    private Path getProductAreaFolder(String productId) {
+
+        return this.storageFolder.resolve(String.valueOf(productId).replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    private static IndexedCoverage toIndexedCoverage(CoverageIndexNode node, String component,
+                                                     IndexedCoverage[] children) {
+
+        return new IndexedCoverage(node.getName(), component, getCounters(Collections.singletonList(node)), children);
+    }
+
+    private static LinkedHashMap<String, CoverageCounter> getCounters(Iterable<CoverageIndexNode> nodes) {
+
+        LinkedHashMap<String, CoverageCounter> counters = new LinkedHashMap<>();
+        for (int i = 0; i < CoverageIndexNode.COUNTERS.length; i++) {
+            long missed = 0;
+            long covered = 0;
+            for (CoverageIndexNode node : nodes) {
+                missed += node.getMissedCount(i);
+                covered += node.getCoveredCount(i);
+            }
+            counters.put(CoverageIndexNode.COUNTERS[i], new CoverageCounter(missed, covered));
+        }
+        return counters;
+    }
+}
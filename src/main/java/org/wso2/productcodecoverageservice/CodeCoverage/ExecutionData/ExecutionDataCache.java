@@ -0,0 +1,138 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.executiondata;
+
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/*
+Persistent merged execution data of product areas. The most recently used product areas are kept in memory, the
+others are loaded from disk when they are requested again. Product areas with many merged classes are kept packed and
+memory mapped instead of on the heap
+ */
+@Component
+public class ExecutionDataCache {
+
+    private final Path storageFolder;
+    private final int packedClassThreshold;
+    private final LinkedHashMap<String, ProductAreaExecutionData> productAreas;
+
+    public ExecutionDataCache() throws IOException {
+
+        this(loadApplicationProperties());
+    }
+
+    private ExecutionDataCache(Properties application) {
+
+        this(Paths.get(new ApplicationHome(Application.class).getDir() + File.separator
+                        + Jenkins.ARTIFACT_CACHE_DIRECTORY + File.separator + Coverage.EXECUTION_DATA_DIRECTORY),
+                Integer.parseInt(application.getProperty(Coverage.EXECUTION_DATA_CACHED_AREAS,
+                        Integer.toString(Coverage.DEFAULT_EXECUTION_DATA_CACHED_AREAS)).trim()),
+                Integer.parseInt(application.getProperty(Coverage.EXECUTION_DATA_PACKED_CLASSES,
+                        Integer.toString(Coverage.DEFAULT_EXECUTION_DATA_PACKED_CLASSES)).trim()));
+    }
+
+    /**
+     * Create a cache saving the merged execution data in the given folder
+     *
+     * @param storageFolder        Folder of the saved merged execution data of each product area
+     * @param cachedAreas          Number of product areas kept in memory
+     * @param packedClassThreshold Number of merged classes from which the merged execution data is packed, 0 to
+     *                             always keep it on the heap
+     */
+    public ExecutionDataCache(Path storageFolder, int cachedAreas, int packedClassThreshold) {
+
+        this.storageFolder = storageFolder;
+        this.packedClassThreshold = packedClassThreshold;
+        this.productAreas = new LinkedHashMap<String, ProductAreaExecutionData>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProductAreaExecutionData> eldest) {
+
+                /* Evicted product areas are saved on disk already */
+                return size() > cachedAreas;
+            }
+        };
+    }
+
+    private static Properties loadApplicationProperties() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        return application;
+    }
+
+    /**
+     * Update the merged execution data of a product area with the data files of its components. Only components
+     * with a new build number, new components and removed components cause classes to be merged again
+     *
+     * @param productId       ID of the product area
+     * @param jacocoDataFiles Jacoco data file of each component of the product area
+     * @param buildNumbers    Build number each data file was taken from
+     * @return Read-only snapshot of the merged execution data
+     * @throws IOException If a data file cannot be loaded or the merged data cannot be saved
+     */
+    public MergedExecutionData update(String productId, Map<String, String> jacocoDataFiles,
+                                      Map<String, String> buildNumbers) throws IOException {
+
+        return getProductArea(productId).update(jacocoDataFiles, buildNumbers);
+    }
+
+    /**
+     * Get the merged execution data of a product area as of its last update
+     *
+     * @param productId ID of the product area
+     * @return Read-only snapshot of the merged execution data, empty if the product area was never merged
+     */
+    public MergedExecutionData getMergedExecutionData(String productId) {
+
+        return getProductArea(productId).getMergedExecutionData();
+    }
+
+    private ProductAreaExecutionData getProductArea(String productId) {
+
+        synchronized (this.productAreas) {
+            ProductAreaExecutionData productArea = this.productAreas.get(productId);
+            if (productArea == null) {
+                /* Saved data of the product area is loaded on first use, outside of this lock */
+                productArea = new ProductAreaExecutionData(this.storageFolder.resolve(
+                        String.valueOf(productId).replaceAll("[^A-Za-z0-9._-]", "_")), this.packedClassThreshold);
+                this.productAreas.put(productId, productArea);
+            }
+            return productArea;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.executiondata;
+
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/*
+Converts execution data between the standard jacoco exec format and the packed format, e.g. to inspect a packed merged
+data file with standard tools. From the service jar it can be run with
+
+    java -cp <service jar> \
+        -Dloader.main=org.wso2.productcodecoverageservice.codecoverage.executiondata.ExecutionDataConverter \
+        org.springframework.boot.loader.PropertiesLauncher pack|unpack <source file> <target file>
+ */
+public final class ExecutionDataConverter {
+
+    private static final String PACK = "pack";
+    private static final String UNPACK = "unpack";
+
+    private ExecutionDataConverter() {
+
+    }
+
+    /**
+     * Convert a jacoco exec file to a packed execution data file. Execution data of the same class is merged
+     *
+     * @param execFile   Jacoco exec file
+     * @param packedFile Packed execution data file to be written
+     * @throws IOException If the exec file cannot be loaded or the packed file cannot be written
+     */
+    public static void pack(File execFile, File packedFile) throws IOException {
+
+        ExecFileLoader loader = new ExecFileLoader();
+        loader.load(execFile);
+        PackedExecutionData.write(packedFile, loader.getSessionInfoStore(), loader.getExecutionDataStore());
+    }
+
+    /**
+     * Convert a packed execution data file to a jacoco exec file. Classes are written one at a time, without loading
+     * the whole execution data
+     *
+     * @param packedFile Packed execution data file
+     * @param execFile   Jacoco exec file to be written
+     * @throws IOException If the packed file cannot be mapped or the exec file cannot be written
+     */
+    public static void unpack(File packedFile, File execFile) throws IOException {
+
+        PackedExecutionData packedExecutionData = PackedExecutionData.map(packedFile);
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(execFile.toPath()))) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(output);
+            packedExecutionData.getSessionInfoStore().accept(writer);
+            packedExecutionData.accept(writer);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 3 || !(PACK.equals(args[0]) || UNPACK.equals(args[0]))) {
+            System.err.println("Usage: ExecutionDataConverter pack <exec file> <packed file>");
+            System.err.println("       ExecutionDataConverter unpack <packed file> <exec file>");
+            System.exit(1);
+        }
+        if (PACK.equals(args[0])) {
+            pack(new File(args[1]), new File(args[2]));
+        } else {
+            unpack(new File(args[1]), new File(args[2]));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.executiondata;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfoStore;
+
+/*
+Read-only snapshot of the merged execution data of a product area. A snapshot is never modified after it is created,
+so it can be shared by concurrent analyses while the product area is being updated. The execution data is either held
+in an execution data store or, for large product areas, memory mapped from a packed file
+ */
+public class MergedExecutionData {
+
+    private final ExecutionDataStore executionDataStore;
+    private final PackedExecutionData packedExecutionData;
+    private final SessionInfoStore sessionInfoStore;
+
+    MergedExecutionData(ExecutionDataStore executionDataStore, SessionInfoStore sessionInfoStore) {
+
+        this.executionDataStore = executionDataStore;
+        this.packedExecutionData = null;
+        this.sessionInfoStore = sessionInfoStore;
+    }
+
+    MergedExecutionData(PackedExecutionData packedExecutionData) {
+
+        this.executionDataStore = null;
+        this.packedExecutionData = packedExecutionData;
+        this.sessionInfoStore = packedExecutionData.getSessionInfoStore();
+    }
+
+    public boolean isPacked() {
+
+        return this.packedExecutionData != null;
+    }
+
+    /**
+     * Get the execution data store of a snapshot held on the heap
+     *
+     * @return Execution data store, or null if the snapshot is packed
+     */
+    public ExecutionDataStore getExecutionDataStore() {
+
+        return this.executionDataStore;
+    }
+
+    /**
+     * Get the execution data of a packed snapshot
+     *
+     * @return Packed execution data, or null if the snapshot is held on the heap
+     */
+    public PackedExecutionData getPackedExecutionData() {
+
+        return this.packedExecutionData;
+    }
+
+    public SessionInfoStore getSessionInfoStore() {
+
+        return this.sessionInfoStore;
+    }
+
+    /**
+     * Visit the execution data of every class, whichever form the snapshot is in
+     *
+     * @param visitor Visitor of the execution data
+     */
+    public void accept(IExecutionDataVisitor visitor) {
+
+        if (isPacked()) {
+            this.packedExecutionData.accept(visitor);
+        } else {
+            this.executionDataStore.accept(visitor);
+        }
+    }
+
+    /**
+     * Get the number of classes with execution data
+     *
+     * @return Class count of the snapshot
+     */
+    public int getClassCount() {
+
+        return isPacked() ? this.packedExecutionData.getClassCount() : this.executionDataStore.getContents().size();
+    }
+}
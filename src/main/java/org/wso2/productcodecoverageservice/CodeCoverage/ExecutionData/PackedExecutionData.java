@@ -0,0 +1,480 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.executiondata;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/*
+Read-only merged execution data, memory mapped from a packed file. Classes are indexed by their id and by their name,
+and their probes are stored as bit sets. The execution data of a class is only materialized when it is requested, so
+the execution data of a product area is not held on the heap. The file is only read with absolute reads, so a single
+instance can be shared by concurrent analyses.
+
+The file starts with a header of magic, version, class count and session count, followed by the sessions. Then come
+the class index sorted by class id, with the id, name offset, probe count and probe offset of each class, the class
+ordinals sorted by class name, the class names and the packed probes
+ */
+public class PackedExecutionData {
+
+    private static final int MAGIC = 0x4A504B44;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 20;
+    private static final int NAME_OFFSET = 8;
+    private static final int PROBE_COUNT_OFFSET = 12;
+    private static final int PROBES_OFFSET = 16;
+
+    private final ByteBuffer buffer;
+    private final SessionInfoStore sessionInfoStore;
+    private final int classCount;
+    private final int indexStart;
+    private final int nameIndexStart;
+
+    private PackedExecutionData(ByteBuffer buffer, SessionInfoStore sessionInfoStore, int classCount,
+                                int indexStart) {
+
+        this.buffer = buffer;
+        this.sessionInfoStore = sessionInfoStore;
+        this.classCount = classCount;
+        this.indexStart = indexStart;
+        this.nameIndexStart = indexStart + classCount * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Map a packed execution data file. The mapping stays valid when the file is replaced or deleted afterwards
+     *
+     * @param packedFile Packed execution data file
+     * @return Execution data read from the mapped file
+     * @throws IOException If the file cannot be mapped or is not a packed execution data file
+     */
+    public static PackedExecutionData map(File packedFile) throws IOException {
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(packedFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Packed execution data file " + packedFile + " is too large to be mapped");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(packedFile + " is not a packed execution data file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported packed execution data version " + buffer.getInt(4) + " in "
+                    + packedFile);
+        }
+        int classCount = buffer.getInt(8);
+        int sessionCount = buffer.getInt(12);
+
+        SessionInfoStore sessionInfoStore = new SessionInfoStore();
+        int position = HEADER_SIZE;
+        for (int i = 0; i < sessionCount; i++) {
+            String id = readString(buffer, position);
+            position += 2 + (buffer.getShort(position) & 0xFFFF);
+            sessionInfoStore.visitSessionInfo(new SessionInfo(id, buffer.getLong(position),
+                    buffer.getLong(position + 8)));
+            position += 16;
+        }
+        return new PackedExecutionData(buffer, sessionInfoStore, classCount, position);
+    }
+
+    /**
+     * Write execution data as a packed file. The file is written next to its location and moved in place, so that
+     * mappings of a previous version of the file are not affected
+     *
+     * @param packedFile       Packed execution data file to be written
+     * @param sessionInfoStore Sessions of the execution data
+     * @param executionData    Execution data of the classes, at most one entry per class id
+     * @throws IOException If the file cannot be written or the data does not fit the format
+     */
+    public static void write(File packedFile, SessionInfoStore sessionInfoStore,
+                             ExecutionDataStore executionData) throws IOException {
+
+        write(packedFile, sessionInfoStore, null, Collections.emptySet(), executionData);
+    }
+
+    /**
+     * Write packed execution data with some of its classes replaced as a new packed file. The kept classes are copied
+     * from the previous data as they are, so they are never materialized on the heap. The file is written next to its
+     * location and moved in place, so the previous data may be mapped from the same file
+     *
+     * @param packedFile       Packed execution data file to be written
+     * @param sessionInfoStore Sessions of the execution data
+     * @param previous         Packed execution data to start from, or null to start empty
+     * @param replacedClassIds Ids of the classes of the previous data which are not kept
+     * @param replacements     Execution data of the classes to be added, at most one entry per class id. Classes of
+     *                         the previous data with the same id are replaced
+     * @throws IOException If the file cannot be written or the data does not fit the format
+     */
+    public static void write(File packedFile, SessionInfoStore sessionInfoStore, PackedExecutionData previous,
+                             Set<Long> replacedClassIds, ExecutionDataStore replacements) throws IOException {
+
+        ArrayList<ExecutionData> replacementClasses = new ArrayList<>(replacements.getContents());
+        replacementClasses.sort(Comparator.comparingLong(ExecutionData::getId));
+        int replacementCount = replacementClasses.size();
+        ArrayList<byte[]> replacementNames = new ArrayList<>(replacementCount);
+        for (ExecutionData classData : replacementClasses) {
+            replacementNames.add(encode(classData.getName()));
+        }
+
+        ArrayList<byte[]> sessionIds = new ArrayList<>();
+        long sessionsSize = 0;
+        for (SessionInfo session : sessionInfoStore.getInfos()) {
+            byte[] sessionId = encode(session.getId());
+            sessionIds.add(sessionId);
+            sessionsSize += 2 + sessionId.length + 16;
+        }
+
+        /*
+        Merge the kept classes of the previous data with the replacements in the order of the class ids. The source of
+        each written class is the ordinal of a previous class, or the complement of the index of a replacement
+         */
+        int previousCount = previous == null ? 0 : previous.classCount;
+        int[] sources = new int[previousCount + replacementCount];
+        int[] previousOrdinals = new int[previousCount];
+        int[] replacementOrdinals = new int[replacementCount];
+        int classCount = 0;
+        long namesSize = 0;
+        long probesSize = 0;
+        int previousOrdinal = 0;
+        int replacement = 0;
+        while (previousOrdinal < previousCount || replacement < replacementCount) {
+            if (previousOrdinal < previousCount) {
+                long previousId = previous.getClassId(previousOrdinal);
+                boolean replaced = replacedClassIds.contains(previousId) || (replacement < replacementCount
+                        && replacementClasses.get(replacement).getId() == previousId);
+                if (replaced) {
+                    previousOrdinals[previousOrdinal++] = -1;
+                    continue;
+                }
+                if (replacement == replacementCount || previousId < replacementClasses.get(replacement).getId()) {
+                    previousOrdinals[previousOrdinal] = classCount;
+                    sources[classCount++] = previousOrdinal;
+                    namesSize += 2 + previous.getNameLength(previousOrdinal);
+                    probesSize += (previous.getProbeCount(previousOrdinal) + 7) / 8;
+                    previousOrdinal++;
+                    continue;
+                }
+            }
+            replacementOrdinals[replacement] = classCount;
+            sources[classCount++] = ~replacement;
+            namesSize += 2 + replacementNames.get(replacement).length;
+            probesSize += (replacementClasses.get(replacement).getProbes().length + 7) / 8;
+            replacement++;
+        }
+
+        long indexStart = HEADER_SIZE + sessionsSize;
+        long namesStart = indexStart + (long) classCount * (INDEX_ENTRY_SIZE + 4);
+        long probesStart = namesStart + namesSize;
+        if (probesStart + probesSize > Integer.MAX_VALUE) {
+            throw new IOException("Execution data of " + classCount + " classes is too large to be packed");
+        }
+
+        /* Replacements sorted by name, to be merged with the name index of the previous data */
+        List<Integer> replacementNameOrder = new ArrayList<>(replacementCount);
+        for (int i = 0; i < replacementCount; i++) {
+            replacementNameOrder.add(i);
+        }
+        replacementNameOrder.sort(Comparator.comparing(index -> replacementClasses.get(index).getName()));
+
+        Path packedPath = packedFile.toPath();
+        Path temporaryFile = packedPath.resolveSibling(packedPath.getFileName() + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        Files.createDirectories(packedPath.toAbsolutePath().getParent());
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(classCount);
+            output.writeInt(sessionIds.size());
+            int session = 0;
+            for (SessionInfo sessionInfo : sessionInfoStore.getInfos()) {
+                writeString(output, sessionIds.get(session++));
+                output.writeLong(sessionInfo.getStartTimeStamp());
+                output.writeLong(sessionInfo.getDumpTimeStamp());
+            }
+
+            long nameOffset = namesStart;
+            long probeOffset = probesStart;
+            for (int i = 0; i < classCount; i++) {
+                int source = sources[i];
+                int nameLength;
+                int probeCount;
+                if (source >= 0) {
+                    output.writeLong(previous.getClassId(source));
+                    nameLength = previous.getNameLength(source);
+                    probeCount = previous.getProbeCount(source);
+                } else {
+                    output.writeLong(replacementClasses.get(~source).getId());
+                    nameLength = replacementNames.get(~source).length;
+                    probeCount = replacementClasses.get(~source).getProbes().length;
+                }
+                output.writeInt((int) nameOffset);
+                output.writeInt(probeCount);
+                output.writeInt((int) probeOffset);
+                nameOffset += 2 + nameLength;
+                probeOffset += (probeCount + 7) / 8;
+            }
+
+            int previousName = 0;
+            int replacementName = 0;
+            String nextPreviousName = null;
+            while (true) {
+                while (nextPreviousName == null && previousName < previousCount) {
+                    int ordinal = previous.getNameOrdinal(previousName);
+                    if (previousOrdinals[ordinal] >= 0) {
+                        nextPreviousName = previous.getName(ordinal);
+                    } else {
+                        previousName++;
+                    }
+                }
+                if (nextPreviousName == null && replacementName == replacementCount) {
+                    break;
+                }
+                if (replacementName == replacementCount || (nextPreviousName != null && nextPreviousName.compareTo(
+                        replacementClasses.get(replacementNameOrder.get(replacementName)).getName()) <= 0)) {
+                    output.writeInt(previousOrdinals[previous.getNameOrdinal(previousName++)]);
+                    nextPreviousName = null;
+                } else {
+                    output.writeInt(replacementOrdinals[replacementNameOrder.get(replacementName++)]);
+                }
+            }
+
+            for (int i = 0; i < classCount; i++) {
+                int source = sources[i];
+                if (source >= 0) {
+                    previous.copy(previous.getIndexField(source, NAME_OFFSET),
+                            2 + previous.getNameLength(source), output);
+                } else {
+                    writeString(output, replacementNames.get(~source));
+                }
+            }
+            for (int i = 0; i < classCount; i++) {
+                int source = sources[i];
+                if (source >= 0) {
+                    previous.copy(previous.getIndexField(source, PROBES_OFFSET),
+                            (previous.getProbeCount(source) + 7) / 8, output);
+                } else {
+                    output.write(pack(replacementClasses.get(~source).getProbes()));
+                }
+            }
+        }
+        Files.move(temporaryFile, packedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getClassCount() {
+
+        return this.classCount;
+    }
+
+    public SessionInfoStore getSessionInfoStore() {
+
+        return this.sessionInfoStore;
+    }
+
+    /**
+     * Get the execution data of a class
+     *
+     * @param classId Id of the class
+     * @return Execution data of the class, or null if the class was not executed
+     */
+    public ExecutionData get(long classId) {
+
+        int low = 0;
+        int high = this.classCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = this.buffer.getLong(getIndexEntry(middle));
+            if (middleId < classId) {
+                low = middle + 1;
+            } else if (middleId > classId) {
+                high = middle - 1;
+            } else {
+                return read(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get execution data recorded for a class name. A class name can be recorded with several ids when different
+     * versions of the class were executed, in which case any of them is returned
+     *
+     * @param className VM name of the class
+     * @return Execution data recorded for the class name, or null if there is none
+     */
+    public ExecutionData get(String className) {
+
+        int low = 0;
+        int high = this.classCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int ordinal = this.buffer.getInt(this.nameIndexStart + middle * 4);
+            int comparison = readString(this.buffer, this.buffer.getInt(getIndexEntry(ordinal) + NAME_OFFSET))
+                    .compareTo(className);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return read(ordinal);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visit the execution data of every class in the order of the class ids. Each class is materialized only for
+     * its visit
+     *
+     * @param visitor Visitor of the execution data, e.g. an execution data store or writer
+     */
+    public void accept(IExecutionDataVisitor visitor) {
+
+        for (int i = 0; i < this.classCount; i++) {
+            visitor.visitClassExecution(read(i));
+        }
+    }
+
+    private ExecutionData read(int ordinal) {
+
+        int indexEntry = getIndexEntry(ordinal);
+        int probeCount = this.buffer.getInt(indexEntry + PROBE_COUNT_OFFSET);
+        int probesOffset = this.buffer.getInt(indexEntry + PROBES_OFFSET);
+        boolean[] probes = new boolean[probeCount];
+        for (int i = 0; i < probeCount; i++) {
+            probes[i] = (this.buffer.get(probesOffset + (i >>> 3)) & (1 << (i & 7))) != 0;
+        }
+        return new ExecutionData(this.buffer.getLong(indexEntry),
+                readString(this.buffer, this.buffer.getInt(indexEntry + NAME_OFFSET)), probes);
+    }
+
+    private int getIndexEntry(int ordinal) {
+
+        return this.indexStart + ordinal * INDEX_ENTRY_SIZE;
+    }
+
+    private long getClassId(int ordinal) {
+
+        return this.buffer.getLong(getIndexEntry(ordinal));
+    }
+
+    private int getIndexField(int ordinal, int fieldOffset) {
+
+        return this.buffer.getInt(getIndexEntry(ordinal) + fieldOffset);
+    }
+
+    private int getProbeCount(int ordinal) {
+
+        return getIndexField(ordinal, PROBE_COUNT_OFFSET);
+    }
+
+    private int getNameLength(int ordinal) {
+
+        return this.buffer.getShort(getIndexField(ordinal, NAME_OFFSET)) & 0xFFFF;
+    }
+
+    private String getName(int ordinal) {
+
+        return readString(this.buffer, getIndexField(ordinal, NAME_OFFSET));
+    }
+
+    /**
+     * Get the ordinal of a class by its position in the order of the class names
+     */
+    private int getNameOrdinal(int position) {
+
+        return this.buffer.getInt(this.nameIndexStart + position * 4);
+    }
+
+    /**
+     * Copy bytes of the mapped file to an output stream as they are
+     */
+    private void copy(int position, int length, DataOutputStream output) throws IOException {
+
+        ByteBuffer source = this.buffer.duplicate();
+        source.position(position);
+        byte[] chunk = new byte[Math.min(length, 8192)];
+        int remaining = length;
+        while (remaining > 0) {
+            int chunkLength = Math.min(remaining, chunk.length);
+            source.get(chunk, 0, chunkLength);
+            output.write(chunk, 0, chunkLength);
+            remaining -= chunkLength;
+        }
+    }
+
+    private static byte[] pack(boolean[] probes) {
+
+        byte[] packedProbes = new byte[(probes.length + 7) / 8];
+        for (int i = 0; i < probes.length; i++) {
+            if (probes[i]) {
+                packedProbes[i >>> 3] |= 1 << (i & 7);
+            }
+        }
+        return packedProbes;
+    }
+
+    private static byte[] encode(String value) throws IOException {
+
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > 0xFFFF) {
+            throw new IOException("Name too long to be packed: " + value.substring(0, 100));
+        }
+        return encoded;
+    }
+
+    private static void writeString(DataOutputStream output, byte[] encoded) throws IOException {
+
+        output.writeShort(encoded.length);
+        output.write(encoded);
+    }
+
+    private static String readString(ByteBuffer buffer, int position) {
+
+        int length = buffer.getShort(position) & 0xFFFF;
+        byte[] encoded = new byte[length];
+        for (int i = 0; i < length; i++) {
+            encoded[i] = buffer.get(position + 2 + i);
+        }
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
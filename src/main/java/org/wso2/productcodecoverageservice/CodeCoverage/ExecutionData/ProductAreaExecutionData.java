@@ -0,0 +1,470 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.executiondata;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/*
+Merged execution data of a product area together with the contribution of each component. When components get new
+builds, only the classes touched by the old or new contributions of those components are merged again, and only the
+contributions holding such classes are loaded. The class ids and sessions of every contribution are saved in a summary
+next to it, so they are known without loading the contribution. Product areas with many classes keep their merged
+execution data packed and memory mapped, and the classes left untouched by an update are copied from the previous
+packed file to the new one
+ */
+class ProductAreaExecutionData {
+
+    private static final Logger log = Logger.getLogger(ProductAreaExecutionData.class);
+    private static final String CONTRIBUTIONS_INDEX = "contributions.properties";
+    private static final String CONTRIBUTIONS_FOLDER = "contributions";
+    private static final String SUMMARY_EXTENSION = "summary";
+
+    private final Path storageFolder;
+    private final int packedClassThreshold;
+    private final LinkedHashMap<String, Contribution> contributions = new LinkedHashMap<>();
+    private MergedExecutionData mergedExecutionData =
+            new MergedExecutionData(new ExecutionDataStore(), new SessionInfoStore());
+    private boolean loaded;
+
+    /**
+     * Create the execution data of a product area. Saved data is loaded on first use
+     *
+     * @param storageFolder        Folder the execution data of the product area is saved in
+     * @param packedClassThreshold Number of merged classes from which the merged execution data is packed, 0 to
+     *                             always keep it on the heap
+     */
+    ProductAreaExecutionData(Path storageFolder, int packedClassThreshold) {
+
+        this.storageFolder = storageFolder;
+        this.packedClassThreshold = packedClassThreshold;
+    }
+
+    /**
+     * Load the contribution summaries and the merged execution data saved by an earlier run. If the saved data is
+     * incomplete, the product area starts empty and is merged from scratch on the next update
+     */
+    private void load() {
+
+        if (this.loaded) {
+            return;
+        }
+        this.loaded = true;
+
+        File contributionsIndex = this.storageFolder.resolve(CONTRIBUTIONS_INDEX).toFile();
+        File mergedDataFile = this.storageFolder.resolve(Coverage.MERGED_JACOCO_DATA_FILE).toFile();
+        File packedDataFile = this.storageFolder.resolve(Coverage.MERGED_PACKED_DATA_FILE).toFile();
+        if (!contributionsIndex.exists() || !(mergedDataFile.exists() || packedDataFile.exists())) {
+            return;
+        }
+        try {
+            Properties savedContributions = new Properties();
+            try (InputStream indexStream = Files.newInputStream(contributionsIndex.toPath())) {
+                savedContributions.load(indexStream);
+            }
+            for (String component : savedContributions.stringPropertyNames()) {
+                File contributionFile = getContributionFile(component);
+                if (!contributionFile.exists()) {
+                    throw new IOException("Missing execution data of " + component);
+                }
+                /* Contributions are loaded when they are merged, their summaries right away */
+                this.contributions.put(component, Contribution.load(savedContributions.getProperty(component),
+                        contributionFile, getSummaryFile(component)));
+            }
+            if (packedDataFile.exists()) {
+                this.mergedExecutionData = new MergedExecutionData(PackedExecutionData.map(packedDataFile));
+            } else {
+                ExecFileLoader mergedLoader = new ExecFileLoader();
+                mergedLoader.load(mergedDataFile);
+                this.mergedExecutionData = new MergedExecutionData(mergedLoader.getExecutionDataStore(),
+                        mergedLoader.getSessionInfoStore());
+            }
+        } catch (IOException e) {
+            log.warn("Could not load saved execution data from " + this.storageFolder + ". Merging from scratch");
+            this.contributions.clear();
+            this.mergedExecutionData = new MergedExecutionData(new ExecutionDataStore(), new SessionInfoStore());
+        }
+    }
+
+    /**
+     * Bring the merged execution data up to date with the given component data files
+     *
+     * @param jacocoDataFiles Jacoco data file of each component of the product area
+     * @param buildNumbers    Build number each data file was taken from. Components without a build number are
+     *                        always treated as changed
+     * @return Snapshot of the merged execution data
+     * @throws IOException If a data file cannot be loaded or the merged data cannot be saved
+     */
+    synchronized MergedExecutionData update(Map<String, String> jacocoDataFiles, Map<String, String> buildNumbers)
+            throws IOException {
+
+        load();
+        LinkedHashMap<String, Contribution> changedContributions = new LinkedHashMap<>();
+        HashSet<Long> affectedClassIds = new HashSet<>();
+
+        for (Map.Entry<String, String> dataFile : jacocoDataFiles.entrySet()) {
+            String component = dataFile.getKey();
+            String buildNumber = buildNumbers.get(component);
+            Contribution currentContribution = this.contributions.get(component);
+            if (currentContribution != null && buildNumber != null
+                    && buildNumber.equals(currentContribution.getBuildNumber())) {
+                continue;
+            }
+            ExecFileLoader contributionLoader = new ExecFileLoader();
+            contributionLoader.load(new File(dataFile.getValue()));
+            changedContributions.put(component,
+                    new Contribution(buildNumber, getContributionFile(component), contributionLoader));
+        }
+
+        HashSet<String> removedComponents = new HashSet<>(this.contributions.keySet());
+        removedComponents.removeAll(jacocoDataFiles.keySet());
+
+        if (changedContributions.isEmpty() && removedComponents.isEmpty()) {
+            log.info("Execution data is up to date. Reusing merged execution data");
+            return this.mergedExecutionData;
+        }
+
+        for (String component : removedComponents) {
+            this.contributions.remove(component).addClassIds(affectedClassIds);
+            FileUtils.deleteQuietly(getContributionFile(component));
+            FileUtils.deleteQuietly(getSummaryFile(component));
+        }
+        for (Map.Entry<String, Contribution> changedContribution : changedContributions.entrySet()) {
+            String component = changedContribution.getKey();
+            Contribution previousContribution = this.contributions.put(component, changedContribution.getValue());
+            if (previousContribution != null) {
+                previousContribution.addClassIds(affectedClassIds);
+            }
+            changedContribution.getValue().addClassIds(affectedClassIds);
+
+            Files.createDirectories(getContributionFile(component).getParentFile().toPath());
+            Files.copy(new File(jacocoDataFiles.get(component)).toPath(), getContributionFile(component).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            changedContribution.getValue().saveSummary(getSummaryFile(component));
+        }
+
+        /*
+        Sessions are taken from the summaries, and only the contributions holding affected classes are loaded. Every
+        contribution is released once merged, as it is saved on disk
+         */
+        ExecutionDataStore mergedClasses = new ExecutionDataStore();
+        SessionInfoStore mergedSessions = new SessionInfoStore();
+        int mergedContributions = 0;
+        for (Contribution contribution : this.contributions.values()) {
+            for (SessionInfo session : contribution.getSessions()) {
+                mergedSessions.visitSessionInfo(session);
+            }
+            if (!contribution.containsAny(affectedClassIds)) {
+                continue;
+            }
+            ExecutionDataStore contributionStore = contribution.getExecutionDataStore();
+            for (long classId : affectedClassIds) {
+                ExecutionData executionData = contributionStore.get(classId);
+                if (executionData == null) {
+                    continue;
+                }
+                ExecutionData mergedData = mergedClasses.get(classId);
+                if (mergedData == null) {
+                    mergedClasses.put(new ExecutionData(executionData.getId(), executionData.getName(),
+                            executionData.getProbes().clone()));
+                } else {
+                    mergedData.merge(executionData);
+                }
+            }
+            contribution.release();
+            mergedContributions++;
+        }
+        log.info("Merged " + affectedClassIds.size() + " classes of " + (changedContributions.size()
+                + removedComponents.size()) + " changed components from " + mergedContributions + " contributions");
+
+        save(affectedClassIds, mergedClasses, mergedSessions);
+        return this.mergedExecutionData;
+    }
+
+    synchronized MergedExecutionData getMergedExecutionData() {
+
+        load();
+        return this.mergedExecutionData;
+    }
+
+    /**
+     * Save the merged execution data and make it the current snapshot. A packed snapshot is updated by copying its
+     * untouched classes to a new packed file. Otherwise the untouched classes are shared with the previous snapshot,
+     * which is never modified, and merged data reaching the packed class threshold is saved packed and mapped back
+     *
+     * @param affectedClassIds Classes merged again, whose previous execution data is replaced
+     * @param mergedClasses    Merged execution data of the affected classes
+     * @param mergedSessions   Sessions of all contributions
+     */
+    private void save(Set<Long> affectedClassIds, ExecutionDataStore mergedClasses, SessionInfoStore mergedSessions)
+            throws IOException {
+
+        Files.createDirectories(this.storageFolder);
+        File mergedDataFile = this.storageFolder.resolve(Coverage.MERGED_JACOCO_DATA_FILE).toFile();
+        File packedDataFile = this.storageFolder.resolve(Coverage.MERGED_PACKED_DATA_FILE).toFile();
+
+        if (this.packedClassThreshold > 0 && this.mergedExecutionData.isPacked()) {
+            PackedExecutionData.write(packedDataFile, mergedSessions,
+                    this.mergedExecutionData.getPackedExecutionData(), affectedClassIds, mergedClasses);
+            this.mergedExecutionData = new MergedExecutionData(PackedExecutionData.map(packedDataFile));
+            log.info("Packed merged execution data of " + this.mergedExecutionData.getClassCount() + " classes");
+        } else {
+            ExecutionDataStore mergedStore = new ExecutionDataStore();
+            this.mergedExecutionData.accept(executionData -> {
+                if (!affectedClassIds.contains(executionData.getId())) {
+                    mergedStore.put(executionData);
+                }
+            });
+            mergedClasses.accept(mergedStore);
+
+            if (this.packedClassThreshold > 0 && mergedStore.getContents().size() >= this.packedClassThreshold) {
+                PackedExecutionData.write(packedDataFile, mergedSessions, mergedStore);
+                FileUtils.deleteQuietly(mergedDataFile);
+                this.mergedExecutionData = new MergedExecutionData(PackedExecutionData.map(packedDataFile));
+                log.info("Packed merged execution data of " + mergedStore.getContents().size() + " classes");
+            } else {
+                ExecFileLoader mergedLoader = new ExecFileLoader();
+                mergedSessions.accept(mergedLoader.getSessionInfoStore());
+                mergedStore.accept(mergedLoader.getExecutionDataStore());
+                mergedLoader.save(mergedDataFile, false);
+                FileUtils.deleteQuietly(packedDataFile);
+                this.mergedExecutionData = new MergedExecutionData(mergedStore, mergedSessions);
+            }
+        }
+
+        Properties savedContributions = new Properties();
+        for (Map.Entry<String, Contribution> contribution : this.contributions.entrySet()) {
+            /* A component without a build number is merged again next time anyway */
+            savedContributions.setProperty(contribution.getKey(),
+                    contribution.getValue().getBuildNumber() != null ? contribution.getValue().getBuildNumber() : "");
+        }
+        /* The index is moved in place, so that a failed save never leaves a partial index next to the merged data */
+        Path contributionsIndex = this.storageFolder.resolve(CONTRIBUTIONS_INDEX);
+        Path temporaryIndex = this.storageFolder.resolve(CONTRIBUTIONS_INDEX + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        try {
+            try (OutputStream indexStream = Files.newOutputStream(temporaryIndex)) {
+                savedContributions.store(indexStream, "Component to build number of its execution data");
+            }
+            Files.move(temporaryIndex, contributionsIndex, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryIndex);
+        }
+    }
+
+    private File getContributionFile(String component) {
+
+        return this.storageFolder.resolve(CONTRIBUTIONS_FOLDER)
+                .resolve(component.replaceAll("[^A-Za-z0-9._-]", "_") + "." + Coverage.DATA_FILE_EXTENSION).toFile();
+    }
+
+    private File getSummaryFile(String component) {
+
+        return this.storageFolder.resolve(CONTRIBUTIONS_FOLDER)
+                .resolve(component.replaceAll("[^A-Za-z0-9._-]", "_") + "." + SUMMARY_EXTENSION).toFile();
+    }
+
+    /*
+    Execution data of a single component build. The sorted class ids and the sessions of the execution data are kept
+    in memory, the execution data itself is loaded from the saved data file when it is needed
+     */
+    private static class Contribution {
+
+        private final String buildNumber;
+        private final File dataFile;
+        private final long[] classIds;
+        private final List<SessionInfo> sessions;
+        private ExecFileLoader dataFileLoader;
+
+        Contribution(String buildNumber, File dataFile, ExecFileLoader dataFileLoader) {
+
+            this(buildNumber, dataFile, getClassIds(dataFileLoader.getExecutionDataStore().getContents()),
+                    dataFileLoader.getSessionInfoStore().getInfos());
+            this.dataFileLoader = dataFileLoader;
+        }
+
+        private Contribution(String buildNumber, File dataFile, long[] classIds, List<SessionInfo> sessions) {
+
+            this.buildNumber = buildNumber == null || buildNumber.isEmpty() ? null : buildNumber;
+            this.dataFile = dataFile;
+            this.classIds = classIds;
+            this.sessions = sessions;
+        }
+
+        /**
+         * Create a saved contribution from its summary. A missing summary is created from the data file
+         *
+         * @param buildNumber Build number of the contribution
+         * @param dataFile    Saved data file of the contribution
+         * @param summaryFile Saved summary of the contribution
+         * @return Contribution whose execution data is not loaded
+         * @throws IOException If neither the summary nor the data file can be read
+         */
+        static Contribution load(String buildNumber, File dataFile, File summaryFile) throws IOException {
+
+            if (!summaryFile.exists()) {
+                ExecFileLoader loader = new ExecFileLoader();
+                loader.load(dataFile);
+                Contribution contribution = new Contribution(buildNumber, dataFile, loader);
+                contribution.saveSummary(summaryFile);
+                contribution.release();
+                return contribution;
+            }
+
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(summaryFile.toPath())))) {
+                int sessionCount = input.readInt();
+                List<SessionInfo> sessions = new ArrayList<>(sessionCount);
+                for (int i = 0; i < sessionCount; i++) {
+                    sessions.add(new SessionInfo(input.readUTF(), input.readLong(), input.readLong()));
+                }
+                long[] classIds = new long[input.readInt()];
+                for (int i = 0; i < classIds.length; i++) {
+                    classIds[i] = input.readLong();
+                }
+                return new Contribution(buildNumber, dataFile, classIds, sessions);
+            }
+        }
+
+        /**
+         * Save the class ids and the sessions of the contribution
+         *
+         * @param summaryFile Summary file to be written
+         * @throws IOException If the summary cannot be written
+         */
+        void saveSummary(File summaryFile) throws IOException {
+
+            Files.createDirectories(summaryFile.getParentFile().toPath());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(summaryFile)))) {
+                output.writeInt(this.sessions.size());
+                for (SessionInfo session : this.sessions) {
+                    output.writeUTF(session.getId());
+                    output.writeLong(session.getStartTimeStamp());
+                    output.writeLong(session.getDumpTimeStamp());
+                }
+                output.writeInt(this.classIds.length);
+                for (long classId : this.classIds) {
+                    output.writeLong(classId);
+                }
+            }
+        }
+
+        String getBuildNumber() {
+
+            return this.buildNumber;
+        }
+
+        List<SessionInfo> getSessions() {
+
+            return this.sessions;
+        }
+
+        void addClassIds(Set<Long> classIds) {
+
+            for (long classId : this.classIds) {
+                classIds.add(classId);
+            }
+        }
+
+        /**
+         * Check whether the contribution has execution data of any of the given classes
+         */
+        boolean containsAny(Set<Long> classIds) {
+
+            if (classIds.size() < this.classIds.length) {
+                for (long classId : classIds) {
+                    if (Arrays.binarySearch(this.classIds, classId) >= 0) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            for (long classId : this.classIds) {
+                if (classIds.contains(classId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        ExecutionDataStore getExecutionDataStore() throws IOException {
+
+            return getDataFileLoader().getExecutionDataStore();
+        }
+
+        /**
+         * Drop the execution data from memory until it is needed again
+         */
+        void release() {
+
+            this.dataFileLoader = null;
+        }
+
+        private ExecFileLoader getDataFileLoader() throws IOException {
+
+            if (this.dataFileLoader == null) {
+                ExecFileLoader loader = new ExecFileLoader();
+                loader.load(this.dataFile);
+                this.dataFileLoader = loader;
+            }
+            return this.dataFileLoader;
+        }
+
+        private static long[] getClassIds(Collection<ExecutionData> executionData) {
+
+            long[] classIds = new long[executionData.size()];
+            int i = 0;
+            for (ExecutionData classData : executionData) {
+                classIds[i++] = classData.getId();
+            }
+            Arrays.sort(classIds);
+            return classIds;
+        }
+    }
+}
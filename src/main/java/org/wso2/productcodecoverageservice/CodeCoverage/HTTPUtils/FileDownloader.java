@@ -19,51 +19,311 @@
 package org.wso2.productcodecoverageservice.codecoverage.HTTPutils;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.codecoverage.ziputils.Unzipper;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
 
 public class FileDownloader {
 
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String GZIP = "gzip";
+
     /**
-     * Download a file from a URL with basic authentication
+     * Download a file from a URL with basic authentication. A download interrupted by an I/O error is retried from
+     * where it stopped with a range request, as long as the server still serves the same version
      *
+     * @param httpClient        Pooled HTTP client
      * @param fileURL           Downloading file
      * @param fileSavePath      Path of the saved file
      * @param encodedAuthString Base 64 encoded authentication string
-     * @throws IOException If the connection with url failed or failure to save the downloaded file
+     * @throws IOException If the connection with url failed or failure to save the downloaded file. The partial
+     *                     download is deleted in that case
      */
-    public static void downloadWithBasicAuth(String fileURL, File fileSavePath, String encodedAuthString) throws IOException {
+    public static void downloadWithBasicAuth(JenkinsHttpClient httpClient, String fileURL, File fileSavePath,
+                                             String encodedAuthString) throws IOException {
 
-        URL connectionUrl = new URL(fileURL);
-        HttpURLConnection httpConnection = (HttpURLConnection) connectionUrl.openConnection();
+        File partialFile = new File(fileSavePath.getPath() + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        try {
+            httpClient.executeWithRetries(fileURL,
+                    () -> download(httpClient, fileURL, fileSavePath, null, encodedAuthString));
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(partialFile);
+            FileUtils.deleteQuietly(new File(partialFile.getPath() + Jenkins.DOWNLOAD_VALIDATORS_SUFFIX));
+            throw e;
+        }
+    }
 
-        httpConnection.setRequestMethod("GET");
-        httpConnection.setRequestProperty("Authorization", "Basic " + encodedAuthString);
+    /**
+     * Download a zip file from a URL with basic authentication and extract it while downloading, without saving the
+     * zip file. An interrupted download is extracted again from the start
+     *
+     * @param httpClient        Pooled HTTP client
+     * @param fileURL           Downloading zip file
+     * @param unzipFolder       Folder to extract the zip entries to
+     * @param encodedAuthString Base 64 encoded authentication string
+     * @throws IOException If the connection with url failed or failure to extract the downloaded content. The
+     *                     partially extracted folder is deleted in that case
+     */
+    public static void downloadAndUnzipWithBasicAuth(JenkinsHttpClient httpClient, String fileURL, File unzipFolder,
+                                                     String encodedAuthString) throws IOException {
 
-        int responseCode = httpConnection.getResponseCode();
+        httpClient.executeWithRetries(fileURL, () -> {
+            try (CloseableHttpResponse response = openWithBasicAuth(httpClient, fileURL, encodedAuthString);
+                 InputStream inputStream = new BufferedInputStream(response.getEntity().getContent())) {
+                FileUtils.forceMkdir(unzipFolder);
+                Unzipper.unzipStream(inputStream, unzipFolder);
+                /* Drain what is left after the zip entries, so that the connection can be reused */
+                EntityUtils.consume(response.getEntity());
+                return null;
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(unzipFolder);
+                throw e;
+            }
+        });
+    }
 
-        if (responseCode == 200) {
-            InputStream inputStream = httpConnection.getInputStream();
+    /**
+     * Download a zip file from a URL with basic authentication, saving it while the entries with the given prefix are
+     * extracted. The zip file is read once, so the extracted entries are available as soon as the download completes.
+     * An interrupted download is saved and extracted again from the start
+     *
+     * @param httpClient        Pooled HTTP client
+     * @param fileURL           Downloading zip file
+     * @param fileSavePath      Path of the saved zip file
+     * @param unzipFolder       Folder to extract the zip entries to
+     * @param entryPrefix       Prefix of the zip entry names to be extracted
+     * @param encodedAuthString Base 64 encoded authentication string
+     * @throws IOException If the connection with url failed or failure to save or extract the downloaded content.
+     *                     The partially saved file and extracted folder are deleted in that case
+     */
+    public static void downloadAndUnzipEntriesWithBasicAuth(JenkinsHttpClient httpClient, String fileURL,
+                                                            File fileSavePath, File unzipFolder, String entryPrefix,
+                                                            String encodedAuthString) throws IOException {
 
-            // opens an output stream to save into file
-            FileUtils.forceMkdirParent(fileSavePath);
+        FileUtils.forceMkdirParent(fileSavePath);
+        httpClient.executeWithRetries(fileURL, () -> {
+            try (CloseableHttpResponse response = openWithBasicAuth(httpClient, fileURL, encodedAuthString);
+                 OutputStream outputStream = new FileOutputStream(fileSavePath);
+                 InputStream inputStream = new TeeInputStream(
+                         new BufferedInputStream(response.getEntity().getContent()), outputStream)) {
+                FileUtils.forceMkdir(unzipFolder);
+                Unzipper.unzipStream(inputStream, unzipFolder, entryPrefix);
+                /* Read the central directory after the entries as well, so that the saved zip file is complete */
+                IOUtils.copy(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+                return null;
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(fileSavePath);
+                FileUtils.deleteQuietly(unzipFolder);
+                throw e;
+            }
+        });
+    }
 
-            try (FileOutputStream outputStream = new FileOutputStream(fileSavePath)) {
+    /**
+     * Download a file from a URL with basic authentication, transferring only what is missing locally. If the file
+     * was downloaded before, the server is asked for changes with the stored ETag and Last-Modified validators and a
+     * 304 response keeps the local copy. An interrupted download is kept next to the file and resumed with a range
+     * request, both when retried and by later calls, as long as the server still serves the same version. Responses
+     * are accepted gzip encoded when not resuming
+     *
+     * @param httpClient        Pooled HTTP client
+     * @param fileURL           Downloading file
+     * @param fileSavePath      Path of the saved file
+     * @param encodedAuthString Base 64 encoded authentication string
+     * @return True if the file was downloaded, false if the local copy is up to date
+     * @throws IOException If the connection with url failed or failure to save the downloaded file
+     */
+    public static boolean downloadConditionallyWithBasicAuth(JenkinsHttpClient httpClient, String fileURL,
+                                                             File fileSavePath, String encodedAuthString) throws IOException {
+
+        File validatorsFile = new File(fileSavePath.getPath() + Jenkins.DOWNLOAD_VALIDATORS_SUFFIX);
+        return httpClient.executeWithRetries(fileURL,
+                () -> download(httpClient, fileURL, fileSavePath, validatorsFile, encodedAuthString));
+    }
+
+    /**
+     * Run one attempt of a download through the partial download file, resuming it if a part is left from an earlier
+     * attempt
+     *
+     * @param validatorsFile Validators of the saved file to make the download conditional, or null to download
+     *                       unconditionally without keeping the validators
+     * @return True if the file was downloaded, false if the local copy is up to date
+     */
+    private static boolean download(JenkinsHttpClient httpClient, String fileURL, File fileSavePath,
+                                    File validatorsFile, String encodedAuthString) throws IOException {
+
+        File partialFile = new File(fileSavePath.getPath() + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        File partialValidatorsFile = new File(partialFile.getPath() + Jenkins.DOWNLOAD_VALIDATORS_SUFFIX);
+
+        HttpGet request = new HttpGet(fileURL);
+        request.setHeader("Authorization", "Basic " + encodedAuthString);
 
-                int bytesRead;
-                byte[] buffer = new byte[4096];
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
+        if (validatorsFile != null && fileSavePath.exists()) {
+            Properties validators = loadValidators(validatorsFile);
+            if (validators.getProperty(ETAG) != null) {
+                request.setHeader("If-None-Match", validators.getProperty(ETAG));
             }
-            inputStream.close();
+            if (validators.getProperty(LAST_MODIFIED) != null) {
+                request.setHeader("If-Modified-Since", validators.getProperty(LAST_MODIFIED));
+            }
+        }
+
+        Properties partialValidators = partialFile.exists() ? loadValidators(partialValidatorsFile) : new Properties();
+        String resumeValidator = partialValidators.getProperty(ETAG, partialValidators.getProperty(LAST_MODIFIED));
+        if (partialFile.length() > 0 && resumeValidator != null) {
+            request.setHeader("Range", "bytes=" + partialFile.length() + "-");
+            request.setHeader("If-Range", resumeValidator);
         } else {
-            throw new IOException("File download failed");
+            /* Byte ranges would refer to the encoded content, so compression is only used for full downloads */
+            request.setHeader("Accept-Encoding", GZIP);
+        }
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+
+            int responseCode = response.getStatusLine().getStatusCode();
+
+            if (responseCode == HttpStatus.SC_NOT_MODIFIED) {
+                EntityUtils.consume(response.getEntity());
+                return false;
+            } else if (responseCode == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                /* The partial download does not fit the file on the server anymore, start over */
+                EntityUtils.consume(response.getEntity());
+                FileUtils.deleteQuietly(partialFile);
+                FileUtils.deleteQuietly(partialValidatorsFile);
+            } else if (responseCode != HttpStatus.SC_OK && responseCode != HttpStatus.SC_PARTIAL_CONTENT) {
+                EntityUtils.consume(response.getEntity());
+                throw new HttpResponseException(responseCode, "File download failed");
+            } else {
+                saveResponse(response, fileSavePath, validatorsFile, partialFile, partialValidatorsFile);
+                return true;
+            }
+        }
+        return download(httpClient, fileURL, fileSavePath, validatorsFile, encodedAuthString);
+    }
+
+    /**
+     * Write a full or partial response to the partial download file and move it in place once complete
+     */
+    private static void saveResponse(CloseableHttpResponse response, File fileSavePath, File validatorsFile,
+                                     File partialFile, File partialValidatorsFile) throws IOException {
+
+        boolean resumed = response.getStatusLine().getStatusCode() == HttpStatus.SC_PARTIAL_CONTENT;
+        Header contentEncoding = response.getEntity().getContentEncoding();
+        boolean compressed = contentEncoding != null && GZIP.equalsIgnoreCase(contentEncoding.getValue());
+
+        Properties responseValidators = new Properties();
+        if (response.getFirstHeader(ETAG) != null) {
+            responseValidators.setProperty(ETAG, response.getFirstHeader(ETAG).getValue());
+        }
+        if (response.getFirstHeader(LAST_MODIFIED) != null) {
+            responseValidators.setProperty(LAST_MODIFIED, response.getFirstHeader(LAST_MODIFIED).getValue());
+        }
+
+        FileUtils.forceMkdirParent(fileSavePath);
+        if (!resumed) {
+            FileUtils.deleteQuietly(partialValidatorsFile);
+            if (!compressed) {
+                /* Remember the version of the partial download, so that it can be resumed if interrupted */
+                saveValidators(partialValidatorsFile, responseValidators);
+            }
+        }
+
+        try (InputStream inputStream = compressed
+                ? new GZIPInputStream(response.getEntity().getContent())
+                : response.getEntity().getContent();
+             FileOutputStream outputStream = new FileOutputStream(partialFile, resumed)) {
+
+            int bytesRead;
+            byte[] buffer = new byte[4096];
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        }
+
+        Files.move(partialFile.toPath(), fileSavePath.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (validatorsFile != null) {
+            saveValidators(validatorsFile, responseValidators);
+        }
+        FileUtils.deleteQuietly(partialValidatorsFile);
+    }
+
+    private static Properties loadValidators(File validatorsFile) throws IOException {
+
+        Properties validators = new Properties();
+        if (validatorsFile.exists()) {
+            try (InputStream validatorsStream = new FileInputStream(validatorsFile)) {
+                validators.load(validatorsStream);
+            }
+        }
+        return validators;
+    }
+
+    private static void saveValidators(File validatorsFile, Properties validators) throws IOException {
+
+        try (OutputStream validatorsStream = new FileOutputStream(validatorsFile)) {
+            validators.store(validatorsStream, null);
+        }
+    }
+
+    /**
+     * Read a small text resource from a URL with basic authentication
+     *
+     * @param httpClient        Pooled HTTP client
+     * @param fileURL           Text resource to be read
+     * @param encodedAuthString Base 64 encoded authentication string
+     * @return Content of the resource
+     * @throws IOException If the connection with url failed or the resource cannot be read
+     */
+    public static String readWithBasicAuth(JenkinsHttpClient httpClient, String fileURL, String encodedAuthString)
+            throws IOException {
+
+        return httpClient.executeWithRetries(fileURL, () -> {
+            try (CloseableHttpResponse response = openWithBasicAuth(httpClient, fileURL, encodedAuthString)) {
+                return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            }
+        });
+    }
+
+    /**
+     * Send a GET request with basic authentication and make sure the file is available. A failed status is
+     * reported with a HttpResponseException, so that only 5xx responses are retried
+     */
+    private static CloseableHttpResponse openWithBasicAuth(JenkinsHttpClient httpClient, String fileURL,
+                                                           String encodedAuthString) throws IOException {
+
+        HttpGet request = new HttpGet(fileURL);
+        request.setHeader("Authorization", "Basic " + encodedAuthString);
+
+        CloseableHttpResponse response = httpClient.execute(request);
+
+        int responseCode = response.getStatusLine().getStatusCode();
+        if (responseCode != HttpStatus.SC_OK) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            response.close();
+            throw new HttpResponseException(responseCode, "File download failed");
         }
+        return response;
     }
 }
@@ -0,0 +1,323 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.HTTPutils;
+
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Http;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Shared HTTP client for Jenkins with a keep-alive connection pool. Exchanges failing with an I/O error or a 5xx response
+are retried a bounded number of times with a jittered exponential backoff. A retry covers the whole exchange, including
+reading the response body, so that a download interrupted half way is retried as well. The client also holds the
+download permits of each Jenkins host, shared by every Jenkins server model using it
+ */
+@Component
+public class JenkinsHttpClient {
+
+    private static final Logger log = Logger.getLogger(JenkinsHttpClient.class);
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final int downloadParallelism;
+    private final ConcurrentHashMap<String, Semaphore> hostDownloadPermits = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /*
+    Abort handles of the threads running abortable tasks. Requests executed by such a thread are registered with its
+    handle, so that they can be aborted from another thread
+     */
+    private final ConcurrentHashMap<Thread, AbortHandle> abortHandles = new ConcurrentHashMap<>();
+
+    public JenkinsHttpClient() throws IOException {
+
+        this(loadApplicationProperties());
+    }
+
+    /**
+     * Create a client configured by the given application properties
+     *
+     * @param application Application properties
+     */
+    public JenkinsHttpClient(Properties application) {
+
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(Integer.parseInt(application.getProperty(Http.MAX_CONNECTIONS,
+                Integer.toString(Http.DEFAULT_MAX_CONNECTIONS)).trim()));
+        this.connectionManager.setDefaultMaxPerRoute(Integer.parseInt(application.getProperty(Http.MAX_CONNECTIONS_PER_HOST,
+                Integer.toString(Http.DEFAULT_MAX_CONNECTIONS_PER_HOST)).trim()));
+
+        int connectTimeout = Integer.parseInt(application.getProperty(Http.CONNECT_TIMEOUT_MILLIS,
+                Integer.toString(Http.DEFAULT_CONNECT_TIMEOUT_MILLIS)).trim());
+        int readTimeout = Integer.parseInt(application.getProperty(Http.READ_TIMEOUT_MILLIS,
+                Integer.toString(Http.DEFAULT_READ_TIMEOUT_MILLIS)).trim());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build();
+
+        this.maxRetries = Integer.parseInt(application.getProperty(Http.MAX_RETRIES,
+                Integer.toString(Http.DEFAULT_MAX_RETRIES)).trim());
+        this.retryBackoffMillis = Long.parseLong(application.getProperty(Http.RETRY_BACKOFF_MILLIS,
+                Long.toString(Http.DEFAULT_RETRY_BACKOFF_MILLIS)).trim());
+        this.downloadParallelism = Integer.parseInt(application.getProperty(Jenkins.DOWNLOAD_PARALLELISM,
+                Integer.toString(Jenkins.DEFAULT_DOWNLOAD_PARALLELISM)).trim());
+
+        /*
+        Content encoding and retries are handled by the callers and by this class, so that range requests and
+        retry limits stay under our control
+         */
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(this.connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .disableContentCompression()
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(Http.IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Execute a request once on a pooled connection. The caller must close the response, which returns the connection
+     * to the pool once the response content has been consumed. Run the exchange with {@link #executeWithRetries} to
+     * have it retried
+     *
+     * @param request Request to be executed
+     * @return Response with any status
+     * @throws IOException If the request fails or was aborted
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+
+        AbortHandle abortHandle = this.abortHandles.get(Thread.currentThread());
+        if (abortHandle != null) {
+            abortHandle.setRequest(request);
+        }
+        return this.httpClient.execute(request);
+    }
+
+    /**
+     * Run an exchange with Jenkins, running it again if it fails with an I/O error or with a
+     * {@link HttpResponseException} of a 5xx status. The exchange is not retried once its request was aborted or the
+     * thread was interrupted
+     *
+     * @param requestURL URL of the exchange, for logging
+     * @param exchange   Exchange sending the request and reading the whole response
+     * @return Result of the exchange
+     * @throws IOException If the exchange still fails after all retries
+     */
+    public <T> T executeWithRetries(String requestURL, Exchange<T> exchange) throws IOException {
+
+        this.requestCount.incrementAndGet();
+
+        int attempt = 0;
+        while (true) {
+            try {
+                return exchange.run();
+            } catch (IOException e) {
+                if (attempt >= this.maxRetries || !isRetryable(e)) {
+                    this.failureCount.incrementAndGet();
+                    throw e;
+                }
+                log.warn("Request to " + requestURL + " failed (" + e.getMessage() + "). Retrying");
+                backOff(++attempt);
+            }
+        }
+    }
+
+    /**
+     * Check whether a failed exchange of the calling thread can be run again
+     */
+    private boolean isRetryable(IOException e) {
+
+        if (e instanceof HttpResponseException && ((HttpResponseException) e).getStatusCode() < 500) {
+            return false;
+        }
+        AbortHandle abortHandle = this.abortHandles.get(Thread.currentThread());
+        return (abortHandle == null || !abortHandle.isAborted()) && !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Run a task whose requests can be aborted through the given handle. Aborting closes the connection of the
+     * request in flight, which also stops a response body being read, and makes later requests of the task fail
+     *
+     * @param abortHandle Handle to abort the requests of the task with
+     * @param task        Task executing requests on the calling thread
+     * @return Result of the task
+     * @throws Exception If the task fails, e.g. because its request was aborted
+     */
+    public <T> T callAbortable(AbortHandle abortHandle, Callable<T> task) throws Exception {
+
+        Thread currentThread = Thread.currentThread();
+        this.abortHandles.put(currentThread, abortHandle);
+        try {
+            return task.call();
+        } finally {
+            this.abortHandles.remove(currentThread);
+        }
+    }
+
+    /**
+     * Wait before the given retry attempt, for a random time up to the exponentially growing backoff
+     */
+    private void backOff(int attempt) throws InterruptedIOException {
+
+        this.retryCount.incrementAndGet();
+        long maxBackoff = this.retryBackoffMillis << Math.min(attempt - 1, 16);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry the request");
+        }
+    }
+
+    /**
+     * Get the download permits of a Jenkins host, limiting the concurrent downloads from the host over all Jenkins
+     * server models
+     *
+     * @param host Host name of the Jenkins server
+     * @return Semaphore with as many permits as the configured download parallelism
+     */
+    public Semaphore getHostDownloadPermits(String host) {
+
+        return this.hostDownloadPermits.computeIfAbsent(host, key -> new Semaphore(this.downloadParallelism));
+    }
+
+    /**
+     * Get the number of concurrent downloads allowed from a Jenkins host
+     *
+     * @return Configured download parallelism
+     */
+    public int getDownloadParallelism() {
+
+        return this.downloadParallelism;
+    }
+
+    /**
+     * Get the usage of the connection pool
+     *
+     * @return Leased, available, pending and maximum connection counts over all hosts
+     */
+    public PoolStats getPoolStatistics() {
+
+        return this.connectionManager.getTotalStats();
+    }
+
+    public long getRequestCount() {
+
+        return this.requestCount.get();
+    }
+
+    public long getRetryCount() {
+
+        return this.retryCount.get();
+    }
+
+    public long getFailureCount() {
+
+        return this.failureCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+
+        this.httpClient.close();
+    }
+
+    private static Properties loadApplicationProperties() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        return application;
+    }
+
+    /*
+    Request and response exchange which can be run again from the start
+     */
+    public interface Exchange<T> {
+
+        T run() throws IOException;
+    }
+
+    /*
+    Aborts the requests of an abortable task from another thread, e.g. when the task exceeds its timeout
+     */
+    public static class AbortHandle {
+
+        private HttpUriRequest request;
+        private boolean aborted;
+
+        private synchronized void setRequest(HttpUriRequest request) {
+
+            this.request = request;
+            if (this.aborted) {
+                request.abort();
+            }
+        }
+
+        private synchronized boolean isAborted() {
+
+            return this.aborted;
+        }
+
+        /**
+         * Abort the request in flight and every later request of the task
+         */
+        public synchronized void abort() {
+
+            this.aborted = true;
+            if (this.request != null) {
+                this.request.abort();
+            }
+        }
+    }
+}
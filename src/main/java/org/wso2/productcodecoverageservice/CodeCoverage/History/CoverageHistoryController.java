@@ -0,0 +1,64 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.history;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.wso2.productcodecoverageservice.Constants.History;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageHistoryDelta;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageHistoryPoint;
+
+/*
+Trend queries of the recorded coverage history. Package names are accepted with '.' or '/' separators
+ */
+@RestController
+public class CoverageHistoryController {
+
+    private final CoverageHistoryStore coverageHistoryStore;
+
+    public CoverageHistoryController(CoverageHistoryStore coverageHistoryStore) {
+
+        this.coverageHistoryStore = coverageHistoryStore;
+    }
+
+    @RequestMapping(value = {History.GET_COVERAGE_HISTORY_REQUEST}, method = {RequestMethod.GET})
+    public CoverageHistoryPoint[] getHistory(@PathVariable(History.PRODUCT_ID) String productId,
+                                             @RequestParam(value = History.COMPONENT, required = false) String component,
+                                             @RequestParam(value = History.PACKAGE, required = false) String packageName,
+                                             @RequestParam(value = History.FROM, required = false) Long from,
+                                             @RequestParam(value = History.TO, required = false) Long to) {
+
+        return this.coverageHistoryStore.getHistory(productId, component,
+                packageName != null ? packageName.replace('.', '/') : null,
+                from != null ? from : Long.MIN_VALUE, to != null ? to : Long.MAX_VALUE);
+    }
+
+    @RequestMapping(value = {History.GET_COVERAGE_DELTA_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<CoverageHistoryDelta> getDelta(@PathVariable(History.PRODUCT_ID) String productId,
+                                                         @RequestParam(value = History.COMPONENT, required = false) String component,
+                                                         @RequestParam(History.SINCE) String buildNumber) {
+
+        CoverageHistoryDelta delta = this.coverageHistoryStore.getDelta(productId, component, buildNumber);
+        return delta != null ? ResponseEntity.ok(delta) : ResponseEntity.notFound().build();
+    }
+}
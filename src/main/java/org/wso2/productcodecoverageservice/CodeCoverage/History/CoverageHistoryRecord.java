@@ -0,0 +1,176 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.history;
+
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+Counters of a product area, its components and their packages as recorded by one coverage run
+ */
+public class CoverageHistoryRecord {
+
+    private final long timestamp;
+    private final SortedMap<String, String> buildNumbers;
+    private final SortedMap<String, ComponentCoverage> components;
+    private final SortedMap<String, SortedMap<String, ComponentCoverage>> packages;
+    private final ComponentCoverage overallCoverage;
+
+    CoverageHistoryRecord(long timestamp, SortedMap<String, String> buildNumbers,
+                          SortedMap<String, ComponentCoverage> components,
+                          SortedMap<String, SortedMap<String, ComponentCoverage>> packages) {
+
+        this.timestamp = timestamp;
+        this.buildNumbers = Collections.unmodifiableSortedMap(buildNumbers);
+        this.components = Collections.unmodifiableSortedMap(components);
+        this.packages = Collections.unmodifiableSortedMap(packages);
+        this.overallCoverage = ComponentCoverage.sum(components.values());
+    }
+
+    /**
+     * Write the record in the binary layout of the history file
+     *
+     * @param output Output to write the record to
+     * @throws IOException If the record cannot be written
+     */
+    void write(DataOutput output) throws IOException {
+
+        output.writeLong(this.timestamp);
+        output.writeInt(this.buildNumbers.size());
+        for (Map.Entry<String, String> buildNumber : this.buildNumbers.entrySet()) {
+            output.writeUTF(buildNumber.getKey());
+            output.writeUTF(buildNumber.getValue());
+        }
+        output.writeInt(this.components.size());
+        for (Map.Entry<String, ComponentCoverage> component : this.components.entrySet()) {
+            output.writeUTF(component.getKey());
+            component.getValue().write(output);
+            SortedMap<String, ComponentCoverage> componentPackages = getPackages(component.getKey());
+            output.writeInt(componentPackages.size());
+            for (Map.Entry<String, ComponentCoverage> componentPackage : componentPackages.entrySet()) {
+                output.writeUTF(componentPackage.getKey());
+                componentPackage.getValue().write(output);
+            }
+        }
+    }
+
+    /**
+     * Read a record written by write
+     *
+     * @param input Input holding the record
+     * @return The read record
+     * @throws IOException If the record cannot be read
+     */
+    static CoverageHistoryRecord read(DataInput input) throws IOException {
+
+        long timestamp = input.readLong();
+        TreeMap<String, String> buildNumbers = new TreeMap<>();
+        int buildCount = input.readInt();
+        for (int i = 0; i < buildCount; i++) {
+            buildNumbers.put(input.readUTF(), input.readUTF());
+        }
+        TreeMap<String, ComponentCoverage> components = new TreeMap<>();
+        TreeMap<String, SortedMap<String, ComponentCoverage>> packages = new TreeMap<>();
+        int componentCount = input.readInt();
+        for (int i = 0; i < componentCount; i++) {
+            String component = input.readUTF();
+            components.put(component, ComponentCoverage.read(input));
+            int packageCount = input.readInt();
+            if (packageCount > 0) {
+                TreeMap<String, ComponentCoverage> componentPackages = new TreeMap<>();
+                for (int j = 0; j < packageCount; j++) {
+                    componentPackages.put(input.readUTF(), ComponentCoverage.read(input));
+                }
+                packages.put(component, Collections.unmodifiableSortedMap(componentPackages));
+            }
+        }
+        return new CoverageHistoryRecord(timestamp, buildNumbers, components, packages);
+    }
+
+    /**
+     * Get a copy of this record without package level counters, used when compacting old history
+     *
+     * @return Record with area and component counters only
+     */
+    CoverageHistoryRecord withoutPackages() {
+
+        return new CoverageHistoryRecord(this.timestamp, new TreeMap<>(this.buildNumbers),
+                new TreeMap<>(this.components), new TreeMap<>());
+    }
+
+    /**
+     * Get the counters of the product area, a component or a package
+     *
+     * @param component   Component, or null for the whole product area
+     * @param packageName VM name of a package, or null for the whole component. Without a component, the package is
+     *                    totaled over all components
+     * @return Counters of the requested scope, or null if the scope was not recorded
+     */
+    public ComponentCoverage getCoverage(String component, String packageName) {
+
+        if (packageName == null) {
+            return component == null ? this.overallCoverage : this.components.get(component);
+        }
+        if (component != null) {
+            return getPackages(component).get(packageName);
+        }
+        ArrayList<ComponentCoverage> packageCoverages = new ArrayList<>();
+        for (SortedMap<String, ComponentCoverage> componentPackages : this.packages.values()) {
+            ComponentCoverage packageCoverage = componentPackages.get(packageName);
+            if (packageCoverage != null) {
+                packageCoverages.add(packageCoverage);
+            }
+        }
+        return packageCoverages.isEmpty() ? null : ComponentCoverage.sum(packageCoverages);
+    }
+
+    public long getTimestamp() {
+
+        return this.timestamp;
+    }
+
+    public SortedMap<String, String> getBuildNumbers() {
+
+        return this.buildNumbers;
+    }
+
+    public ComponentCoverage getOverallCoverage() {
+
+        return this.overallCoverage;
+    }
+
+    public SortedMap<String, ComponentCoverage> getComponents() {
+
+        return this.components;
+    }
+
+    public SortedMap<String, ComponentCoverage> getPackages(String component) {
+
+        SortedMap<String, ComponentCoverage> componentPackages = this.packages.get(component);
+        return componentPackages != null ? componentPackages : Collections.<String, ComponentCoverage>emptySortedMap();
+    }
+}
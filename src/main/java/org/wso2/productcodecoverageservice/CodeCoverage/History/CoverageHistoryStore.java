@@ -0,0 +1,218 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.history;
+
+import org.apache.log4j.Logger;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.History;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageChange;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageHistoryDelta;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageHistoryPoint;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+File based coverage history of product areas. Every coverage run appends the counters of the product area, its
+components and their packages, keyed by the Jenkins build numbers the run was calculated from
+ */
+@Component
+public class CoverageHistoryStore {
+
+    private static final Logger log = Logger.getLogger(CoverageHistoryStore.class);
+    private final Path storageFolder;
+    private final long packageRetentionMillis;
+    private final ConcurrentHashMap<String, ProductAreaHistory> productAreas = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactionExecutor;
+
+    public CoverageHistoryStore() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        long compactionInterval = Long.parseLong(application.getProperty(History.COMPACTION_INTERVAL_MINUTES,
+                Long.toString(History.DEFAULT_COMPACTION_INTERVAL_MINUTES)).trim());
+        this.packageRetentionMillis = TimeUnit.DAYS.toMillis(Long.parseLong(application.getProperty(
+                History.PACKAGE_RETENTION_DAYS, Long.toString(History.DEFAULT_PACKAGE_RETENTION_DAYS)).trim()));
+
+        this.storageFolder = Paths.get(home.getDir() + File.separator + Jenkins.ARTIFACT_CACHE_DIRECTORY
+                + File.separator + History.HISTORY_DIRECTORY);
+
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coverage-history-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compactionExecutor.scheduleWithFixedDelay(this::compact, compactionInterval, compactionInterval,
+                TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        this.compactionExecutor.shutdownNow();
+    }
+
+    /**
+     * Record the counters of a coverage run of a product area
+     *
+     * @param productId    ID of the product area
+     * @param buildNumbers Build number of each component, for the components whose build number is known
+     * @param bundles      Coverage bundle of each analyzed component
+     * @throws IOException If the record cannot be appended to the history file
+     */
+    public void record(String productId, Map<String, String> buildNumbers, Map<String, IBundleCoverage> bundles)
+            throws IOException {
+
+        TreeMap<String, ComponentCoverage> components = new TreeMap<>();
+        TreeMap<String, SortedMap<String, ComponentCoverage>> packages = new TreeMap<>();
+        for (Map.Entry<String, IBundleCoverage> bundle : bundles.entrySet()) {
+            components.put(bundle.getKey(), ComponentCoverage.fromCoverageNode(bundle.getValue()));
+            TreeMap<String, ComponentCoverage> componentPackages = new TreeMap<>();
+            for (IPackageCoverage packageCoverage : bundle.getValue().getPackages()) {
+                componentPackages.put(packageCoverage.getName(), ComponentCoverage.fromCoverageNode(packageCoverage));
+            }
+            packages.put(bundle.getKey(), componentPackages);
+        }
+        TreeMap<String, String> recordedBuildNumbers = new TreeMap<>(buildNumbers);
+        recordedBuildNumbers.keySet().retainAll(components.keySet());
+        getProductArea(productId).append(new CoverageHistoryRecord(System.currentTimeMillis(), recordedBuildNumbers,
+                components, packages));
+    }
+
+    /**
+     * Get the recorded coverage of a product area, component or package within a time range
+     *
+     * @param productId   ID of the product area
+     * @param component   Component, or null for the whole product area
+     * @param packageName VM name of a package, or null for the whole component or product area
+     * @param from        Earliest timestamp in milliseconds, inclusive
+     * @param to          Latest timestamp in milliseconds, inclusive
+     * @return Recorded coverage in the order of the runs, skipping runs which did not record the requested scope
+     */
+    public CoverageHistoryPoint[] getHistory(String productId, String component, String packageName, long from,
+                                             long to) {
+
+        ArrayList<CoverageHistoryPoint> points = new ArrayList<>();
+        for (CoverageHistoryRecord record : getProductArea(productId).getRecords()) {
+            if (record.getTimestamp() < from || record.getTimestamp() > to) {
+                continue;
+            }
+            ComponentCoverage coverage = record.getCoverage(component, packageName);
+            if (coverage != null) {
+                points.add(new CoverageHistoryPoint(record.getTimestamp(), record.getBuildNumbers(), coverage));
+            }
+        }
+        return points.toArray(new CoverageHistoryPoint[0]);
+    }
+
+    /**
+     * Get what changed in a product area since the first run which used a given build
+     *
+     * @param productId   ID of the product area
+     * @param component   Component the build number belongs to, or null to match the build number of any component
+     * @param buildNumber Build number of the earlier run
+     * @return Changes of the product area, the components and the packages which differ between the first run with the
+     * build and the latest run, or null if no run used the build
+     */
+    public CoverageHistoryDelta getDelta(String productId, String component, String buildNumber) {
+
+        List<CoverageHistoryRecord> records = getProductArea(productId).getRecords();
+        CoverageHistoryRecord fromRecord = null;
+        for (CoverageHistoryRecord record : records) {
+            if (component != null ? buildNumber.equals(record.getBuildNumbers().get(component))
+                    : record.getBuildNumbers().containsValue(buildNumber)) {
+                fromRecord = record;
+                break;
+            }
+        }
+        if (fromRecord == null) {
+            return null;
+        }
+        CoverageHistoryRecord toRecord = records.get(records.size() - 1);
+
+        ArrayList<CoverageChange> changes = new ArrayList<>();
+        changes.add(new CoverageChange(null, null, fromRecord.getOverallCoverage(), toRecord.getOverallCoverage()));
+        TreeSet<String> components = new TreeSet<>(fromRecord.getComponents().keySet());
+        components.addAll(toRecord.getComponents().keySet());
+        for (String eachComponent : components) {
+            ComponentCoverage before = fromRecord.getComponents().get(eachComponent);
+            ComponentCoverage after = toRecord.getComponents().get(eachComponent);
+            if (before != null && before.hasSameCounts(after)) {
+                continue;
+            }
+            changes.add(new CoverageChange(eachComponent, null, before, after));
+
+            TreeSet<String> packageNames = new TreeSet<>(fromRecord.getPackages(eachComponent).keySet());
+            packageNames.addAll(toRecord.getPackages(eachComponent).keySet());
+            for (String packageName : packageNames) {
+                ComponentCoverage packageBefore = fromRecord.getPackages(eachComponent).get(packageName);
+                ComponentCoverage packageAfter = toRecord.getPackages(eachComponent).get(packageName);
+                if (packageBefore == null || !packageBefore.hasSameCounts(packageAfter)) {
+                    changes.add(new CoverageChange(eachComponent, packageName, packageBefore, packageAfter));
+                }
+            }
+        }
+        return new CoverageHistoryDelta(productId, fromRecord.getTimestamp(), toRecord.getTimestamp(),
+                fromRecord.getBuildNumbers(), toRecord.getBuildNumbers(), changes.toArray(new CoverageChange[0]));
+    }
+
+    private ProductAreaHistory getProductArea(String productId) {
+
+        return this.productAreas.computeIfAbsent(productId, key -> new ProductAreaHistory(this.storageFolder.resolve(
+                String.valueOf(key).replaceAll("[^A-Za-z0-9._-]", "_"))));
+    }
+
+    private void compact() {
+
+        /* Only product areas used since the service started are compacted, others have not grown since */
+        for (Map.Entry<String, ProductAreaHistory> productArea : this.productAreas.entrySet()) {
+            try {
+                productArea.getValue().compact(this.packageRetentionMillis);
+            } catch (IOException e) {
+                log.warn("Could not compact the coverage history of " + productArea.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.history;
+
+import org.apache.log4j.Logger;
+import org.wso2.productcodecoverageservice.Constants.History;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+Append-only history file of a product area. Each record is framed by its length and checksum, so that a record torn
+by a crash is detected and cut off on the next load. Records are kept in memory in the order they were recorded
+ */
+class ProductAreaHistory {
+
+    private static final Logger log = Logger.getLogger(ProductAreaHistory.class);
+    private final Path historyFile;
+    private final ArrayList<CoverageHistoryRecord> records = new ArrayList<>();
+    private boolean loaded;
+
+    ProductAreaHistory(Path storageFolder) {
+
+        this.historyFile = storageFolder.resolve(History.HISTORY_FILE);
+    }
+
+    /**
+     * Append a record to the history file and the in-memory history
+     *
+     * @param record Record of a coverage run
+     * @throws IOException If the record cannot be appended
+     */
+    synchronized void append(CoverageHistoryRecord record) throws IOException {
+
+        load();
+        Files.createDirectories(this.historyFile.getParent());
+        try (OutputStream output = Files.newOutputStream(this.historyFile, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            output.write(frame(record));
+        }
+        this.records.add(record);
+    }
+
+    /**
+     * Get a snapshot of the recorded history
+     *
+     * @return Records in the order they were recorded
+     */
+    synchronized List<CoverageHistoryRecord> getRecords() {
+
+        load();
+        return Collections.unmodifiableList(new ArrayList<>(this.records));
+    }
+
+    /**
+     * Rewrite the history file without redundant records. Of consecutive records with the same build numbers only the
+     * first is kept, and package level counters are dropped from records older than the package retention
+     *
+     * @param packageRetentionMillis Age after which package level counters are dropped
+     * @throws IOException If the compacted history cannot be written
+     */
+    synchronized void compact(long packageRetentionMillis) throws IOException {
+
+        load();
+        long packagesExpireBefore = System.currentTimeMillis() - packageRetentionMillis;
+        ArrayList<CoverageHistoryRecord> compactedRecords = new ArrayList<>();
+        boolean compacted = false;
+        CoverageHistoryRecord previousRecord = null;
+        for (CoverageHistoryRecord record : this.records) {
+            if (previousRecord != null && previousRecord.getBuildNumbers().equals(record.getBuildNumbers())) {
+                compacted = true;
+                continue;
+            }
+            previousRecord = record;
+            if (record.getTimestamp() < packagesExpireBefore && hasPackages(record)) {
+                record = record.withoutPackages();
+                compacted = true;
+            }
+            compactedRecords.add(record);
+        }
+        if (!compacted) {
+            return;
+        }
+
+        Path compactedFile = this.historyFile.resolveSibling(History.HISTORY_FILE + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(compactedFile))) {
+            for (CoverageHistoryRecord record : compactedRecords) {
+                output.write(frame(record));
+            }
+        }
+        Files.move(compactedFile, this.historyFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted " + this.historyFile + " from " + this.records.size() + " to "
+                + compactedRecords.size() + " records");
+        this.records.clear();
+        this.records.addAll(compactedRecords);
+    }
+
+    private static boolean hasPackages(CoverageHistoryRecord record) {
+
+        for (String component : record.getComponents().keySet()) {
+            if (!record.getPackages(component).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Load the history file on first use. A torn record at the end of the file is cut off so that new records are
+     * appended after the last complete one
+     */
+    private void load() {
+
+        if (this.loaded) {
+            return;
+        }
+        this.loaded = true;
+        if (!Files.exists(this.historyFile)) {
+            return;
+        }
+        long validLength = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.historyFile)))) {
+            while (true) {
+                int recordLength;
+                try {
+                    recordLength = input.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long checksum = input.readLong();
+                byte[] payload = new byte[recordLength];
+                input.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    throw new IOException("Checksum mismatch");
+                }
+                this.records.add(CoverageHistoryRecord.read(new DataInputStream(new ByteArrayInputStream(payload))));
+                validLength += Integer.BYTES + Long.BYTES + recordLength;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Incomplete record at the end of " + this.historyFile + ". Cutting it off");
+            try (FileChannel channel = FileChannel.open(this.historyFile, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            } catch (IOException f) {
+                log.error("Could not cut off the incomplete record of " + this.historyFile);
+            }
+        }
+    }
+
+    private static byte[] frame(CoverageHistoryRecord record) throws IOException {
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream payloadOutput = new DataOutputStream(payload)) {
+            record.write(payloadOutput);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+
+        ByteArrayOutputStream framedRecord = new ByteArrayOutputStream(payload.size() + Integer.BYTES + Long.BYTES);
+        try (DataOutputStream framedOutput = new DataOutputStream(framedRecord)) {
+            framedOutput.writeInt(payload.size());
+            framedOutput.writeLong(crc.getValue());
+            payload.writeTo(framedOutput);
+        }
+        return framedRecord.toByteArray();
+    }
+}
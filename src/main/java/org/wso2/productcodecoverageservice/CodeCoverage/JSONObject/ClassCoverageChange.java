@@ -0,0 +1,42 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+
+/*
+Change of the coverage of a class between two builds of a product area. A missing side means the class did not exist in
+that build
+ */
+public class ClassCoverageChange extends CoverageChange {
+
+    private final String className;
+
+    public ClassCoverageChange(String component, String packageName, String className, ComponentCoverage before,
+                               ComponentCoverage after) {
+
+        super(component, packageName, before, after);
+        this.className = className;
+    }
+
+    public String getClassName() {
+
+        return className;
+    }
+}
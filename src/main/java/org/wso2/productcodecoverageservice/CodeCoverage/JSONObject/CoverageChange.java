@@ -0,0 +1,81 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+
+/*
+Change of the coverage of a product area, component or package between two coverage runs. A null component means the
+whole product area. A missing side means the component or package did not exist in that run
+ */
+public class CoverageChange {
+
+    private final String component;
+    private final String packageName;
+    private final ComponentCoverage before;
+    private final ComponentCoverage after;
+
+    public CoverageChange(String component, String packageName, ComponentCoverage before, ComponentCoverage after) {
+
+        this.component = component;
+        this.packageName = packageName;
+        this.before = before;
+        this.after = after;
+    }
+
+    public String getComponent() {
+
+        return component;
+    }
+
+    public String getPackageName() {
+
+        return packageName;
+    }
+
+    public ComponentCoverage getBefore() {
+
+        return before;
+    }
+
+    public ComponentCoverage getAfter() {
+
+        return after;
+    }
+
+    public long getLinesToCoverChange() {
+
+        return (after != null ? after.getComponentLinesToCover() : 0)
+                - (before != null ? before.getComponentLinesToCover() : 0);
+    }
+
+    public long getCoveredLinesChange() {
+
+        return (after != null ? after.getLineCovered() : 0) - (before != null ? before.getLineCovered() : 0);
+    }
+
+    public Double getLineCoveredRatioChange() {
+
+        if (before == null || after == null || before.getComponentLineCoveredRatio() == null
+                || after.getComponentLineCoveredRatio() == null) {
+            return null;
+        }
+        return after.getComponentLineCoveredRatio() - before.getComponentLineCoveredRatio();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+/*
+Missed and covered count of a coverage counter. Example: {missed: XX, covered: YY, coveredRatio: ZZ}
+ */
+public class CoverageCounter {
+
+    private final long missed;
+    private final long covered;
+
+    public CoverageCounter(long missed, long covered) {
+
+        this.missed = missed;
+        this.covered = covered;
+    }
+
+    public long getMissed() {
+
+        return missed;
+    }
+
+    public long getCovered() {
+
+        return covered;
+    }
+
+    public Double getCoveredRatio() {
+
+        return missed + covered > 0 ? (double) covered / (double) (missed + covered) : null;
+    }
+}
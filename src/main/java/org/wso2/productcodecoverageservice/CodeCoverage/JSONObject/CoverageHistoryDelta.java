@@ -0,0 +1,76 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import java.util.Map;
+
+/*
+Coverage changes of a product area between an earlier coverage run and the latest one
+ */
+public class CoverageHistoryDelta {
+
+    private final String productId;
+    private final long fromTimestamp;
+    private final long toTimestamp;
+    private final Map<String, String> fromBuildNumbers;
+    private final Map<String, String> toBuildNumbers;
+    private final CoverageChange[] changes;
+
+    public CoverageHistoryDelta(String productId, long fromTimestamp, long toTimestamp,
+                                Map<String, String> fromBuildNumbers, Map<String, String> toBuildNumbers,
+                                CoverageChange[] changes) {
+
+        this.productId = productId;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        this.fromBuildNumbers = fromBuildNumbers;
+        this.toBuildNumbers = toBuildNumbers;
+        this.changes = changes;
+    }
+
+    public String getProductId() {
+
+        return productId;
+    }
+
+    public long getFromTimestamp() {
+
+        return fromTimestamp;
+    }
+
+    public long getToTimestamp() {
+
+        return toTimestamp;
+    }
+
+    public Map<String, String> getFromBuildNumbers() {
+
+        return fromBuildNumbers;
+    }
+
+    public Map<String, String> getToBuildNumbers() {
+
+        return toBuildNumbers;
+    }
+
+    public CoverageChange[] getChanges() {
+
+        return changes;
+    }
+}
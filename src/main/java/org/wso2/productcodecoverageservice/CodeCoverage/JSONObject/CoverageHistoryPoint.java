@@ -0,0 +1,56 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.ComponentCoverage;
+
+import java.util.Map;
+
+/*
+Coverage of a product area, component or package as recorded by one coverage run.
+Example: {timestamp: XX, buildNumbers: {job_name: YY, ..}, coverage: {componentLineCoveredRatio: .., ..}}
+ */
+public class CoverageHistoryPoint {
+
+    private final long timestamp;
+    private final Map<String, String> buildNumbers;
+    private final ComponentCoverage coverage;
+
+    public CoverageHistoryPoint(long timestamp, Map<String, String> buildNumbers, ComponentCoverage coverage) {
+
+        this.timestamp = timestamp;
+        this.buildNumbers = buildNumbers;
+        this.coverage = coverage;
+    }
+
+    public long getTimestamp() {
+
+        return timestamp;
+    }
+
+    public Map<String, String> getBuildNumbers() {
+
+        return buildNumbers;
+    }
+
+    public ComponentCoverage getCoverage() {
+
+        return coverage;
+    }
+}
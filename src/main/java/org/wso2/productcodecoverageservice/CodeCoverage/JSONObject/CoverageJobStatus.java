@@ -0,0 +1,66 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+/**
+ * Progress of an asynchronous code coverage job
+ */
+public class CoverageJobStatus {
+
+    private final String jobId;
+    private final String status;
+    private final long submittedAt;
+    private final Long completedAt;
+    private final ProductAreaProgress[] productAreas;
+
+    public CoverageJobStatus(String jobId, String status, long submittedAt, Long completedAt,
+                             ProductAreaProgress[] productAreas) {
+
+        this.jobId = jobId;
+        this.status = status;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+        this.productAreas = productAreas;
+    }
+
+    public String getJobId() {
+
+        return jobId;
+    }
+
+    public String getStatus() {
+
+        return status;
+    }
+
+    public long getSubmittedAt() {
+
+        return submittedAt;
+    }
+
+    public Long getCompletedAt() {
+
+        return completedAt;
+    }
+
+    public ProductAreaProgress[] getProductAreas() {
+
+        return productAreas;
+    }
+}
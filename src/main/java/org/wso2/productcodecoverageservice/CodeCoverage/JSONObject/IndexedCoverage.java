@@ -0,0 +1,62 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import java.util.LinkedHashMap;
+
+/*
+Indexed coverage of a component, package, class or method. Example:
+{name: XX, component: YY, counters: {LINE: {missed: .., covered: ..}, ..}, children: [..]}
+ */
+public class IndexedCoverage {
+
+    private final String name;
+    private final String component;
+    private final LinkedHashMap<String, CoverageCounter> counters;
+    private final IndexedCoverage[] children;
+
+    public IndexedCoverage(String name, String component, LinkedHashMap<String, CoverageCounter> counters,
+                           IndexedCoverage[] children) {
+
+        this.name = name;
+        this.component = component;
+        this.counters = counters;
+        this.children = children;
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public String getComponent() {
+
+        return component;
+    }
+
+    public LinkedHashMap<String, CoverageCounter> getCounters() {
+
+        return counters;
+    }
+
+    public IndexedCoverage[] getChildren() {
+
+        return children;
+    }
+}
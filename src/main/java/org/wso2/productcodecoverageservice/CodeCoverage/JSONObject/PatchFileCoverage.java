@@ -0,0 +1,59 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+/*
+Coverage of the changed lines of a file. Only changed lines holding code are listed, a partly covered line counts as
+covered
+ */
+public class PatchFileCoverage {
+
+    private final String component;
+    private final String file;
+    private final int[] coveredLines;
+    private final int[] missedLines;
+
+    public PatchFileCoverage(String component, String file, int[] coveredLines, int[] missedLines) {
+
+        this.component = component;
+        this.file = file;
+        this.coveredLines = coveredLines;
+        this.missedLines = missedLines;
+    }
+
+    public String getComponent() {
+
+        return component;
+    }
+
+    public String getFile() {
+
+        return file;
+    }
+
+    public int[] getCoveredLines() {
+
+        return coveredLines;
+    }
+
+    public int[] getMissedLines() {
+
+        return missedLines;
+    }
+}
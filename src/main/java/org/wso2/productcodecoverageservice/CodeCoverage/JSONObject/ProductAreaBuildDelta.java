@@ -0,0 +1,70 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import java.util.Map;
+
+/*
+Coverage changes of a product area between two builds of its components. Changes hold the product area and the
+components whose counters differ, and class changes the classes whose counters differ
+ */
+public class ProductAreaBuildDelta {
+
+    private final String productId;
+    private final Map<String, String> fromBuildNumbers;
+    private final Map<String, String> toBuildNumbers;
+    private final CoverageChange[] changes;
+    private final ClassCoverageChange[] classChanges;
+
+    public ProductAreaBuildDelta(String productId, Map<String, String> fromBuildNumbers,
+                                 Map<String, String> toBuildNumbers, CoverageChange[] changes,
+                                 ClassCoverageChange[] classChanges) {
+
+        this.productId = productId;
+        this.fromBuildNumbers = fromBuildNumbers;
+        this.toBuildNumbers = toBuildNumbers;
+        this.changes = changes;
+        this.classChanges = classChanges;
+    }
+
+    public String getProductId() {
+
+        return productId;
+    }
+
+    public Map<String, String> getFromBuildNumbers() {
+
+        return fromBuildNumbers;
+    }
+
+    public Map<String, String> getToBuildNumbers() {
+
+        return toBuildNumbers;
+    }
+
+    public CoverageChange[] getChanges() {
+
+        return changes;
+    }
+
+    public ClassCoverageChange[] getClassChanges() {
+
+        return classChanges;
+    }
+}
@@ -25,21 +25,22 @@ import java.util.HashMap;
 public class ProductAreaCodeCoverage {
 
     private final String productId;
-    private final String overallLinesToCover;
-    private final String overallLineCoverageRatio;
 
     /*
-    Resulting code coverage JSON. Example: {component_name: {coverage_ratio: XX, lines_to_cover: YY}, ..}
+    Exact total of the counters of all components, null if the product area could not be evaluated
+     */
+    private final ComponentCoverage overallCoverage;
+
+    /*
+    Resulting code coverage JSON. Example: {component_name: {componentLineCoveredRatio: XX, componentLinesToCover: YY, ..}, ..}
      */
     private final HashMap<String, ComponentCoverage> componentCodeCoverage;
 
-    public ProductAreaCodeCoverage(String productId, HashMap<String, ComponentCoverage> componentCodeCoverage,
-                                   String overallLinesToCover, String overallLineCoverageRatio) {
+    public ProductAreaCodeCoverage(String productId, HashMap<String, ComponentCoverage> componentCodeCoverage) {
 
         this.productId = productId;
         this.componentCodeCoverage = componentCodeCoverage;
-        this.overallLineCoverageRatio = overallLineCoverageRatio;
-        this.overallLinesToCover = overallLinesToCover;
+        this.overallCoverage = componentCodeCoverage != null ? ComponentCoverage.sum(componentCodeCoverage.values()) : null;
     }
 
     public HashMap<String, ComponentCoverage> getComponentCodeCoverage() {
@@ -52,13 +53,18 @@ public class ProductAreaCodeCoverage {
         return productId;
     }
 
-    public String getOverallLineCoverageRatio() {
+    public ComponentCoverage getOverallCoverage() {
+
+        return overallCoverage;
+    }
+
+    public Double getOverallLineCoverageRatio() {
 
-        return overallLineCoverageRatio;
+        return overallCoverage != null ? overallCoverage.getComponentLineCoveredRatio() : null;
     }
 
-    public String getOverallLinesToCover() {
+    public Long getOverallLinesToCover() {
 
-        return overallLinesToCover;
+        return overallCoverage != null ? overallCoverage.getComponentLinesToCover() : null;
     }
 }
@@ -0,0 +1,73 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+import java.util.Map;
+
+/**
+ * Contain a product area and the two builds of its components to compare. Builds are given by job name, and the last
+ * successful build is used for the components without a build
+ */
+public class ProductAreaDelta {
+
+    private String productId;
+    private String[] components;
+    private Map<String, String> fromBuilds;
+    private Map<String, String> toBuilds;
+
+    public String getProductId() {
+
+        return this.productId;
+    }
+
+    public void setProductId(String productId) {
+
+        this.productId = productId;
+    }
+
+    public String[] getComponents() {
+
+        return this.components;
+    }
+
+    public void setComponents(String[] components) {
+
+        this.components = components;
+    }
+
+    public Map<String, String> getFromBuilds() {
+
+        return this.fromBuilds;
+    }
+
+    public void setFromBuilds(Map<String, String> fromBuilds) {
+
+        this.fromBuilds = fromBuilds;
+    }
+
+    public Map<String, String> getToBuilds() {
+
+        return this.toBuilds;
+    }
+
+    public void setToBuilds(Map<String, String> toBuilds) {
+
+        this.toBuilds = toBuilds;
+    }
+}
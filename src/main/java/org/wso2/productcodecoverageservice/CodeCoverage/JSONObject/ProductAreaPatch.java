@@ -0,0 +1,83 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+/**
+ * Contain a product area and the lines changed by a patch, either as a unified diff or as file and line ranges such as
+ * src/main/java/org/wso2/Example.java:10-20,35. The artifacts of the components are taken from the configured local
+ * artifacts folder instead of Jenkins if localArtifacts is set
+ */
+public class ProductAreaPatch {
+
+    private String productId;
+    private String[] components;
+    private String diff;
+    private String[] changedLines;
+    private boolean localArtifacts;
+
+    public String getProductId() {
+
+        return this.productId;
+    }
+
+    public void setProductId(String productId) {
+
+        this.productId = productId;
+    }
+
+    public String[] getComponents() {
+
+        return this.components;
+    }
+
+    public void setComponents(String[] components) {
+
+        this.components = components;
+    }
+
+    public String getDiff() {
+
+        return this.diff;
+    }
+
+    public void setDiff(String diff) {
+
+        this.diff = diff;
+    }
+
+    public String[] getChangedLines() {
+
+        return this.changedLines;
+    }
+
+    public void setChangedLines(String[] changedLines) {
+
+        this.changedLines = changedLines;
+    }
+
+    public boolean isLocalArtifacts() {
+
+        return this.localArtifacts;
+    }
+
+    public void setLocalArtifacts(boolean localArtifacts) {
+
+        this.localArtifacts = localArtifacts;
+    }
+}
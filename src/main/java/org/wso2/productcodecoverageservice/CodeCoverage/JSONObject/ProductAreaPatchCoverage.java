@@ -0,0 +1,69 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+/*
+Line coverage of the lines changed by a patch in a product area. Example: {productId: XX, linesToCover: YY,
+lineCovered: ZZ, lineCoveredRatio: 0.8, files: [...]}
+ */
+public class ProductAreaPatchCoverage {
+
+    private final String productId;
+    private final PatchFileCoverage[] files;
+
+    public ProductAreaPatchCoverage(String productId, PatchFileCoverage[] files) {
+
+        this.productId = productId;
+        this.files = files;
+    }
+
+    public String getProductId() {
+
+        return productId;
+    }
+
+    public long getLinesToCover() {
+
+        long linesToCover = 0;
+        for (PatchFileCoverage file : files) {
+            linesToCover += file.getCoveredLines().length + file.getMissedLines().length;
+        }
+        return linesToCover;
+    }
+
+    public long getLineCovered() {
+
+        long lineCovered = 0;
+        for (PatchFileCoverage file : files) {
+            lineCovered += file.getCoveredLines().length;
+        }
+        return lineCovered;
+    }
+
+    public Double getLineCoveredRatio() {
+
+        long linesToCover = getLinesToCover();
+        return linesToCover > 0 ? (double) getLineCovered() / (double) linesToCover : null;
+    }
+
+    public PatchFileCoverage[] getFiles() {
+
+        return files;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jsonobject;
+
+/**
+ * Progress of a product area within an asynchronous code coverage job
+ */
+public class ProductAreaProgress {
+
+    private final String productId;
+    private final String status;
+
+    public ProductAreaProgress(String productId, String status) {
+
+        this.productId = productId;
+        this.status = status;
+    }
+
+    public String getProductId() {
+
+        return productId;
+    }
+
+    public String getStatus() {
+
+        return status;
+    }
+}
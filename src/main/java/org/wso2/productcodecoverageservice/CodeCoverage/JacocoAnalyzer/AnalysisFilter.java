@@ -0,0 +1,131 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
+
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/*
+Compiled rules deciding which components and classes are analyzed. Components are skipped when their job name is a
+product job or contains one of the skipped component names. Classes are analyzed when their name matches one of the
+include patterns and none of the exclude patterns. Patterns are comma separated class names such as
+org.wso2.carbon.*, where * matches any characters and ? a single character
+ */
+public class AnalysisFilter {
+
+    private static final String SEPARATOR = ",";
+    private static final String ALL = "*";
+
+    private final Pattern skippedComponents;
+    private final Pattern includes;
+    private final Pattern excludes;
+
+    /**
+     * Compile the analysis rules
+     *
+     * @param skippedComponents Comma separated parts of the job names of skipped components
+     * @param includes          Comma separated patterns of the analyzed classes
+     * @param excludes          Comma separated patterns of the classes excluded from the analysis
+     */
+    public AnalysisFilter(String skippedComponents, String includes, String excludes) {
+
+        List<String> skippedParts = new ArrayList<>();
+        for (String skippedComponent : skippedComponents.split(SEPARATOR)) {
+            if (!skippedComponent.trim().isEmpty()) {
+                skippedParts.add(Pattern.quote(skippedComponent.trim()));
+            }
+        }
+        this.skippedComponents = skippedParts.isEmpty() ? null : Pattern.compile(String.join("|", skippedParts));
+        this.includes = compileClassPatterns(includes);
+        this.excludes = compileClassPatterns(excludes);
+    }
+
+    /**
+     * Compile the analysis rules of the application properties
+     *
+     * @param application Application properties
+     * @return Rules of the skipped components and the class include and exclude patterns
+     */
+    public static AnalysisFilter fromProperties(Properties application) {
+
+        return new AnalysisFilter(application.getProperty(General.SKIPPED_COMPONENTS, ""),
+                application.getProperty(Coverage.ANALYSIS_INCLUDES, ALL),
+                application.getProperty(Coverage.ANALYSIS_EXCLUDES, ""));
+    }
+
+    /**
+     * Check whether a component is left out of the coverage
+     *
+     * @param jobName Jenkins job name of the component
+     * @return True if the component is not analyzed
+     */
+    public boolean isComponentSkipped(String jobName) {
+
+        return jobName.startsWith(Coverage.ANALYTICS_PRODUCT) || jobName.startsWith(Coverage.PRODUCT)
+                || (this.skippedComponents != null && this.skippedComponents.matcher(jobName).find());
+    }
+
+    /**
+     * Check whether a class is analyzed
+     *
+     * @param className VM name of the class, e.g. org/wso2/Example
+     * @return True if the class matches the include patterns and none of the exclude patterns
+     */
+    public boolean includesClass(String className) {
+
+        String qualifiedName = className.replace('/', '.');
+        return (this.includes == null || this.includes.matcher(qualifiedName).matches())
+                && (this.excludes == null || !this.excludes.matcher(qualifiedName).matches());
+    }
+
+    /**
+     * Compile comma separated wildcard patterns into a single expression, or null if there are no patterns or a
+     * pattern matches everything
+     */
+    private static Pattern compileClassPatterns(String patterns) {
+
+        List<String> expressions = new ArrayList<>();
+        for (String pattern : patterns.split(SEPARATOR)) {
+            pattern = pattern.trim();
+            if (ALL.equals(pattern)) {
+                return null;
+            }
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            StringBuilder expression = new StringBuilder();
+            for (char character : pattern.toCharArray()) {
+                if (character == '*') {
+                    expression.append(".*");
+                } else if (character == '?') {
+                    expression.append('.');
+                } else {
+                    expression.append(Pattern.quote(String.valueOf(character)));
+                }
+            }
+            expressions.add(expression.toString());
+        }
+        return expressions.isEmpty() ? null : Pattern.compile(String.join("|", expressions));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
+
+import org.jacoco.core.analysis.IClassCoverage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Bounded cache of analyzed classes, shared by the components of all product areas. An analysis result only depends on
+the class file and its execution data, so it is reused whenever a class with the same id is analyzed against the same
+probes again, e.g. classes without execution data or components with no new test runs. The least recently used
+results are dropped first
+ */
+public class ClassCoverageCache {
+
+    private final int capacity;
+    private final LinkedHashMap<ClassKey, IClassCoverage> analyzedClasses;
+
+    /**
+     * Create a class coverage cache
+     *
+     * @param capacity Maximum number of analyzed classes kept, 0 to disable the cache
+     */
+    public ClassCoverageCache(int capacity) {
+
+        this.capacity = capacity;
+        this.analyzedClasses = new LinkedHashMap<ClassKey, IClassCoverage>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ClassKey, IClassCoverage> eldest) {
+
+                return size() > ClassCoverageCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Check whether analyzed classes are kept at all
+     *
+     * @return True if the cache has a capacity
+     */
+    public boolean isEnabled() {
+
+        return this.capacity > 0;
+    }
+
+    /**
+     * Get the analysis result of a class
+     *
+     * @param classId CRC64 id of the class file
+     * @param probes  Probes of the execution data of the class, or null if there is no execution data
+     * @param noMatch True if execution data exists only for another version of the class
+     * @return The cached class coverage, or null if the class was not analyzed against these probes
+     */
+    public IClassCoverage get(long classId, boolean[] probes, boolean noMatch) {
+
+        if (!isEnabled()) {
+            return null;
+        }
+        synchronized (this.analyzedClasses) {
+            return this.analyzedClasses.get(new ClassKey(classId, probes, noMatch));
+        }
+    }
+
+    /**
+     * Keep the analysis result of a class
+     *
+     * @param classId       CRC64 id of the class file
+     * @param probes        Probes the class was analyzed against, or null if there was no execution data
+     * @param noMatch       True if execution data exists only for another version of the class
+     * @param classCoverage Analysis result of the class
+     */
+    public void put(long classId, boolean[] probes, boolean noMatch, IClassCoverage classCoverage) {
+
+        if (!isEnabled()) {
+            return;
+        }
+        /* Probes of the heap store may be merged into later, so the key holds a copy */
+        ClassKey key = new ClassKey(classId, probes == null ? null : probes.clone(), noMatch);
+        synchronized (this.analyzedClasses) {
+            this.analyzedClasses.put(key, classCoverage);
+        }
+    }
+
+    /**
+     * Get the number of analyzed classes kept
+     *
+     * @return Number of cached analysis results
+     */
+    public int size() {
+
+        synchronized (this.analyzedClasses) {
+            return this.analyzedClasses.size();
+        }
+    }
+
+    /*
+    Identity of an analysis result
+     */
+    private static final class ClassKey {
+
+        private final long classId;
+        private final boolean[] probes;
+        private final boolean noMatch;
+        private final int hash;
+
+        private ClassKey(long classId, boolean[] probes, boolean noMatch) {
+
+            this.classId = classId;
+            this.probes = probes;
+            this.noMatch = noMatch;
+            this.hash = 31 * (31 * Long.hashCode(classId) + Arrays.hashCode(probes)) + Boolean.hashCode(noMatch);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (!(other instanceof ClassKey)) {
+                return false;
+            }
+            ClassKey key = (ClassKey) other;
+            return this.classId == key.classId && this.noMatch == key.noMatch && Arrays.equals(this.probes, key.probes);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return this.hash;
+        }
+    }
+}
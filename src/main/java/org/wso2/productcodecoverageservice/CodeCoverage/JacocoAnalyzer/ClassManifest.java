@@ -0,0 +1,348 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.jacoco.core.internal.data.CRC64;
+import org.objectweb.asm.ClassReader;
+import org.springframework.boot.system.ApplicationHome;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+Class files of a component build, with the location, CRC64 id and name of each class. The manifest is built once per
+build of a component and saved in the artifact cache, so that later analyses of the same build can look up the
+execution data of a class, and skip the class, before reading it. The manifests of the most recently used builds of a
+component are kept, so that analyses of different builds, e.g. of a delta, do not rebuild each other's manifests.
+Components with nested archives in their classes have no manifest, as the classes of the archives are only found by
+reading them
+ */
+public class ClassManifest {
+
+    private static final Logger log = Logger.getLogger(ClassManifest.class);
+    private static final int MAGIC = 0x4A434D46;
+    private static final int VERSION = 1;
+    private static final String MANIFEST_FILE_EXTENSION = ".manifest";
+    private static final String CLASS_FILE_SUFFIX = "." + Coverage.CLASS_FILE_EXTENSION;
+    private static final String[] ARCHIVE_FILE_SUFFIXES = {".jar", ".war", ".ear", ".zip", ".pack.gz"};
+
+    private final List<Entry> entries;
+
+    private ClassManifest(List<Entry> entries) {
+
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Get the manifest of a component build, building and saving it from the classes of the build if it is not saved
+     * yet. Only the manifests of the most recently used builds of the component are kept
+     *
+     * @param jobName              Jenkins job name of the component
+     * @param buildNumber          Build number the classes were taken from
+     * @param jacocoSourcesArchive Downloaded jacoco sources zip file, analyzed if the classes folder does not exist
+     * @param classesFolder        Extracted classes folder of the component
+     * @return The class manifest, or null if the classes contain archives or cannot be read
+     */
+    public static ClassManifest load(String jobName, String buildNumber, File jacocoSourcesArchive, File classesFolder) {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+        Path manifestFolder = Paths.get(home.getDir() + File.separator + Jenkins.ARTIFACT_CACHE_DIRECTORY
+                + File.separator + Coverage.CLASS_MANIFEST_DIRECTORY + File.separator
+                + jobName.replaceAll("[^A-Za-z0-9._-]", "_"));
+        Path manifestFile = manifestFolder.resolve(buildNumber + MANIFEST_FILE_EXTENSION);
+
+        if (Files.isRegularFile(manifestFile)) {
+            try {
+                ClassManifest manifest = read(manifestFile);
+                Files.setLastModifiedTime(manifestFile, FileTime.fromMillis(System.currentTimeMillis()));
+                return manifest;
+            } catch (IOException e) {
+                log.warn("Error reading the class manifest of " + jobName + ". Building it again");
+            }
+        }
+
+        try {
+            ClassManifest manifest = !classesFolder.exists() && jacocoSourcesArchive.exists()
+                    ? fromArchive(jacocoSourcesArchive)
+                    : fromFolder(classesFolder.toPath());
+            if (manifest != null) {
+                manifest.save(manifestFolder, manifestFile);
+            }
+            return manifest;
+        } catch (IOException | RuntimeException e) {
+            /* Malformed class files are reported by the analysis itself */
+            log.warn("Error building the class manifest of " + jobName + ". Analyzing all classes");
+            return null;
+        }
+    }
+
+    /**
+     * Get the classes of the manifest
+     *
+     * @return Location, id and name of each class file
+     */
+    public List<Entry> getEntries() {
+
+        return this.entries;
+    }
+
+    /**
+     * Build the manifest of the class entries of a jacoco sources zip file
+     *
+     * @param jacocoSourcesArchive Downloaded jacoco sources zip file
+     * @return The class manifest, or null if the classes contain archives
+     * @throws IOException If the zip file cannot be read
+     */
+    private static ClassManifest fromArchive(File jacocoSourcesArchive) throws IOException {
+
+        String classesEntryPrefix = getClassesEntryPrefix();
+        List<Entry> entries = new ArrayList<>();
+        try (ZipFile archive = new ZipFile(jacocoSourcesArchive)) {
+            Enumeration<? extends ZipEntry> zipEntries = archive.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (zipEntry.isDirectory() || !zipEntry.getName().startsWith(classesEntryPrefix)) {
+                    continue;
+                }
+                String location = zipEntry.getName().substring(classesEntryPrefix.length());
+                if (isArchive(location)) {
+                    return null;
+                }
+                if (location.endsWith(CLASS_FILE_SUFFIX)) {
+                    try (InputStream classStream = archive.getInputStream(zipEntry)) {
+                        entries.add(createEntry(location, IOUtils.toByteArray(classStream)));
+                    }
+                }
+            }
+        }
+        return new ClassManifest(entries);
+    }
+
+    /**
+     * Build the manifest of the class files of an extracted classes folder
+     *
+     * @param classesFolder Extracted classes folder
+     * @return The class manifest, or null if the classes contain archives
+     * @throws IOException If the folder cannot be read
+     */
+    private static ClassManifest fromFolder(Path classesFolder) throws IOException {
+
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(classesFolder)) {
+            return new ClassManifest(entries);
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(classesFolder)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        for (Path file : files) {
+            String location = classesFolder.relativize(file).toString().replace(File.separatorChar, '/');
+            if (isArchive(location)) {
+                return null;
+            }
+            if (location.endsWith(CLASS_FILE_SUFFIX)) {
+                entries.add(createEntry(location, Files.readAllBytes(file)));
+            }
+        }
+        return new ClassManifest(entries);
+    }
+
+    /**
+     * Get the prefix of the class entries in a jacoco sources zip file
+     *
+     * @return Zip entry prefix of the classes folder
+     */
+    static String getClassesEntryPrefix() {
+
+        return Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR + Coverage.CLASSES
+                + Jenkins.ZIP_ENTRY_SEPARATOR;
+    }
+
+    private static boolean isArchive(String location) {
+
+        for (String archiveSuffix : ARCHIVE_FILE_SUFFIXES) {
+            if (location.endsWith(archiveSuffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry createEntry(String location, byte[] classBytes) {
+
+        return new Entry(location, CRC64.checksum(classBytes), new ClassReader(classBytes).getClassName());
+    }
+
+    /**
+     * Read a saved manifest
+     *
+     * @param manifestFile Saved manifest file
+     * @return The class manifest
+     * @throws IOException If the file cannot be read or is not a class manifest
+     */
+    private static ClassManifest read(Path manifestFile) throws IOException {
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Invalid class manifest " + manifestFile);
+            }
+            int classCount = input.readInt();
+            List<Entry> entries = new ArrayList<>(classCount);
+            for (int i = 0; i < classCount; i++) {
+                String location = input.readUTF();
+                long id = input.readLong();
+                String name = input.readUTF();
+                entries.add(new Entry(location, id, name));
+            }
+            return new ClassManifest(entries);
+        }
+    }
+
+    /**
+     * Save the manifest through a temporary file, so that concurrent analyses of the same build never read a partial
+     * manifest, and remove the manifests of the least recently used builds of the component
+     *
+     * @param manifestFolder Folder of the manifests of the component
+     * @param manifestFile   Manifest file of the build
+     * @throws IOException If the manifest cannot be saved
+     */
+    private void save(Path manifestFolder, Path manifestFile) throws IOException {
+
+        Files.createDirectories(manifestFolder);
+        Path temporaryFile = Files.createTempFile(manifestFolder, manifestFile.getFileName().toString(),
+                Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(this.entries.size());
+                for (Entry entry : this.entries) {
+                    output.writeUTF(entry.getLocation());
+                    output.writeLong(entry.getId());
+                    output.writeUTF(entry.getName());
+                }
+            }
+            Files.move(temporaryFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        removeLeastRecentlyUsed(manifestFolder);
+    }
+
+    /**
+     * Remove the manifests of the component beyond the most recently used builds. A manifest is marked as used by
+     * its modification time, which is updated whenever it is loaded
+     *
+     * @param manifestFolder Folder of the manifests of the component
+     */
+    private static void removeLeastRecentlyUsed(Path manifestFolder) {
+
+        List<Path> savedManifests = new ArrayList<>();
+        try (DirectoryStream<Path> manifestFiles = Files.newDirectoryStream(manifestFolder, "*" + MANIFEST_FILE_EXTENSION)) {
+            manifestFiles.forEach(savedManifests::add);
+        } catch (IOException e) {
+            log.warn("Error listing the class manifests in " + manifestFolder);
+            return;
+        }
+        if (savedManifests.size() <= Coverage.CLASS_MANIFEST_BUILDS_KEPT) {
+            return;
+        }
+
+        savedManifests.sort(Comparator.comparingLong((Path savedManifest) -> savedManifest.toFile().lastModified()).reversed());
+        for (Path savedManifest : savedManifests.subList(Coverage.CLASS_MANIFEST_BUILDS_KEPT, savedManifests.size())) {
+            try {
+                Files.deleteIfExists(savedManifest);
+            } catch (IOException e) {
+                log.warn("Error removing the class manifest " + savedManifest);
+            }
+        }
+    }
+
+    /*
+    A class file of the manifest
+     */
+    public static final class Entry {
+
+        private final String location;
+        private final long id;
+        private final String name;
+
+        private Entry(String location, long id, String name) {
+
+            this.location = location;
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * Get the location of the class file
+         *
+         * @return Path of the class file relative to the classes folder, separated by '/'
+         */
+        public String getLocation() {
+
+            return this.location;
+        }
+
+        /**
+         * Get the CRC64 id jacoco identifies the class file with
+         *
+         * @return Class id
+         */
+        public long getId() {
+
+            return this.id;
+        }
+
+        /**
+         * Get the name of the class
+         *
+         * @return VM name of the class, e.g. org/wso2/Example
+         */
+        public String getName() {
+
+            return this.name;
+        }
+    }
+}
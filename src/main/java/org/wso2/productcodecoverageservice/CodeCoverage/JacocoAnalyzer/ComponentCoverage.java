@@ -0,0 +1,181 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
+
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+Exact missed and covered counts of the instruction, branch, line and method counters of a component, or of the total
+of several components. Example: {componentLineCoveredRatio: XX, componentLinesToCover: YY, lineMissed: .., ..}
+ */
+public class ComponentCoverage {
+
+    private static final int INSTRUCTION = 0;
+    private static final int BRANCH = 1;
+    private static final int LINE = 2;
+    private static final int METHOD = 3;
+    private static final ICoverageNode.CounterEntity[] COUNTER_ENTITIES = {ICoverageNode.CounterEntity.INSTRUCTION,
+            ICoverageNode.CounterEntity.BRANCH, ICoverageNode.CounterEntity.LINE, ICoverageNode.CounterEntity.METHOD};
+
+    /*
+    Missed and covered count of each counter, one after the other
+     */
+    private final long[] counts;
+
+    private ComponentCoverage(long[] counts) {
+
+        this.counts = counts;
+    }
+
+    /**
+     * Take the counters of an analyzed coverage node, usually the bundle of a component
+     *
+     * @param coverageNode Analyzed coverage node
+     * @return Coverage of the node
+     */
+    public static ComponentCoverage fromCoverageNode(ICoverageNode coverageNode) {
+
+        long[] counts = new long[COUNTER_ENTITIES.length * 2];
+        for (int i = 0; i < COUNTER_ENTITIES.length; i++) {
+            ICounter counter = coverageNode.getCounter(COUNTER_ENTITIES[i]);
+            counts[i * 2] = counter.getMissedCount();
+            counts[i * 2 + 1] = counter.getCoveredCount();
+        }
+        return new ComponentCoverage(counts);
+    }
+
+    /**
+     * Add up the counters of several components
+     *
+     * @param componentCoverages Coverage of the components
+     * @return Total coverage of the components
+     */
+    public static ComponentCoverage sum(Iterable<ComponentCoverage> componentCoverages) {
+
+        long[] counts = new long[COUNTER_ENTITIES.length * 2];
+        for (ComponentCoverage componentCoverage : componentCoverages) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += componentCoverage.counts[i];
+            }
+        }
+        return new ComponentCoverage(counts);
+    }
+
+    /**
+     * Read counts written by write
+     *
+     * @param input Input holding the counts
+     * @return Coverage with the read counts
+     * @throws IOException If the counts cannot be read
+     */
+    public static ComponentCoverage read(DataInput input) throws IOException {
+
+        long[] counts = new long[COUNTER_ENTITIES.length * 2];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = input.readLong();
+        }
+        return new ComponentCoverage(counts);
+    }
+
+    /**
+     * Write the counts in a fixed binary layout
+     *
+     * @param output Output to write the counts to
+     * @throws IOException If the counts cannot be written
+     */
+    public void write(DataOutput output) throws IOException {
+
+        for (long count : this.counts) {
+            output.writeLong(count);
+        }
+    }
+
+    /**
+     * Check whether another coverage has the same counts
+     *
+     * @param other Coverage to compare with
+     * @return True if all counts are equal
+     */
+    public boolean hasSameCounts(ComponentCoverage other) {
+
+        return other != null && Arrays.equals(this.counts, other.counts);
+    }
+
+    /**
+     * Get the ratio of covered lines
+     *
+     * @return Covered lines divided by lines to cover, or null if there are no lines to cover
+     */
+    public Double getComponentLineCoveredRatio() {
+
+        long linesToCover = getComponentLinesToCover();
+        return linesToCover > 0 ? (double) getLineCovered() / (double) linesToCover : null;
+    }
+
+    public long getComponentLinesToCover() {
+
+        return getLineMissed() + getLineCovered();
+    }
+
+    public long getInstructionMissed() {
+
+        return counts[INSTRUCTION * 2];
+    }
+
+    public long getInstructionCovered() {
+
+        return counts[INSTRUCTION * 2 + 1];
+    }
+
+    public long getBranchMissed() {
+
+        return counts[BRANCH * 2];
+    }
+
+    public long getBranchCovered() {
+
+        return counts[BRANCH * 2 + 1];
+    }
+
+    public long getLineMissed() {
+
+        return counts[LINE * 2];
+    }
+
+    public long getLineCovered() {
+
+        return counts[LINE * 2 + 1];
+    }
+
+    public long getMethodMissed() {
+
+        return counts[METHOD * 2];
+    }
+
+    public long getMethodCovered() {
+
+        return counts[METHOD * 2 + 1];
+    }
+}
@@ -19,24 +19,57 @@
 package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.springframework.boot.system.ApplicationHome;
 import org.wso2.productcodecoverageservice.Application;
 import org.wso2.productcodecoverageservice.Constants.Coverage;
 import org.wso2.productcodecoverageservice.Constants.General;
 import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.Constants.Report;
 import org.wso2.productcodecoverageservice.codecoverage.CodeCoverageController;
+import org.wso2.productcodecoverageservice.codecoverage.executiondata.ExecutionDataCache;
+import org.wso2.productcodecoverageservice.codecoverage.executiondata.MergedExecutionData;
+import org.wso2.productcodecoverageservice.codecoverage.executiondata.PackedExecutionData;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.PatchFileCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaPatchCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+import org.wso2.productcodecoverageservice.codecoverage.patch.ChangedLines;
+import org.wso2.productcodecoverageservice.codecoverage.ziputils.Unzipper;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.Properties;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /*
  A Processor for jacoco and repository build files for code coverage
@@ -44,156 +77,556 @@ import java.util.Properties;
 public class CoverageCalculator {
 
     private static final Logger log = Logger.getLogger(CodeCoverageController.class);
+    private static final String CLASS_FILE_SUFFIX = "." + Coverage.CLASS_FILE_EXTENSION;
     private final String jacocoDatafiles;
     private final String compiledClassesZipFiles;
     private final String sourcesZipFiles;
     private final String workspace;
     private final ExecFileLoader dataFileLoader = new ExecFileLoader();
     private final String productID;
+    private final ForkJoinPool analysisPool;
+    private final CoverageMetrics metrics;
+    private final AnalysisFilter analysisFilter;
+    private final ClassCoverageCache classCoverageCache;
+    /*
+    Build number of each component, used to find the class manifests of the components
+     */
+    private volatile Map<String, String> buildNumbers = new HashMap<>();
+    /*
+    Builds of the product area the reports are generated from, if known
+     */
+    private volatile String reportBuilds;
+    /*
+    Merged execution data of the product area when it is packed, in which case the loader only holds the sessions
+     */
+    private volatile PackedExecutionData packedExecutionData;
+    /*
+    Analyzed coverage tree of each component, kept for the coverage index
+     */
+    private final ConcurrentHashMap<String, IBundleCoverage> componentBundles = new ConcurrentHashMap<>();
 
-    public CoverageCalculator(Path coverageFiles, String productID) {
+    public CoverageCalculator(Path coverageFiles, String productID, ForkJoinPool analysisPool, CoverageMetrics metrics,
+                              AnalysisFilter analysisFilter, ClassCoverageCache classCoverageCache) {
 
         this.workspace = coverageFiles.toString();
         this.jacocoDatafiles = coverageFiles.toString() + File.separator + Jenkins.JACOCO_DATAFILES_FOLDER;
         this.compiledClassesZipFiles = coverageFiles.toString() + File.separator + Jenkins.COMPILED_CLASSES_FOLDER;
         this.sourcesZipFiles = coverageFiles.toString() + File.separator + Jenkins.SOURCE_FILES_FOLDER;
         this.productID = productID;
+        this.analysisPool = analysisPool;
+        this.metrics = metrics;
+        this.analysisFilter = analysisFilter;
+        this.classCoverageCache = classCoverageCache;
     }
 
     /**
-     * Get all the execution files belong to the product area jobs and create a single execution data file
+     * Bring the cached merged execution data of the product area up to date and use it for the calculation. Only the
+     * components with new builds are merged again
      *
-     * @throws IOException If execution data files cannot be found, loaded or the merged data file cannot be saved
+     * @param executionDataCache Cache of merged execution data of product areas
+     * @param jacocoDataFiles    Jacoco data file of each component
+     * @param buildNumbers       Build number each data file was taken from
+     * @throws IOException If execution data files cannot be loaded or the merged data cannot be saved
      */
-    public void mergeDataFiles(ArrayList<String> jacocoDataFiles) throws IOException {
+    public void mergeDataFiles(ExecutionDataCache executionDataCache, Map<String, String> jacocoDataFiles,
+                               Map<String, String> buildNumbers) throws IOException {
 
         if (jacocoDataFiles.size() > 0) {
-            for (String dataFilePath : jacocoDataFiles) {
-                File dataFile = new File(dataFilePath);
-                this.dataFileLoader.load(dataFile);
+            long mergeStart = System.nanoTime();
+            MergedExecutionData mergedExecutionData = executionDataCache.update(this.productID, jacocoDataFiles, buildNumbers);
+            this.buildNumbers = new HashMap<>(buildNumbers);
+            /* Reports can only be reused when every component is known by a concrete build */
+            if (buildNumbers.keySet().containsAll(jacocoDataFiles.keySet())) {
+                this.reportBuilds = new TreeMap<>(buildNumbers).toString();
             }
-
-            String mergedDataFilePath = this.workspace + File.separator + Coverage.MERGED_JACOCO_DATA_FILE;
-            this.dataFileLoader.save(new File(mergedDataFilePath), false);
+            /* The stores of the loader only reference the snapshot, which stays unmodified */
+            mergedExecutionData.getSessionInfoStore().accept(this.dataFileLoader.getSessionInfoStore());
+            if (mergedExecutionData.isPacked()) {
+                this.packedExecutionData = mergedExecutionData.getPackedExecutionData();
+            } else {
+                mergedExecutionData.getExecutionDataStore().accept(this.dataFileLoader.getExecutionDataStore());
+            }
+            this.metrics.recordMerge(this.productID, System.nanoTime() - mergeStart);
         } else {
             log.error("Cannot find jacoco data files to perform merge operation");
         }
     }
 
     /**
-     * Get line coverage ratio and number of lines to cover for the product area component
+     * Get line coverage ratio and number of lines to cover for the product area component. Components with a class
+     * manifest of their build are analyzed class by class, skipping excluded classes and reusing the cached analysis
+     * of classes whose execution data did not change. Other components have all their classes analyzed and only the
+     * included classes are counted
      *
      * @param component Name of the component
-     * @return A ComponentCoverage object containing line coverage ratio and number of lines to cover
+     * @return A ComponentCoverage object containing the exact counts of the component counters
      */
     private ComponentCoverage getComponentCoverageData(String component) throws IOException {
 
-        String jacocoSourcesPath = this.workspace + File.separator + component + File.separator + Jenkins.EXTRACTED_JACOCO_FOLDER;
-
-        CoverageBuilder coverageBuilder = new CoverageBuilder();
-        Analyzer analyzer = new Analyzer(this.dataFileLoader.getExecutionDataStore(), coverageBuilder);
+        long analysisStart = System.nanoTime();
+        CoverageBuilder coverageBuilder = analyzeComponent(component, className -> true);
 
-        /* Use org folder in the extracted folder as it contain the class files required*/
-        analyzer.analyzeAll(new File(jacocoSourcesPath
-                + File.separator + Coverage.CLASSES));
         /*
         Calculate and prepare output data
          */
-        String lineCoverageRatio = Double.toString(coverageBuilder.getBundle(component).getLineCounter().getCoveredRatio());
-        String linesToCover = Integer.toString(coverageBuilder.getBundle(component).getLineCounter().getTotalCount());
+        IBundleCoverage bundle = coverageBuilder.getBundle(component);
+        this.componentBundles.put(component, bundle);
+        ComponentCoverage componentCoverage = ComponentCoverage.fromCoverageNode(bundle);
+        this.metrics.recordAnalysis(component, System.nanoTime() - analysisStart);
 
-        log.info("Line coverage for " + component + " " + lineCoverageRatio + ".");
+        log.info("Line coverage for " + component + " " + componentCoverage.getComponentLineCoveredRatio() + ".");
 
-        return new ComponentCoverage(lineCoverageRatio, linesToCover);
+        return componentCoverage;
     }
 
     /**
-     * For each of the product component, generate html coverage reports
+     * Analyze the included classes of a component which are selected by the caller
+     *
+     * @param component      Name of the component
+     * @param classSelection Selects classes by their VM name. Classes of jacoco sources zip files are selected by
+     *                       their location before they are read, which matches the name of classes stored by package
+     * @return Builder holding the analyzed classes
+     * @throws IOException If a class file cannot be read or analyzed
      */
-    public void generateCoverageReports(String[] productAreaComponents) {
+    private CoverageBuilder analyzeComponent(String component, Predicate<String> classSelection) throws IOException {
 
-        for (String component : productAreaComponents) {
+        String jacocoSourcesPath = this.workspace + File.separator + component + File.separator + Jenkins.EXTRACTED_JACOCO_FOLDER;
 
-            String[] componentSplitted = component.split(General.URL_SEPARATOR);
-            String jobName = componentSplitted[componentSplitted.length - 1];
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        Predicate<String> analyzedClasses = className -> this.analysisFilter.includesClass(className)
+                && classSelection.test(className);
 
-            String jacocoSourcesPath = this.workspace + File.separator + jobName + File.separator + Jenkins.EXTRACTED_JACOCO_FOLDER;
+        File classesFolder = new File(jacocoSourcesPath + File.separator + Coverage.CLASSES);
+        File jacocoSourcesArchive = getJacocoSourcesArchive(component);
+        String buildNumber = this.buildNumbers.get(component);
+        ClassManifest classManifest = buildNumber != null && buildNumber.matches("\\d+")
+                ? ClassManifest.load(component, buildNumber, jacocoSourcesArchive, classesFolder)
+                : null;
 
-            ApplicationHome home = new ApplicationHome(Application.class);
-            String componentName = (new File(jobName)).getName();
+        if (classManifest != null) {
+            analyzeManifestClasses(component, classManifest, analyzedClasses, coverageBuilder, jacocoSourcesArchive,
+                    classesFolder);
+        } else {
+            Analyzer analyzer = createAnalyzer(classCoverage -> {
+                if (analyzedClasses.test(classCoverage.getName())) {
+                    coverageBuilder.visitCoverage(classCoverage);
+                }
+            });
+            if (!classesFolder.exists() && jacocoSourcesArchive.exists()) {
+                analyzeArchivedClasses(analyzer, jacocoSourcesArchive, classSelection);
+            } else {
+                /* Use org folder in the extracted folder as it contain the class files required*/
+                analyzer.analyzeAll(classesFolder);
+            }
+        }
+        return coverageBuilder;
+    }
 
-            ReportGenerator report = new ReportGenerator();
-            report.setExecFileLoader(this.dataFileLoader);
-            report.setClassesDirectory(new File(jacocoSourcesPath + File.separator + Coverage.CLASSES));
-            report.setSourceDirectory(new File(jacocoSourcesPath + File.separator + Coverage.SOURCES));
-            report.setReportDirectory(new File(
-                    home.getDir()
-                            + File.separator + Coverage.COVERAGE_REPORTS_DIRECTORY
-                            + File.separator + this.productID
-                            + File.separator + componentName));
+    /**
+     * Create an analyzer over the merged execution data of the product area
+     *
+     * @param coverageVisitor Receiver of the analyzed classes
+     * @return Analyzer of the packed execution data if the merged data is packed, otherwise of the heap store
+     */
+    private Analyzer createAnalyzer(ICoverageVisitor coverageVisitor) {
+
+        PackedExecutionData packedExecutionData = this.packedExecutionData;
+        return packedExecutionData != null
+                ? new PackedExecutionDataAnalyzer(packedExecutionData, coverageVisitor)
+                : new Analyzer(this.dataFileLoader.getExecutionDataStore(), coverageVisitor);
+    }
+
+    /**
+     * Analyze the classes listed in the class manifest of a component. Excluded classes are skipped before they are
+     * read. A class analyzed before against the same execution data, which includes every class without execution
+     * data, is taken from the class coverage cache without reading it
+     *
+     * @param component            Name of the component
+     * @param classManifest        Class manifest of the component build
+     * @param analyzedClasses      Selects the analyzed classes by their VM name
+     * @param coverageBuilder      Builder of the component coverage
+     * @param jacocoSourcesArchive Downloaded jacoco sources zip file, read if the classes folder does not exist
+     * @param classesFolder        Extracted classes folder of the component
+     * @throws IOException If a class file cannot be read or analyzed
+     */
+    private void analyzeManifestClasses(String component, ClassManifest classManifest, Predicate<String> analyzedClasses,
+                                        CoverageBuilder coverageBuilder, File jacocoSourcesArchive, File classesFolder)
+            throws IOException {
+
+        PackedExecutionData packedExecutionData = this.packedExecutionData;
+        ExecutionDataStore executionDataStore = this.dataFileLoader.getExecutionDataStore();
+        IClassCoverage[] analyzedClass = new IClassCoverage[1];
+        Analyzer analyzer = createAnalyzer(classCoverage -> analyzedClass[0] = classCoverage);
+        boolean archived = !classesFolder.exists() && jacocoSourcesArchive.exists();
+        String classesEntryPrefix = ClassManifest.getClassesEntryPrefix();
+        int analyzedCount = 0;
+        int reusedCount = 0;
+
+        try (ZipFile archive = archived ? new ZipFile(jacocoSourcesArchive) : null) {
+            for (ClassManifest.Entry entry : classManifest.getEntries()) {
+                if (!analyzedClasses.test(entry.getName())) {
+                    continue;
+                }
+                /* Same lookup as the analyzer, which marks classes with data of another version only as no match */
+                ExecutionData classData = packedExecutionData != null
+                        ? packedExecutionData.get(entry.getId())
+                        : executionDataStore.get(entry.getId());
+                boolean[] probes = classData == null ? null : classData.getProbes();
+                boolean noMatch = classData == null && (packedExecutionData != null
+                        ? packedExecutionData.get(entry.getName()) != null
+                        : executionDataStore.contains(entry.getName()));
+
+                IClassCoverage classCoverage = this.classCoverageCache.get(entry.getId(), probes, noMatch);
+                if (classCoverage != null) {
+                    reusedCount++;
+                } else {
+                    byte[] classBytes;
+                    if (archive != null) {
+                        ZipEntry zipEntry = archive.getEntry(classesEntryPrefix + entry.getLocation());
+                        if (zipEntry == null) {
+                            throw new IOException("Cannot find " + entry.getLocation() + " in " + jacocoSourcesArchive);
+                        }
+                        try (InputStream classStream = archive.getInputStream(zipEntry)) {
+                            classBytes = IOUtils.toByteArray(classStream);
+                        }
+                    } else {
+                        classBytes = Files.readAllBytes(classesFolder.toPath().resolve(entry.getLocation()));
+                    }
+                    analyzedClass[0] = null;
+                    analyzer.analyzeClass(classBytes, entry.getLocation());
+                    classCoverage = analyzedClass[0];
+                    if (classCoverage == null) {
+                        continue;
+                    }
+                    this.classCoverageCache.put(entry.getId(), probes, noMatch, classCoverage);
+                    analyzedCount++;
+                }
+                coverageBuilder.visitCoverage(classCoverage);
+            }
+        }
+        log.debug("Analyzed " + analyzedCount + " classes of " + component + " and reused " + reusedCount);
+    }
+
+    /**
+     * Feed the class entries of a downloaded jacoco sources zip file to the analyzer, without extracting them.
+     * Nested archives are handled by the analyzer
+     *
+     * @param analyzer             Analyzer of the component
+     * @param jacocoSourcesArchive Downloaded jacoco sources zip file of the component
+     * @param classSelection       Selects the class entries to read by their location without the file extension
+     * @throws IOException If the zip file or a class entry cannot be read
+     */
+    private void analyzeArchivedClasses(Analyzer analyzer, File jacocoSourcesArchive, Predicate<String> classSelection)
+            throws IOException {
+
+        String classesEntryPrefix = Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR
+                + Coverage.CLASSES + Jenkins.ZIP_ENTRY_SEPARATOR;
+        try (ZipFile archive = new ZipFile(jacocoSourcesArchive)) {
+            Enumeration<? extends ZipEntry> entries = archive.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(classesEntryPrefix)) {
+                    String location = entry.getName().substring(classesEntryPrefix.length());
+                    if (location.endsWith(CLASS_FILE_SUFFIX) && !classSelection.test(
+                            location.substring(0, location.length() - CLASS_FILE_SUFFIX.length()))) {
+                        continue;
+                    }
+                    try (InputStream classStream = archive.getInputStream(entry)) {
+                        analyzer.analyzeAll(classStream, entry.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the coverage trees of the components analyzed by getProductCoverageData
+     *
+     * @return Coverage bundle of each analyzed component
+     */
+    public Map<String, IBundleCoverage> getComponentBundles() {
+
+        return this.componentBundles;
+    }
+
+    /**
+     * Get the downloaded jacoco sources zip file of a component. The file is present only when the classes are
+     * analyzed from the archive
+     *
+     * @param jobName Jenkins job name of the component
+     * @return Location of the jacoco sources zip file
+     */
+    private File getJacocoSourcesArchive(String jobName) {
+
+        return new File(this.workspace + File.separator + jobName + File.separator + Jenkins.JACOCO_SOURCES_FILE_ZIP);
+    }
+
+    /**
+     * Generate the html coverage report of a product area component. The report is skipped if it was already generated
+     * from the same builds of the product area. Classes and sources are hard linked next to the report, instead of
+     * being copied
+     *
+     * @param component Product area component in the format of 'folder_name/job_name'
+     */
+    public void generateCoverageReport(String component) {
+
+        String[] componentSplitted = component.split(General.URL_SEPARATOR);
+        String jobName = componentSplitted[componentSplitted.length - 1];
+
+        String jacocoSourcesPath = this.workspace + File.separator + jobName + File.separator + Jenkins.EXTRACTED_JACOCO_FOLDER;
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+        String componentName = (new File(jobName)).getName();
+        File reportDirectory = new File(home.getDir()
+                + File.separator + Coverage.COVERAGE_REPORTS_DIRECTORY
+                + File.separator + this.productID
+                + File.separator + componentName);
+
+        File reportStamp = new File(reportDirectory, Report.REPORT_STAMP_FILE);
+        if (this.reportBuilds != null && new File(reportDirectory, Report.HTML_INDEX_FILE).exists()) {
             try {
-                report.createReport();
-                FileUtils.copyDirectory(new File(jacocoSourcesPath + File.separator + Coverage.CLASSES), new File(home.getDir()
-                        + File.separator + Coverage.COVERAGE_REPORTS_DIRECTORY
-                        + File.separator + this.productID
-                        + File.separator + componentName + File.separator + "compiled-files"));
-                FileUtils.copyDirectory(new File(jacocoSourcesPath + File.separator + Coverage.SOURCES), new File(home.getDir()
-                        + File.separator + Coverage.COVERAGE_REPORTS_DIRECTORY
-                        + File.separator + this.productID
-                        + File.separator + componentName + File.separator + "source-files"));
-            } catch (Exception e) {
-                log.warn("Error creating report for " + componentName + ". Cleaning generated files");
-                try {
-                    FileUtils.cleanDirectory(report.getReportDirectory());
-                } catch (IOException f) {
-                    log.warn("Error cleaning generated report files. Maybe files were not generated at all");
+                if (reportStamp.exists() && this.reportBuilds.equals(FileUtils.readFileToString(reportStamp, StandardCharsets.UTF_8))) {
+                    log.info("Report of " + componentName + " is up to date");
+                    return;
                 }
+            } catch (IOException e) {
+                log.warn("Error reading the report stamp of " + componentName + ". Generating the report");
             }
         }
+
+        /* Classes analyzed from the archive are extracted only now, together with the sources */
+        File jacocoSourcesArchive = getJacocoSourcesArchive(jobName);
+        if (!new File(jacocoSourcesPath + File.separator + Coverage.CLASSES).exists() && jacocoSourcesArchive.exists()) {
+            try {
+                Unzipper.unzipEntries(jacocoSourcesArchive.getPath(),
+                        new File(this.workspace + File.separator + jobName),
+                        Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR);
+            } catch (IOException e) {
+                log.warn("Error extracting classes and sources of " + componentName + ". Skipping the report");
+                return;
+            }
+        }
+
+        ReportGenerator report = new ReportGenerator();
+        report.setExecFileLoader(getReportExecutionData(jobName));
+        report.setClassesDirectory(new File(jacocoSourcesPath + File.separator + Coverage.CLASSES));
+        report.setSourceDirectory(new File(jacocoSourcesPath + File.separator + Coverage.SOURCES));
+        report.setReportDirectory(reportDirectory);
+        try {
+            long reportStart = System.nanoTime();
+            FileUtils.deleteQuietly(reportStamp);
+            report.createReport();
+            linkDirectory(new File(jacocoSourcesPath + File.separator + Coverage.CLASSES).toPath(),
+                    new File(reportDirectory, Report.COMPILED_FILES).toPath());
+            linkDirectory(new File(jacocoSourcesPath + File.separator + Coverage.SOURCES).toPath(),
+                    new File(reportDirectory, Report.SOURCE_FILES).toPath());
+            if (this.reportBuilds != null) {
+                FileUtils.writeStringToFile(reportStamp, this.reportBuilds, StandardCharsets.UTF_8);
+            }
+            this.metrics.recordReport(componentName, System.nanoTime() - reportStart);
+        } catch (Exception e) {
+            log.warn("Error creating report for " + componentName + ". Cleaning generated files");
+            try {
+                FileUtils.cleanDirectory(report.getReportDirectory());
+            } catch (IOException f) {
+                log.warn("Error cleaning generated report files. Maybe files were not generated at all");
+            }
+        }
+    }
+
+    /**
+     * Get the execution data a component report is generated from. Packed execution data is materialized only for the
+     * classes found by the analysis of the component, or as a whole if the component was not analyzed
+     *
+     * @param jobName Jenkins job name of the component
+     * @return Loader holding the sessions and the execution data for the report
+     */
+    private ExecFileLoader getReportExecutionData(String jobName) {
+
+        PackedExecutionData packedExecutionData = this.packedExecutionData;
+        if (packedExecutionData == null) {
+            return this.dataFileLoader;
+        }
+        ExecFileLoader componentDataLoader = new ExecFileLoader();
+        this.dataFileLoader.getSessionInfoStore().accept(componentDataLoader.getSessionInfoStore());
+        IBundleCoverage bundle = this.componentBundles.get(jobName);
+        if (bundle == null) {
+            packedExecutionData.accept(componentDataLoader.getExecutionDataStore());
+            return componentDataLoader;
+        }
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
+                ExecutionData classData = classCoverage.isNoMatch()
+                        ? packedExecutionData.get(classCoverage.getName())
+                        : packedExecutionData.get(classCoverage.getId());
+                if (classData != null) {
+                    componentDataLoader.getExecutionDataStore().put(classData);
+                }
+            }
+        }
+        return componentDataLoader;
+    }
+
+    /**
+     * Recreate a folder tree with hard links to the files of the source tree. Files are copied when they cannot be
+     * linked, e.g. when the trees are on different file systems
+     *
+     * @param source Folder to be linked
+     * @param target Folder to be created, replacing any previous content
+     * @throws IOException If the folder tree cannot be created
+     */
+    private static void linkDirectory(Path source, Path target) throws IOException {
+
+        FileUtils.deleteDirectory(target.toFile());
+        if (!Files.isDirectory(source)) {
+            return;
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+
+                Files.createDirectories(target.resolve(source.relativize(directory).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+
+                Path link = target.resolve(source.relativize(file).toString());
+                try {
+                    Files.createLink(link, file);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(file, link);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
 
     /**
-     * Get line coverage ratio and lines to cover count in each product component in the product area
+     * Get line coverage ratio and lines to cover count in each product component in the product area. Components are
+     * analyzed concurrently on the analysis pool, each with its own builder and analyzer over the merged execution data
+     * store, which is only read once merging is done
      *
      * @return A HashMap containing coverage information for each of the product area component
      */
     public HashMap<String, ComponentCoverage> getProductCoverageData(String[] productAreaComponents) throws IOException {
 
-        HashMap<String, ComponentCoverage> productCoverageData = new HashMap<>();
-        ApplicationHome home = new ApplicationHome(Application.class);
-        Properties properties = new Properties();
-        properties.load(new FileReader(home.getDir() + File.separator + General.PROPERTIES_PATH));
-
-        String[] skippingComponents = properties.getProperty(General.SKIPPED_COMPONENTS).trim().split(",");
+        ConcurrentHashMap<String, ComponentCoverage> productCoverageData = new ConcurrentHashMap<>();
+        HashMap<String, ForkJoinTask<Void>> analysisTasks = new HashMap<>();
 
-        EachAreaComponent:
         for (String eachComponent : productAreaComponents) {
 
             String[] jobNameSplitted = eachComponent.split(General.URL_SEPARATOR);
             String jobName = jobNameSplitted[jobNameSplitted.length - 1];
-            if (jobName.startsWith(Coverage.ANALYTICS_PRODUCT) || jobName.startsWith(Coverage.PRODUCT)) {
+            if (this.analysisFilter.isComponentSkipped(jobName)) {
                 log.info("Skipping coverage data for " + eachComponent);
-                continue EachAreaComponent;
-            } else {
-                for (String skippedComponent : skippingComponents) {
-                    if (jobName.contains(skippedComponent)) {
-                        log.info("Skipping coverage data for " + eachComponent);
-                        continue EachAreaComponent;
-                    }
-                }
+                continue;
             }
             log.info("Calculating coverage data for " + eachComponent);
-            try {
-                ComponentCoverage componentCoverageData = getComponentCoverageData(jobName);
+            analysisTasks.put(eachComponent, this.analysisPool.submit(() -> {
                 /*
                 As each component is in the format of 'folder_name/job_name', format it and use only the job name
                  */
-                productCoverageData.put(jobName, componentCoverageData);
-            } catch (IOException e) {
-                log.info("Skipping " + eachComponent + " due to coverage calculation error");
+                productCoverageData.put(jobName, getComponentCoverageData(jobName));
+                return null;
+            }));
+        }
+
+        for (Map.Entry<String, ForkJoinTask<Void>> analysisTask : analysisTasks.entrySet()) {
+            try {
+                analysisTask.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while analyzing components of " + this.productID, e);
+            } catch (ExecutionException e) {
+                log.info("Skipping " + analysisTask.getKey() + " due to coverage calculation error");
+            }
+        }
+
+        return new HashMap<>(productCoverageData);
+    }
+
+    /**
+     * Get the line coverage of the lines changed by a patch. Only the classes in the packages of the changed files are
+     * analyzed, against the merged execution data of the product area. Changed lines without code are left out
+     *
+     * @param productAreaComponents Components of the product area
+     * @param changedLines          Lines changed by the patch
+     * @return Covered and missed changed lines of each changed source file found in the components
+     * @throws IOException If the analysis is interrupted
+     */
+    public ProductAreaPatchCoverage getPatchCoverage(String[] productAreaComponents, ChangedLines changedLines)
+            throws IOException {
+
+        HashMap<String, ForkJoinTask<List<PatchFileCoverage>>> analysisTasks = new HashMap<>();
+        for (String eachComponent : productAreaComponents) {
+            String[] jobNameSplitted = eachComponent.split(General.URL_SEPARATOR);
+            String jobName = jobNameSplitted[jobNameSplitted.length - 1];
+            if (this.analysisFilter.isComponentSkipped(jobName) || analysisTasks.containsKey(jobName)) {
+                continue;
             }
+            analysisTasks.put(jobName, this.analysisPool.submit(() -> getPatchFileCoverage(jobName, changedLines)));
         }
 
-        return productCoverageData;
+        ArrayList<PatchFileCoverage> files = new ArrayList<>();
+        for (Map.Entry<String, ForkJoinTask<List<PatchFileCoverage>>> analysisTask : new TreeMap<>(analysisTasks).entrySet()) {
+            try {
+                files.addAll(analysisTask.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while analyzing components of " + this.productID, e);
+            } catch (ExecutionException e) {
+                log.info("Skipping " + analysisTask.getKey() + " due to coverage calculation error");
+            }
+        }
+        return new ProductAreaPatchCoverage(this.productID, files.toArray(new PatchFileCoverage[0]));
+    }
+
+    /**
+     * Get the coverage of the changed lines of the source files of a component
+     *
+     * @param component    Name of the component
+     * @param changedLines Lines changed by the patch
+     * @return Covered and missed changed lines of each changed source file of the component
+     * @throws IOException If a class file cannot be read or analyzed
+     */
+    private List<PatchFileCoverage> getPatchFileCoverage(String component, ChangedLines changedLines)
+            throws IOException {
+
+        long analysisStart = System.nanoTime();
+        CoverageBuilder coverageBuilder = analyzeComponent(component, className -> {
+            int separator = className.lastIndexOf('/');
+            return changedLines.containsPackage(separator >= 0 ? className.substring(0, separator) : "");
+        });
+
+        ArrayList<PatchFileCoverage> files = new ArrayList<>();
+        for (ISourceFileCoverage sourceFile : coverageBuilder.getSourceFiles()) {
+            for (String file : changedLines.getMatchingFiles(sourceFile.getPackageName(), sourceFile.getName())) {
+                ArrayList<Integer> coveredLines = new ArrayList<>();
+                ArrayList<Integer> missedLines = new ArrayList<>();
+                for (int line : changedLines.getFiles().get(file)) {
+                    switch (sourceFile.getLine(line).getStatus()) {
+                        case ICounter.FULLY_COVERED:
+                        case ICounter.PARTLY_COVERED:
+                            coveredLines.add(line);
+                            break;
+                        case ICounter.NOT_COVERED:
+                            missedLines.add(line);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                if (!coveredLines.isEmpty() || !missedLines.isEmpty()) {
+                    files.add(new PatchFileCoverage(component, file,
+                            coveredLines.stream().mapToInt(Integer::intValue).toArray(),
+                            missedLines.stream().mapToInt(Integer::intValue).toArray()));
+                }
+            }
+        }
+        this.metrics.recordAnalysis(component, System.nanoTime() - analysisStart);
+        return files;
     }
 }
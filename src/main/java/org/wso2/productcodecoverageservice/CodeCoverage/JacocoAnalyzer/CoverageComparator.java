@@ -0,0 +1,125 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ClassCoverageChange;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageChange;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaBuildDelta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+Compares the analyzed components of two builds of a product area. Classes with the same bytecode and probes in both
+builds share one analysis result through the class coverage cache, so they are recognized as unchanged without
+comparing their counters
+ */
+public class CoverageComparator {
+
+    private CoverageComparator() {
+
+    }
+
+    /**
+     * Get the changes of the product area, the components and the classes between two builds
+     *
+     * @param productId        ID of the product area
+     * @param fromBuildNumbers Build number of each component in the earlier build
+     * @param toBuildNumbers   Build number of each component in the later build
+     * @param fromBundles      Coverage bundle of each analyzed component of the earlier build
+     * @param toBundles        Coverage bundle of each analyzed component of the later build
+     * @return Changes of the product area and of the components and classes whose counters differ
+     */
+    public static ProductAreaBuildDelta compare(String productId, Map<String, String> fromBuildNumbers,
+                                                Map<String, String> toBuildNumbers,
+                                                Map<String, IBundleCoverage> fromBundles,
+                                                Map<String, IBundleCoverage> toBundles) {
+
+        TreeMap<String, ComponentCoverage> fromComponents = new TreeMap<>();
+        for (Map.Entry<String, IBundleCoverage> bundle : fromBundles.entrySet()) {
+            fromComponents.put(bundle.getKey(), ComponentCoverage.fromCoverageNode(bundle.getValue()));
+        }
+        TreeMap<String, ComponentCoverage> toComponents = new TreeMap<>();
+        for (Map.Entry<String, IBundleCoverage> bundle : toBundles.entrySet()) {
+            toComponents.put(bundle.getKey(), ComponentCoverage.fromCoverageNode(bundle.getValue()));
+        }
+
+        ArrayList<CoverageChange> changes = new ArrayList<>();
+        changes.add(new CoverageChange(null, null, ComponentCoverage.sum(fromComponents.values()),
+                ComponentCoverage.sum(toComponents.values())));
+        ArrayList<ClassCoverageChange> classChanges = new ArrayList<>();
+
+        TreeSet<String> components = new TreeSet<>(fromComponents.keySet());
+        components.addAll(toComponents.keySet());
+        for (String component : components) {
+            ComponentCoverage before = fromComponents.get(component);
+            ComponentCoverage after = toComponents.get(component);
+            if (before == null || !before.hasSameCounts(after)) {
+                changes.add(new CoverageChange(component, null, before, after));
+            }
+            /* Equal component totals can still hide classes gaining and losing coverage */
+            compareClasses(component, getClasses(fromBundles.get(component)), getClasses(toBundles.get(component)),
+                    classChanges);
+        }
+        return new ProductAreaBuildDelta(productId, new TreeMap<>(fromBuildNumbers), new TreeMap<>(toBuildNumbers),
+                changes.toArray(new CoverageChange[0]), classChanges.toArray(new ClassCoverageChange[0]));
+    }
+
+    private static void compareClasses(String component, Map<String, IClassCoverage> fromClasses,
+                                       Map<String, IClassCoverage> toClasses, ArrayList<ClassCoverageChange> classChanges) {
+
+        TreeSet<String> classNames = new TreeSet<>(fromClasses.keySet());
+        classNames.addAll(toClasses.keySet());
+        for (String className : classNames) {
+            IClassCoverage before = fromClasses.get(className);
+            IClassCoverage after = toClasses.get(className);
+            if (before == after) {
+                continue;
+            }
+            ComponentCoverage beforeCoverage = before != null ? ComponentCoverage.fromCoverageNode(before) : null;
+            ComponentCoverage afterCoverage = after != null ? ComponentCoverage.fromCoverageNode(after) : null;
+            if (beforeCoverage != null && beforeCoverage.hasSameCounts(afterCoverage)) {
+                continue;
+            }
+            IClassCoverage known = after != null ? after : before;
+            classChanges.add(new ClassCoverageChange(component, known.getPackageName(), className, beforeCoverage,
+                    afterCoverage));
+        }
+    }
+
+    private static Map<String, IClassCoverage> getClasses(IBundleCoverage bundle) {
+
+        if (bundle == null) {
+            return Collections.emptyMap();
+        }
+        TreeMap<String, IClassCoverage> classes = new TreeMap<>();
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
+                classes.put(classCoverage.getName(), classCoverage);
+            }
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer;
+
+import org.apache.commons.io.IOUtils;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.objectweb.asm.ClassReader;
+import org.wso2.productcodecoverageservice.codecoverage.executiondata.PackedExecutionData;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+Analyzer reading the execution data from packed execution data. Each class is analyzed against a store holding only
+the execution data of that class, so that the execution data of the product area is never materialized as a whole.
+Files, directories and archives, including gzip and pack200 content, are read by the jacoco analyzer, which hands
+every class found in them to this analyzer
+ */
+class PackedExecutionDataAnalyzer extends Analyzer {
+
+    private final PackedExecutionData executionData;
+    private final ICoverageVisitor coverageVisitor;
+
+    PackedExecutionDataAnalyzer(PackedExecutionData executionData, ICoverageVisitor coverageVisitor) {
+
+        super(new ExecutionDataStore(), coverageVisitor);
+        this.executionData = executionData;
+        this.coverageVisitor = coverageVisitor;
+    }
+
+    @Override
+    public void analyzeClass(byte[] buffer, String location) throws IOException {
+
+        ExecutionDataStore classExecutionData = new ExecutionDataStore();
+        ExecutionData classData = this.executionData.get(CRC64.checksum(buffer));
+        if (classData == null) {
+            /* Execution data of another version of the class marks the class as not matching the execution data */
+            try {
+                classData = this.executionData.get(new ClassReader(buffer).getClassName());
+            } catch (RuntimeException e) {
+                throw new IOException("Error while analyzing " + location, e);
+            }
+        }
+        if (classData != null) {
+            classExecutionData.put(classData);
+        }
+        new Analyzer(classExecutionData, this.coverageVisitor).analyzeClass(buffer, location);
+    }
+
+    @Override
+    public void analyzeClass(InputStream input, String location) throws IOException {
+
+        analyzeClass(IOUtils.toByteArray(input), location);
+    }
+}
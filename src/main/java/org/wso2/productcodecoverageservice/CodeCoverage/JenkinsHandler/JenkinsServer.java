@@ -18,23 +18,40 @@
 
 package org.wso2.productcodecoverageservice.codecoverage.jenkinshandler;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
-import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.springframework.boot.system.ApplicationHome;
 import org.wso2.productcodecoverageservice.Application;
 import org.wso2.productcodecoverageservice.Constants.General;
 import org.wso2.productcodecoverageservice.Constants.Jenkins;
 import org.wso2.productcodecoverageservice.codecoverage.HTTPutils.FileDownloader;
+import org.wso2.productcodecoverageservice.codecoverage.HTTPutils.JenkinsHttpClient;
+import org.wso2.productcodecoverageservice.codecoverage.artifactcache.ArtifactCache;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+import org.wso2.productcodecoverageservice.codecoverage.workspace.Workspace;
 import org.wso2.productcodecoverageservice.codecoverage.ziputils.Unzipper;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.URL;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
 Jenkins server model to get all required execution data files and compiled class files for a product area
@@ -49,21 +66,87 @@ public class JenkinsServer {
     private String[] productAreaJenkinsJobs;
     private String jenkinsAuthString;
     private String jenkinsServerURL;
+    private long downloadTimeoutSeconds;
+    /*
+    Downloads from Jenkins are extracted while they are received if streamingUnzip is set. If analyzeFromArchive is set
+    as well, the zip file is saved from the same stream and only the execution data is extracted
+     */
+    private boolean streamingUnzip;
+    private boolean analyzeFromArchive;
+    /*
+    Folder holding the artifacts of each job in place of Jenkins, or null to download from Jenkins
+     */
+    private File localArtifactsDirectory;
+    private final ArtifactCache artifactCache;
+    private final JenkinsHttpClient httpClient;
+    private final CoverageMetrics metrics;
+    private final ConcurrentHashMap<String, String> resolvedBuildNumbers = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, String> downloadedDataFiles = new LinkedHashMap<>();
+
+    /**
+     * Create a Jenkins server model downloading into the given workspace. The workspace is owned by the caller
+     *
+     * @param workspace     Workspace reserved for the product area
+     * @param artifactCache Local cache of downloaded artifacts
+     * @param httpClient    Pooled HTTP client shared by all Jenkins server models
+     * @param metrics       Metrics of the download and unzip stages
+     * @throws IOException If the application properties cannot be read
+     */
+    public JenkinsServer(Workspace workspace, ArtifactCache artifactCache, JenkinsHttpClient httpClient,
+                         CoverageMetrics metrics) throws IOException {
+
+        this(workspace.getPath(), loadApplicationProperties(), artifactCache, httpClient, metrics);
+    }
+
+    /**
+     * Create a Jenkins server model which only resolves the build numbers of the jobs, without a workspace to
+     * download into
+     *
+     * @param httpClient Pooled HTTP client shared by all Jenkins server models
+     * @param metrics    Metrics of the download and unzip stages
+     * @throws IOException If the application properties cannot be read
+     */
+    public JenkinsServer(JenkinsHttpClient httpClient, CoverageMetrics metrics) throws IOException {
+
+        this(null, loadApplicationProperties(), null, httpClient, metrics);
+    }
+
+    /**
+     * Create a Jenkins server model downloading into the given folder, configured by the given application properties
+     *
+     * @param workspaceFolder Folder reserved for the product area
+     * @param application     Application properties
+     * @param artifactCache   Local cache of downloaded artifacts, or null to always download
+     * @param httpClient      Pooled HTTP client shared by all Jenkins server models
+     * @param metrics         Metrics of the download and unzip stages
+     */
+    public JenkinsServer(Path workspaceFolder, Properties application, ArtifactCache artifactCache,
+                         JenkinsHttpClient httpClient, CoverageMetrics metrics) {
+
+        this.jenkinsAuthString = application.getProperty(Jenkins.JENKINS_SERVER_BASE64_AUTH_STRING);
+        this.jenkinsServerURL = application.getProperty(Jenkins.JENKINS_SERVER_URL);
+        this.downloadTimeoutSeconds = Long.parseLong(application.getProperty(Jenkins.DOWNLOAD_TIMEOUT_SECONDS,
+                Long.toString(Jenkins.DEFAULT_DOWNLOAD_TIMEOUT_SECONDS)).trim());
+        this.streamingUnzip = Boolean.parseBoolean(application.getProperty(Jenkins.STREAMING_UNZIP,
+                Boolean.toString(Jenkins.DEFAULT_STREAMING_UNZIP)).trim());
+        this.analyzeFromArchive = Boolean.parseBoolean(application.getProperty(Jenkins.ANALYZE_FROM_ARCHIVE,
+                Boolean.toString(Jenkins.DEFAULT_ANALYZE_FROM_ARCHIVE)).trim());
+
+        this.temporaryProductAreaWorkspace = workspaceFolder;
+        this.artifactCache = artifactCache;
+        this.httpClient = httpClient;
+        this.metrics = metrics;
+    }
 
-    public JenkinsServer() throws IOException {
+    private static Properties loadApplicationProperties() throws IOException {
 
         ApplicationHome home = new ApplicationHome(Application.class);
 
         Properties application = new Properties();
         try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
             application.load(propertiesStream);
-
-            this.jenkinsAuthString = application.getProperty(Jenkins.JENKINS_SERVER_BASE64_AUTH_STRING);
-            this.jenkinsServerURL = application.getProperty(Jenkins.JENKINS_SERVER_URL);
-
-            this.temporaryProductAreaWorkspace = Files.createDirectories(
-                    Paths.get(home.getDir() + File.separator + Jenkins.WORKSPACE_DIRECTORY_PREFIX));
         }
+        return application;
     }
 
     /**
@@ -76,13 +159,34 @@ public class JenkinsServer {
         this.productAreaJenkinsJobs = productAreaJenkinsJobs;
     }
 
+    /**
+     * Take the artifacts of the jobs from a local folder instead of Jenkins
+     *
+     * @param localArtifactsDirectory Folder holding the artifacts of each job, or null to download from Jenkins
+     */
+    public void setLocalArtifactsDirectory(File localArtifactsDirectory) {
+
+        this.localArtifactsDirectory = localArtifactsDirectory;
+    }
+
+    /**
+     * Use given builds of jobs instead of their last successful build
+     *
+     * @param buildNumbers Map of Jenkins job names to build numbers. Jobs without a build number use their last
+     *                     successful build
+     */
+    public void setBuildNumbers(Map<String, String> buildNumbers) {
+
+        this.resolvedBuildNumbers.putAll(buildNumbers);
+    }
+
     /**
      * Download A file from the url with basic auth. If the download process is interrupted, clear all remaining data
      */
     private void downloadFile(String URL, File saveFile, String basicAuthString) throws IOException {
 
         try {
-            FileDownloader.downloadWithBasicAuth(URL, saveFile, basicAuthString);
+            FileDownloader.downloadWithBasicAuth(this.httpClient, URL, saveFile, basicAuthString);
         } catch (IOException e) {
             if (saveFile.exists()) FileUtils.forceDelete(saveFile);
 
@@ -99,25 +203,18 @@ public class JenkinsServer {
      */
     private String downloadJacocoSources(String jenkinsJob) throws IOException {
 
+        String jenkinsJobName = getJenkinsJobName(jenkinsJob);
+        String buildReference = this.resolvedBuildNumbers.containsKey(jenkinsJobName)
+                ? this.resolvedBuildNumbers.get(jenkinsJobName) : resolveBuildReference(jenkinsJob, jenkinsJobName);
+
         String jacocoSourcesFileRequestURL = this.jenkinsServerURL
                 + General.URL_SEPARATOR
                 + jenkinsJob
                 + General.URL_SEPARATOR
-                + Jenkins.LAST_SUCCESSFUL_BUILD
+                + buildReference
                 + General.URL_SEPARATOR
                 + Jenkins.JACOCO_RESOURCES_ZIP;
-        if (jenkinsJob.equals("ballerina-platform/job/ballerina")) {
-            jacocoSourcesFileRequestURL = this.jenkinsServerURL
-                    + General.URL_SEPARATOR
-                    + jenkinsJob
-                    + General.URL_SEPARATOR
-                    + "2258"
-                    + General.URL_SEPARATOR
-                    + Jenkins.JACOCO_RESOURCES_ZIP;
-        }
 
-        String[] jenkinsJobSplit = jenkinsJob.split(General.URL_SEPARATOR);
-        String jenkinsJobName = jenkinsJobSplit[jenkinsJobSplit.length - 1];
         String dataFileSavePath = this.temporaryProductAreaWorkspace.toAbsolutePath()
                 + File.separator
                 + jenkinsJobName
@@ -125,17 +222,107 @@ public class JenkinsServer {
                 + Jenkins.JACOCO_SOURCES_FILE_ZIP;
         File dataFileLocation = new File(dataFileSavePath);
 
-        /* Clear existing file */
-        if (dataFileLocation.exists()) FileUtils.forceDelete(dataFileLocation);
-
-        log.info("Downloading " + jacocoSourcesFileRequestURL);
-        downloadFile(jacocoSourcesFileRequestURL, dataFileLocation, this.jenkinsAuthString);
-
         String unzippedFolderPath = dataFileSavePath.replace(File.separator + Jenkins.JACOCO_SOURCES_FILE_ZIP, "");
         File unzippedFolder = new File(unzippedFolderPath);
-        if (!unzippedFolder.exists()) unzippedFolder.mkdirs();
 
-        Unzipper.unzipFile(dataFileSavePath, unzippedFolder);
+        long downloadStart = System.nanoTime();
+        AtomicLong downloadedBytes = new AtomicLong();
+        long unzipStart;
+        if (this.localArtifactsDirectory != null) {
+            File localArtifact = new File(this.localArtifactsDirectory, jenkinsJobName + File.separator
+                    + Jenkins.JACOCO_SOURCES_FILE_ZIP);
+            log.info("Copying " + localArtifact);
+            FileUtils.copyFile(localArtifact, dataFileLocation);
+            this.metrics.recordDownload(jenkinsJobName, System.nanoTime() - downloadStart, 0);
+
+            unzipStart = System.nanoTime();
+            if (this.analyzeFromArchive) {
+                Unzipper.unzipEntries(dataFileSavePath, unzippedFolder,
+                        Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR + Jenkins.JACOCO_DATAFILE_NAME);
+            } else {
+                Unzipper.unzipFile(dataFileSavePath, unzippedFolder);
+                FileUtils.forceDelete(dataFileLocation);
+            }
+        } else if (this.artifactCache != null && this.artifactCache.isEnabled()) {
+            if (Jenkins.LAST_SUCCESSFUL_BUILD.equals(buildReference)) {
+                /* Without a build number the kept copy is revalidated, costing a single round trip if unchanged */
+                this.artifactCache.copyRevalidatedArtifact(jenkinsJob, dataFileLocation, artifactFile -> {
+                    log.info("Revalidating " + jacocoSourcesFileRequestURL);
+                    if (FileDownloader.downloadConditionallyWithBasicAuth(this.httpClient, jacocoSourcesFileRequestURL,
+                            artifactFile, this.jenkinsAuthString)) {
+                        downloadedBytes.set(artifactFile.length());
+                    }
+                });
+            } else {
+                /* A concrete build number identifies the artifact, so it is downloaded only if not cached already */
+                this.artifactCache.copyArtifact(jenkinsJob, buildReference, dataFileLocation, artifactFile -> {
+                    log.info("Downloading " + jacocoSourcesFileRequestURL);
+                    if (FileDownloader.downloadConditionallyWithBasicAuth(this.httpClient, jacocoSourcesFileRequestURL,
+                            artifactFile, this.jenkinsAuthString)) {
+                        downloadedBytes.set(artifactFile.length());
+                    }
+                });
+            }
+            this.metrics.recordDownload(jenkinsJobName, System.nanoTime() - downloadStart, downloadedBytes.get());
+
+            unzipStart = System.nanoTime();
+            if (this.analyzeFromArchive) {
+                Unzipper.unzipEntries(dataFileSavePath, unzippedFolder,
+                        Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR + Jenkins.JACOCO_DATAFILE_NAME);
+            } else {
+                Unzipper.unzipFile(dataFileSavePath, unzippedFolder);
+                FileUtils.forceDelete(dataFileLocation);
+            }
+        } else if (this.streamingUnzip && this.analyzeFromArchive) {
+            /*
+            Save the zip file for the analysis while the execution data is extracted from the same stream, so that the
+            zip file is read only once
+             */
+            log.info("Downloading and extracting " + jacocoSourcesFileRequestURL);
+            FileDownloader.downloadAndUnzipEntriesWithBasicAuth(this.httpClient, jacocoSourcesFileRequestURL,
+                    dataFileLocation, unzippedFolder,
+                    Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR + Jenkins.JACOCO_DATAFILE_NAME,
+                    this.jenkinsAuthString);
+            this.metrics.recordDownload(jenkinsJobName, System.nanoTime() - downloadStart, dataFileLocation.length());
+
+            unzipStart = System.nanoTime();
+        } else if (this.streamingUnzip) {
+            /*
+            Extract the entries while they are received, without saving the zip file. Unzipping is part of the
+            download, and the extracted size is recorded as the compressed size is not known
+             */
+            log.info("Downloading and extracting " + jacocoSourcesFileRequestURL);
+            FileDownloader.downloadAndUnzipWithBasicAuth(this.httpClient, jacocoSourcesFileRequestURL, unzippedFolder,
+                    this.jenkinsAuthString);
+            this.metrics.recordDownload(jenkinsJobName, System.nanoTime() - downloadStart,
+                    FileUtils.sizeOfDirectory(unzippedFolder));
+
+            unzipStart = System.nanoTime();
+        } else if (this.analyzeFromArchive) {
+            /* Keep the zip file for the analysis and extract only the execution data */
+            if (dataFileLocation.exists()) FileUtils.forceDelete(dataFileLocation);
+
+            log.info("Downloading " + jacocoSourcesFileRequestURL);
+            downloadFile(jacocoSourcesFileRequestURL, dataFileLocation, this.jenkinsAuthString);
+            this.metrics.recordDownload(jenkinsJobName, System.nanoTime() - downloadStart, dataFileLocation.length());
+
+            unzipStart = System.nanoTime();
+            Unzipper.unzipEntries(dataFileSavePath, unzippedFolder,
+                    Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR + Jenkins.JACOCO_DATAFILE_NAME);
+        } else {
+            /* Clear existing file */
+            if (dataFileLocation.exists()) FileUtils.forceDelete(dataFileLocation);
+
+            log.info("Downloading " + jacocoSourcesFileRequestURL);
+            downloadFile(jacocoSourcesFileRequestURL, dataFileLocation, this.jenkinsAuthString);
+            this.metrics.recordDownload(jenkinsJobName, System.nanoTime() - downloadStart, dataFileLocation.length());
+
+            unzipStart = System.nanoTime();
+            if (!unzippedFolder.exists()) unzippedFolder.mkdirs();
+
+            Unzipper.unzipFile(dataFileSavePath, unzippedFolder);
+        }
+        this.metrics.recordUnzip(jenkinsJobName, System.nanoTime() - unzipStart);
 
         /*
         If jacoco.exec file exists for the component, save the path for merging process
@@ -153,26 +340,266 @@ public class JenkinsServer {
     }
 
     /**
-     * Download all jacoco data files from the last successful build in Jenkins server
+     * Resolve the last successful build of a job to a concrete build number, so that the artifacts can be cached
+     * per build. If the build number cannot be resolved, the last successful build is used as it is. Jobs of the local
+     * artifacts folder are never given a build number, as a local rebuild may differ from the Jenkins build of the
+     * same number. Their artifacts and execution data are then never taken from the caches keyed by build number
+     *
+     * @param jenkinsJob     Jenkins job of the component
+     * @param jenkinsJobName Name of the job without its folders
+     * @return Build number or the last successful build reference
+     */
+    private String resolveBuildReference(String jenkinsJob, String jenkinsJobName) {
+
+        String buildReference;
+        if (this.localArtifactsDirectory != null) {
+            return Jenkins.LAST_SUCCESSFUL_BUILD;
+        } else if (jenkinsJob.equals("ballerina-platform/job/ballerina")) {
+            buildReference = "2258";
+        } else {
+            String buildNumberRequestURL = this.jenkinsServerURL
+                    + General.URL_SEPARATOR
+                    + jenkinsJob
+                    + General.URL_SEPARATOR
+                    + Jenkins.LAST_SUCCESSFUL_BUILD
+                    + General.URL_SEPARATOR
+                    + Jenkins.BUILD_NUMBER;
+            try {
+                buildReference = Long.toString(Long.parseLong(FileDownloader.readWithBasicAuth(this.httpClient,
+                        buildNumberRequestURL, this.jenkinsAuthString).trim()));
+            } catch (IOException | NumberFormatException e) {
+                log.warn("Could not resolve the last successful build of " + jenkinsJob + ". Using the last successful build reference");
+                return Jenkins.LAST_SUCCESSFUL_BUILD;
+            }
+        }
+        this.resolvedBuildNumbers.put(jenkinsJobName, buildReference);
+        return buildReference;
+    }
+
+    /**
+     * Resolve the last successful build of every job of the product area ahead of downloading. The downloads then use
+     * the resolved build numbers. Jobs are resolved concurrently under the same download permits and timeout as the
+     * downloads, and a job exceeding the timeout is left unresolved
+     *
+     * @return Map of Jenkins job names to build numbers, for the jobs whose build number could be resolved
+     */
+    public Map<String, String> resolveBuildNumbers() {
+
+        ArrayList<String> unresolvedJenkinsJobs = new ArrayList<>();
+        for (String jenkinsJob : this.productAreaJenkinsJobs) {
+            if (!this.resolvedBuildNumbers.containsKey(getJenkinsJobName(jenkinsJob))) {
+                unresolvedJenkinsJobs.add(jenkinsJob);
+            }
+        }
+        runJobTasks(unresolvedJenkinsJobs, "Resolving build numbers",
+                jenkinsJob -> resolveBuildReference(jenkinsJob, getJenkinsJobName(jenkinsJob)));
+        return this.resolvedBuildNumbers;
+    }
+
+    /**
+     * Get the build numbers the artifacts of each job were downloaded from
+     *
+     * @return Map of Jenkins job names to build numbers, for the jobs whose build number could be resolved
+     */
+    public Map<String, String> getResolvedBuildNumbers() {
+
+        return this.resolvedBuildNumbers;
+    }
+
+    /**
+     * Get the jacoco data files downloaded by the last call to downloadCoverageFiles
+     *
+     * @return Map of Jenkins job names to the location of their jacoco data file, in the order of the jobs
+     */
+    public LinkedHashMap<String, String> getDownloadedDataFiles() {
+
+        return this.downloadedDataFiles;
+    }
+
+    private static String getJenkinsJobName(String jenkinsJob) {
+
+        String[] jenkinsJobSplit = jenkinsJob.split(General.URL_SEPARATOR);
+        return jenkinsJobSplit[jenkinsJobSplit.length - 1];
+    }
+
+    /**
+     * Download all jacoco data files from the last successful build in Jenkins server. Jobs are downloaded
+     * concurrently, bounded by the per host download parallelism, and a job exceeding the download timeout is skipped
      */
     public ArrayList<String> downloadCoverageFiles() {
 
-        ArrayList<String> jacocoDataFiles = new ArrayList<>();
-        for (String eachJenkinsJob : this.productAreaJenkinsJobs) {
+        this.downloadedDataFiles.clear();
+        LinkedHashMap<String, String> jacocoDataFiles = runJobTasks(Arrays.asList(this.productAreaJenkinsJobs),
+                "Downloading coverage files", this::downloadJacocoSources);
+        for (Map.Entry<String, String> eachDataFile : jacocoDataFiles.entrySet()) {
+            this.downloadedDataFiles.put(getJenkinsJobName(eachDataFile.getKey()), eachDataFile.getValue());
+        }
+        return new ArrayList<>(jacocoDataFiles.values());
+    }
+
+    /**
+     * Run a task for each of the given jobs concurrently, bounded by the per host download parallelism. A job whose
+     * task fails or exceeds the download timeout is skipped
+     *
+     * @param jenkinsJobs Jenkins jobs to run the task for
+     * @param stage       Description of the task, for logging
+     * @param task        Task talking to Jenkins for a single job
+     * @return Map of Jenkins jobs to the non null results of their task, in the order of the jobs
+     */
+    private LinkedHashMap<String, String> runJobTasks(List<String> jenkinsJobs, String stage, JobTask task) {
 
-            try {
-                String jacocoDataFile = downloadJacocoSources(eachJenkinsJob);
-                if (jacocoDataFile != null) {
-                    jacocoDataFiles.add(jacocoDataFile);
+        LinkedHashMap<String, String> results = new LinkedHashMap<>();
+        if (jenkinsJobs.isEmpty()) {
+            return results;
+        }
+
+        Semaphore downloadPermits = getHostDownloadPermits();
+        ExecutorService jobExecutor = Executors.newFixedThreadPool(Math.min(this.httpClient.getDownloadParallelism(),
+                jenkinsJobs.size()));
+        try {
+            /* Keep submission order so that the data files are merged in the order of the product area jobs */
+            LinkedHashMap<JenkinsJobTask, Future<String>> jobTasks = new LinkedHashMap<>();
+            for (String eachJenkinsJob : jenkinsJobs) {
+                JenkinsJobTask jobTask = new JenkinsJobTask(eachJenkinsJob, task, downloadPermits);
+                jobTasks.put(jobTask, jobExecutor.submit(jobTask));
+            }
+
+            for (Map.Entry<JenkinsJobTask, Future<String>> eachJobTask : jobTasks.entrySet()) {
+                String eachJenkinsJob = eachJobTask.getKey().getJenkinsJob();
+                try {
+                    String result = awaitJobTask(eachJobTask.getKey(), eachJobTask.getValue());
+                    if (result != null) {
+                        results.put(eachJenkinsJob, result);
+                    }
+                } catch (TimeoutException e) {
+                    /* Interrupting does not stop a blocking socket read, so the request is aborted to free the permit */
+                    eachJobTask.getKey().abort();
+                    eachJobTask.getValue().cancel(true);
+                    log.error(stage + " exceeded " + this.downloadTimeoutSeconds + " seconds. Skipping " + eachJenkinsJob);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        log.error(stage + " from jenkins failed. Skipping " + eachJenkinsJob);
+                    } else {
+                        log.fatal("Server connection error. Skipping " + eachJenkinsJob);
+                    }
+                } catch (InterruptedException e) {
+                    log.error("Interrupted while " + stage.toLowerCase() + ". Skipping remaining jobs");
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            jobExecutor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /**
+     * Wait for a job task to finish. The timeout is counted from the moment the task actually started, so jobs
+     * waiting for a download permit are not penalized
+     *
+     * @param jobTask  Job task
+     * @param future   Pending result of the job task
+     * @return Result of the job task
+     */
+    private String awaitJobTask(JenkinsJobTask jobTask, Future<String> future)
+            throws InterruptedException, ExecutionException, TimeoutException {
+
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(this.downloadTimeoutSeconds);
+        while (true) {
+            long waitNanos = timeoutNanos;
+            if (jobTask.isStarted()) {
+                waitNanos = timeoutNanos - jobTask.getElapsedNanos();
+                if (waitNanos <= 0) {
+                    throw new TimeoutException("Timed out for " + jobTask.getJenkinsJob());
                 }
-            } catch (IOException e) {
-                log.error("Error while downloading coverage files from jenkins. Skipping " + eachJenkinsJob);
-            } catch (Exception e) {
-                log.fatal("Server connection error. Skipping " + eachJenkinsJob);
             }
+            try {
+                return future.get(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                /* Re-evaluate the remaining time as the task may have started while waiting */
+            }
+        }
+    }
+
+    /**
+     * Get the download permits of the configured Jenkins host, shared through the HTTP client by every Jenkins server
+     * model talking to the same host
+     *
+     * @return Semaphore limiting concurrent downloads from the Jenkins host
+     */
+    private Semaphore getHostDownloadPermits() {
+
+        String jenkinsHost;
+        try {
+            jenkinsHost = new URL(this.jenkinsServerURL).getHost();
+        } catch (IOException e) {
+            /* Local artifacts need no Jenkins server URL */
+            jenkinsHost = String.valueOf(this.jenkinsServerURL);
+        }
+        return this.httpClient.getHostDownloadPermits(jenkinsHost);
+    }
+
+    /*
+    Task talking to Jenkins for a single job, e.g. downloading its jacoco sources
+     */
+    private interface JobTask {
+
+        String run(String jenkinsJob) throws Exception;
+    }
+
+    /*
+    Job task run under a download permit, whose requests are aborted once it exceeds the download timeout
+     */
+    private class JenkinsJobTask implements Callable<String> {
+
+        private final String jenkinsJob;
+        private final JobTask task;
+        private final Semaphore downloadPermits;
+        private final JenkinsHttpClient.AbortHandle abortHandle = new JenkinsHttpClient.AbortHandle();
+        private volatile long startedAt;
+        private volatile boolean started;
+
+        JenkinsJobTask(String jenkinsJob, JobTask task, Semaphore downloadPermits) {
+
+            this.jenkinsJob = jenkinsJob;
+            this.task = task;
+            this.downloadPermits = downloadPermits;
+        }
+
+        @Override
+        public String call() throws Exception {
+
+            this.downloadPermits.acquire();
+            try {
+                this.startedAt = System.nanoTime();
+                this.started = true;
+                return httpClient.callAbortable(this.abortHandle, () -> this.task.run(this.jenkinsJob));
+            } finally {
+                this.downloadPermits.release();
+            }
+        }
+
+        void abort() {
+
+            this.abortHandle.abort();
+        }
+
+        String getJenkinsJob() {
+
+            return this.jenkinsJob;
+        }
+
+        boolean isStarted() {
+
+            return this.started;
         }
 
-        return jacocoDataFiles;
+        long getElapsedNanos() {
+
+            return System.nanoTime() - this.startedAt;
+        }
     }
 
     /**
@@ -218,14 +645,4 @@ public class JenkinsServer {
 
         return this.temporaryProductAreaWorkspace;
     }
-
-    /**
-     * Remove temporary workspace
-     *
-     * @throws IOException Unable to delete the temporary workspace
-     */
-    public void clearTemporaryData() throws IOException {
-
-        FileUtils.deleteDirectory(this.temporaryProductAreaWorkspace.toFile());
-    }
 }
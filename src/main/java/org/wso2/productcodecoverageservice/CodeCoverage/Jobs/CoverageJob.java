@@ -0,0 +1,128 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jobs;
+
+import org.wso2.productcodecoverageservice.codecoverage.CodeCoverageService;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.CoverageJobStatus;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductArea;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaCodeCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaProgress;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductsCodeCoverage;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+Asynchronous code coverage calculation of a products payload, tracking the progress of each product area
+ */
+public class CoverageJob implements CodeCoverageService.ProductAreaListener {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String jobId;
+    private final Products products;
+    private final long submittedAt = System.currentTimeMillis();
+    private final AtomicReferenceArray<Status> productAreaStatuses;
+    private volatile Status status = Status.QUEUED;
+    private volatile ProductsCodeCoverage result;
+    private volatile Long completedAt;
+
+    CoverageJob(String jobId, Products products) {
+
+        this.jobId = jobId;
+        this.products = products;
+        this.productAreaStatuses = new AtomicReferenceArray<>(products.getProductAreas().length);
+        for (int i = 0; i < products.getProductAreas().length; i++) {
+            this.productAreaStatuses.set(i, Status.QUEUED);
+        }
+    }
+
+    /**
+     * Calculate the coverage of the products payload and keep the result
+     *
+     * @param codeCoverageService Service calculating the coverage
+     */
+    void run(CodeCoverageService codeCoverageService) {
+
+        this.status = Status.RUNNING;
+        try {
+            this.result = codeCoverageService.calculateCoverage(this.products, this);
+            this.status = Status.COMPLETED;
+        } catch (RuntimeException e) {
+            this.status = Status.FAILED;
+            throw e;
+        } finally {
+            this.completedAt = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public void started(int index) {
+
+        this.productAreaStatuses.set(index, Status.RUNNING);
+    }
+
+    @Override
+    public void finished(int index, ProductAreaCodeCoverage productAreaCodeCoverage) {
+
+        /* Product areas which could not be evaluated are reported without coverage data */
+        this.productAreaStatuses.set(index, productAreaCodeCoverage.getComponentCodeCoverage() != null
+                ? Status.COMPLETED : Status.FAILED);
+    }
+
+    /**
+     * Get the progress of the job and each of its product areas
+     *
+     * @return Job status
+     */
+    public CoverageJobStatus getJobStatus() {
+
+        ProductArea[] productAreas = this.products.getProductAreas();
+        ProductAreaProgress[] productAreaProgress = new ProductAreaProgress[productAreas.length];
+        for (int i = 0; i < productAreas.length; i++) {
+            productAreaProgress[i] = new ProductAreaProgress(
+                    productAreas[i] != null ? productAreas[i].getProductId() : null,
+                    this.productAreaStatuses.get(i).name());
+        }
+        return new CoverageJobStatus(this.jobId, this.status.name(), this.submittedAt, this.completedAt,
+                productAreaProgress);
+    }
+
+    public String getJobId() {
+
+        return this.jobId;
+    }
+
+    public Status getStatus() {
+
+        return this.status;
+    }
+
+    public ProductsCodeCoverage getResult() {
+
+        return this.result;
+    }
+
+    public Long getCompletedAt() {
+
+        return this.completedAt;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jobs;
+
+import org.apache.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductsCodeCoverage;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+public class CoverageJobController {
+
+    private static final Logger log = Logger.getLogger(CoverageJobController.class);
+    private final CoverageJobManager coverageJobManager;
+
+    public CoverageJobController(CoverageJobManager coverageJobManager) {
+
+        this.coverageJobManager = coverageJobManager;
+    }
+
+    @RequestMapping(value = {Coverage.POST_COVERAGE_JOB_REQUEST}, method = {RequestMethod.POST})
+    public ResponseEntity<?> submitCoverageJob(@RequestBody Products products) {
+
+        if (products == null || products.getProductAreas() == null) {
+            log.error("Invalid request data. Code coverage job is not created");
+            return ResponseEntity.badRequest().body(new ProductsCodeCoverage("Invalid request data"));
+        }
+        try {
+            CoverageJob job = this.coverageJobManager.submit(products);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.getJobStatus());
+        } catch (RejectedExecutionException e) {
+            log.warn("Code coverage job queue is full. Rejecting the request");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(new ProductsCodeCoverage("Too many jobs"));
+        }
+    }
+
+    @RequestMapping(value = {Coverage.GET_COVERAGE_JOB_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<?> getCoverageJob(@PathVariable(Coverage.JOB_ID) String jobId) {
+
+        CoverageJob job = this.coverageJobManager.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.getJobStatus());
+    }
+
+    @RequestMapping(value = {Coverage.GET_COVERAGE_JOB_RESULT_REQUEST}, method = {RequestMethod.GET})
+    public ResponseEntity<?> getCoverageJobResult(@PathVariable(Coverage.JOB_ID) String jobId) {
+
+        CoverageJob job = this.coverageJobManager.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getResult() == null) {
+            /* Not finished yet, or failed without a result */
+            return ResponseEntity.status(job.getStatus() == CoverageJob.Status.FAILED
+                    ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.ACCEPTED).body(job.getJobStatus());
+        }
+        return ResponseEntity.ok(job.getResult());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.jobs;
+
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.codecoverage.CodeCoverageService;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Runs asynchronous code coverage jobs on a bounded queue and keeps finished jobs for the retention period
+ */
+@Component
+public class CoverageJobManager {
+
+    private static final Logger log = Logger.getLogger(CoverageJobManager.class);
+    private final CodeCoverageService codeCoverageService;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ScheduledExecutorService retentionExecutor;
+    private final ConcurrentHashMap<String, CoverageJob> jobs = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+
+    public CoverageJobManager(CodeCoverageService codeCoverageService) throws IOException {
+
+        this.codeCoverageService = codeCoverageService;
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        int jobWorkers = Integer.parseInt(application.getProperty(Coverage.JOB_WORKERS,
+                Integer.toString(Coverage.DEFAULT_JOB_WORKERS)).trim());
+        int jobQueueSize = Integer.parseInt(application.getProperty(Coverage.JOB_QUEUE_SIZE,
+                Integer.toString(Coverage.DEFAULT_JOB_QUEUE_SIZE)).trim());
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(Long.parseLong(application.getProperty(
+                Coverage.JOB_RETENTION_MINUTES, Long.toString(Coverage.DEFAULT_JOB_RETENTION_MINUTES)).trim()));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(jobWorkers, jobWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jobQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "coverage-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.retentionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coverage-job-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retentionExecutor.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Queue a code coverage job for the products payload
+     *
+     * @param products Product areas to be evaluated
+     * @return Queued job
+     * @throws RejectedExecutionException If the job queue is full
+     */
+    public CoverageJob submit(Products products) {
+
+        CoverageJob job = new CoverageJob(UUID.randomUUID().toString(), products);
+        this.jobs.put(job.getJobId(), job);
+        try {
+            this.jobExecutor.execute(() -> {
+                log.info("Starting code coverage job " + job.getJobId());
+                job.run(this.codeCoverageService);
+                log.info("Code coverage job " + job.getJobId() + " finished with status " + job.getStatus());
+            });
+        } catch (RejectedExecutionException e) {
+            this.jobs.remove(job.getJobId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Find a job which is queued, running or finished within the retention period
+     *
+     * @param jobId ID of the job
+     * @return The job or null if it is unknown or expired
+     */
+    public CoverageJob getJob(String jobId) {
+
+        return this.jobs.get(jobId);
+    }
+
+    private void removeExpiredJobs() {
+
+        long expiredBefore = System.currentTimeMillis() - this.retentionMillis;
+        this.jobs.values().removeIf(job -> job.getCompletedAt() != null && job.getCompletedAt() < expiredBefore);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        this.jobExecutor.shutdownNow();
+        this.retentionExecutor.shutdownNow();
+    }
+}
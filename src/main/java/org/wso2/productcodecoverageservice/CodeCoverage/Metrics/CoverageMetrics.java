@@ -0,0 +1,141 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Constants.Metrics;
+import org.wso2.productcodecoverageservice.codecoverage.workspace.WorkspaceManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Timing and resource metrics of the coverage calculation stages, published to the actuator metrics endpoint
+ */
+@Component
+public class CoverageMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final AtomicInteger productAreasInFlight = new AtomicInteger();
+
+    public CoverageMetrics(MeterRegistry registry, WorkspaceManager workspaceManager) {
+
+        this.registry = registry;
+        registry.gauge(Metrics.REQUESTS_IN_FLIGHT, this.requestsInFlight, AtomicInteger::get);
+        registry.gauge(Metrics.PRODUCT_AREAS_IN_FLIGHT, this.productAreasInFlight, AtomicInteger::get);
+        if (workspaceManager != null) {
+            registry.gauge(Metrics.WORKSPACE_DISK_USAGE, workspaceManager, WorkspaceManager::getDiskUsage);
+        }
+    }
+
+    /**
+     * Create metrics which are kept in memory only, for code running outside of the service such as benchmarks
+     *
+     * @return Metrics recorded to a registry of their own
+     */
+    public static CoverageMetrics unpublished() {
+
+        return new CoverageMetrics(new SimpleMeterRegistry(), null);
+    }
+
+    /**
+     * Record the download of the artifacts of a Jenkins job
+     *
+     * @param jenkinsJobName Name of the Jenkins job
+     * @param durationNanos  Time taken by the download, including cache lookups
+     * @param bytes          Bytes received from Jenkins, 0 if the cached artifact was used
+     */
+    public void recordDownload(String jenkinsJobName, long durationNanos, long bytes) {
+
+        Timer.builder(Metrics.DOWNLOAD).tag(Metrics.JOB_TAG, jenkinsJobName).register(this.registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(Metrics.DOWNLOAD_BYTES).baseUnit(Metrics.BYTES).tag(Metrics.JOB_TAG, jenkinsJobName)
+                .register(this.registry).record(bytes);
+    }
+
+    public void recordUnzip(String jenkinsJobName, long durationNanos) {
+
+        Timer.builder(Metrics.UNZIP).tag(Metrics.JOB_TAG, jenkinsJobName).register(this.registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMerge(String productId, long durationNanos) {
+
+        Timer.builder(Metrics.MERGE).tag(Metrics.PRODUCT_AREA_TAG, String.valueOf(productId)).register(this.registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAnalysis(String component, long durationNanos) {
+
+        Timer.builder(Metrics.ANALYSIS).tag(Metrics.COMPONENT_TAG, component).register(this.registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordReport(String component, long durationNanos) {
+
+        Timer.builder(Metrics.REPORT).tag(Metrics.COMPONENT_TAG, component).register(this.registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count a coverage request as in flight until the returned handle is closed
+     *
+     * @return Handle ending the request
+     */
+    public InFlight requestStarted() {
+
+        this.requestsInFlight.incrementAndGet();
+        return this.requestsInFlight::decrementAndGet;
+    }
+
+    /**
+     * Count a product area as in flight until the returned handle is closed
+     *
+     * @return Handle ending the product area
+     */
+    public InFlight productAreaStarted() {
+
+        this.productAreasInFlight.incrementAndGet();
+        return this.productAreasInFlight::decrementAndGet;
+    }
+
+    public int getRequestsInFlight() {
+
+        return this.requestsInFlight.get();
+    }
+
+    public MeterRegistry getRegistry() {
+
+        return this.registry;
+    }
+
+    /*
+    Handle of an in flight request or product area
+     */
+    public interface InFlight extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
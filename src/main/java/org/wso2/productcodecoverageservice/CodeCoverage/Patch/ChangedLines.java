@@ -0,0 +1,215 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.patch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+Lines added or modified by a patch, by the repository path of their file. Source files of the analyzed classes are only
+known by their package and file name, so a changed file matches a source file when its path ends with the package
+folders and the file name, e.g. modules/core/src/main/java/org/wso2/Example.java matches org/wso2/Example.java
+ */
+public class ChangedLines {
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@.*");
+    private static final Pattern LINE_RANGE = Pattern.compile("(\\d+)(?:-(\\d+))?");
+    private static final String NEW_FILE_PREFIX = "+++ ";
+    private static final String NO_FILE = "/dev/null";
+    private static final String PATH_SEPARATOR = "/";
+    private static final int MAX_RANGE_LINES = 100000;
+
+    private final SortedMap<String, SortedSet<Integer>> files;
+    /*
+    Changed files by each trailing part of their path, and the trailing parts of the folders of the changed files
+     */
+    private final Map<String, List<String>> filesByPathSuffix = new HashMap<>();
+    private final HashSet<String> folderSuffixes = new HashSet<>();
+
+    private ChangedLines(SortedMap<String, SortedSet<Integer>> files) {
+
+        this.files = Collections.unmodifiableSortedMap(files);
+        this.folderSuffixes.add("");
+        for (String file : files.keySet()) {
+            for (String pathSuffix : getPathSuffixes(file)) {
+                this.filesByPathSuffix.computeIfAbsent(pathSuffix, key -> new ArrayList<>()).add(file);
+            }
+            int fileSeparator = file.lastIndexOf(PATH_SEPARATOR);
+            if (fileSeparator > 0) {
+                this.folderSuffixes.addAll(getPathSuffixes(file.substring(0, fileSeparator)));
+            }
+        }
+    }
+
+    /**
+     * Get a path and each trailing part of it starting after a separator, e.g. a/b/C.java, b/C.java and C.java
+     */
+    private static List<String> getPathSuffixes(String path) {
+
+        List<String> pathSuffixes = new ArrayList<>();
+        int start = 0;
+        while (start >= 0) {
+            pathSuffixes.add(path.substring(start));
+            int separator = path.indexOf(PATH_SEPARATOR, start);
+            start = separator >= 0 ? separator + 1 : -1;
+        }
+        return pathSuffixes;
+    }
+
+    /**
+     * Read the added and modified lines of a unified diff, as produced by git diff. Removed lines have no coverage in
+     * the new sources and are left out
+     *
+     * @param diff Unified diff
+     * @return Changed lines of the files of the diff
+     * @throws IllegalArgumentException If a hunk header is malformed
+     */
+    public static ChangedLines fromUnifiedDiff(String diff) {
+
+        TreeMap<String, SortedSet<Integer>> files = new TreeMap<>();
+        SortedSet<Integer> fileLines = null;
+        int newLine = 0;
+        int remainingLines = 0;
+        for (String line : diff.split("\r?\n")) {
+            if (remainingLines > 0) {
+                if (line.startsWith("+")) {
+                    if (fileLines != null) {
+                        fileLines.add(newLine);
+                    }
+                    newLine++;
+                    remainingLines--;
+                } else if (line.startsWith(" ") || line.isEmpty()) {
+                    newLine++;
+                    remainingLines--;
+                }
+                /* Removed lines and "\ No newline at end of file" markers take no line of the new file */
+                continue;
+            }
+            if (line.startsWith(NEW_FILE_PREFIX)) {
+                String path = line.substring(NEW_FILE_PREFIX.length()).split("\t")[0].trim();
+                fileLines = NO_FILE.equals(path) ? null
+                        : files.computeIfAbsent(normalizePath(path.startsWith("b/") ? path.substring(2) : path),
+                        key -> new TreeSet<>());
+            } else if (line.startsWith("@@")) {
+                Matcher hunkHeader = HUNK_HEADER.matcher(line);
+                if (!hunkHeader.matches()) {
+                    throw new IllegalArgumentException("Invalid hunk header " + line);
+                }
+                newLine = Integer.parseInt(hunkHeader.group(1));
+                remainingLines = hunkHeader.group(2) != null ? Integer.parseInt(hunkHeader.group(2)) : 1;
+            }
+        }
+        files.values().removeIf(SortedSet::isEmpty);
+        return new ChangedLines(files);
+    }
+
+    /**
+     * Read changed lines given as file and line ranges, e.g. src/main/java/org/wso2/Example.java:10-20,35
+     *
+     * @param lineRanges File and comma separated line ranges of each changed file
+     * @return Changed lines of the files
+     * @throws IllegalArgumentException If an entry has no file or has malformed line ranges
+     */
+    public static ChangedLines fromLineRanges(String[] lineRanges) {
+
+        TreeMap<String, SortedSet<Integer>> files = new TreeMap<>();
+        for (String lineRange : lineRanges) {
+            int separator = lineRange.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid line range " + lineRange);
+            }
+            SortedSet<Integer> fileLines = files.computeIfAbsent(normalizePath(lineRange.substring(0, separator)),
+                    key -> new TreeSet<>());
+            for (String range : lineRange.substring(separator + 1).split(",")) {
+                Matcher rangeMatcher = LINE_RANGE.matcher(range.trim());
+                if (!rangeMatcher.matches()) {
+                    throw new IllegalArgumentException("Invalid line range " + lineRange);
+                }
+                int first = Integer.parseInt(rangeMatcher.group(1));
+                int last = rangeMatcher.group(2) != null ? Integer.parseInt(rangeMatcher.group(2)) : first;
+                if (last < first || last - first >= MAX_RANGE_LINES) {
+                    throw new IllegalArgumentException("Invalid line range " + lineRange);
+                }
+                for (int line = first; line <= last; line++) {
+                    fileLines.add(line);
+                }
+            }
+        }
+        return new ChangedLines(files);
+    }
+
+    private static String normalizePath(String path) {
+
+        String normalizedPath = path.trim().replace('\\', '/');
+        while (normalizedPath.startsWith("./") || normalizedPath.startsWith(PATH_SEPARATOR)) {
+            normalizedPath = normalizedPath.substring(normalizedPath.startsWith("./") ? 2 : 1);
+        }
+        return normalizedPath;
+    }
+
+    /**
+     * Get the changed lines of each file
+     *
+     * @return Changed line numbers by file path
+     */
+    public SortedMap<String, SortedSet<Integer>> getFiles() {
+
+        return this.files;
+    }
+
+    public boolean isEmpty() {
+
+        return this.files.isEmpty();
+    }
+
+    /**
+     * Check whether a changed file may belong to a package, so that the classes of other packages need no analysis
+     *
+     * @param packageName VM name of the package, e.g. org/wso2
+     * @return True if the folder of a changed file ends with the package folders
+     */
+    public boolean containsPackage(String packageName) {
+
+        return this.folderSuffixes.contains(packageName);
+    }
+
+    /**
+     * Get the changed files matching a source file of the analysis
+     *
+     * @param packageName    VM name of the package of the source file
+     * @param sourceFileName Name of the source file
+     * @return Paths of the changed files ending with the package folders and the source file name
+     */
+    public List<String> getMatchingFiles(String packageName, String sourceFileName) {
+
+        List<String> matchingFiles = this.filesByPathSuffix.get(packageName.isEmpty() ? sourceFileName
+                : packageName + PATH_SEPARATOR + sourceFileName);
+        return matchingFiles != null ? matchingFiles : Collections.<String>emptyList();
+    }
+}
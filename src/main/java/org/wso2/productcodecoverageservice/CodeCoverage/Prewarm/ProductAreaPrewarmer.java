@@ -0,0 +1,194 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.prewarm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Prewarm;
+import org.wso2.productcodecoverageservice.codecoverage.CodeCoverageService;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductArea;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaCodeCoverage;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.Products;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Computes the coverage of configured product areas on a cron schedule, so that the artifact, execution data and result
+caches are filled before the coverage is requested. Product areas are computed one at a time on a low priority thread
+of their own, and their classes are analyzed on a small low priority pool rather than on the executor and pool of the
+requests. Each product area is started only when no coverage request is in flight, so that pre-warming never competes
+with waiting users
+ */
+@Component
+public class ProductAreaPrewarmer {
+
+    private static final Logger log = Logger.getLogger(ProductAreaPrewarmer.class);
+    private final CodeCoverageService codeCoverageService;
+    private final CoverageMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final CronSequenceGenerator schedule;
+    /*
+    Product areas given inline in the application properties, or null if they are read from the product areas file
+     */
+    private final Products inlineProducts;
+    private final File productAreasFile;
+    private final long idlePollMillis;
+    private final ScheduledExecutorService prewarmExecutor;
+    private final ForkJoinPool prewarmAnalysisPool;
+
+    public ProductAreaPrewarmer(CodeCoverageService codeCoverageService, CoverageMetrics metrics,
+                                ObjectMapper objectMapper) throws IOException {
+
+        this.codeCoverageService = codeCoverageService;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        String cron = application.getProperty(Prewarm.CRON, "").trim();
+        String inlineProductAreas = application.getProperty(Prewarm.PRODUCT_AREAS, "").trim();
+        this.inlineProducts = inlineProductAreas.isEmpty() ? null
+                : objectMapper.readValue(inlineProductAreas, Products.class);
+        this.productAreasFile = new File(application.getProperty(Prewarm.PRODUCT_AREAS_FILE, "").trim());
+        this.idlePollMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(application.getProperty(
+                Prewarm.IDLE_POLL_SECONDS, Long.toString(Prewarm.DEFAULT_IDLE_POLL_SECONDS)).trim()));
+
+        if (cron.isEmpty()) {
+            this.schedule = null;
+            this.prewarmExecutor = null;
+            this.prewarmAnalysisPool = null;
+            return;
+        }
+        if (!CronSequenceGenerator.isValidExpression(cron)) {
+            throw new IllegalArgumentException("Invalid cron expression " + cron + " in " + Prewarm.CRON);
+        }
+        this.schedule = new CronSequenceGenerator(cron);
+        this.prewarmExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coverage-prewarm");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        int analysisParallelism = Integer.parseInt(application.getProperty(Prewarm.ANALYSIS_PARALLELISM,
+                Integer.toString(Prewarm.DEFAULT_ANALYSIS_PARALLELISM)).trim());
+        this.prewarmAnalysisPool = new ForkJoinPool(Math.max(1, analysisParallelism), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("coverage-prewarm-analysis-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+        scheduleNextRun();
+        log.info("Pre-warming product areas of " + getProductAreasSource() + " on " + cron);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        if (this.prewarmExecutor != null) {
+            this.prewarmExecutor.shutdownNow();
+            this.prewarmAnalysisPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedule the next run at the next time matching the cron expression. A run taking longer than the interval of
+     * the schedule skips the times it overlaps
+     */
+    private void scheduleNextRun() {
+
+        long delayMillis = this.schedule.next(new Date()).getTime() - System.currentTimeMillis();
+        this.prewarmExecutor.schedule(this::prewarm, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compute the coverage of each configured product area through the regular coverage path, on the pre-warming
+     * thread and analysis pool. A product areas file is read on every run, so that the list can be changed without a
+     * restart
+     */
+    private void prewarm() {
+
+        try {
+            Products products = this.inlineProducts != null ? this.inlineProducts
+                    : this.objectMapper.readValue(this.productAreasFile, Products.class);
+            ProductArea[] productAreas = products != null ? products.getProductAreas() : null;
+            if (productAreas == null) {
+                log.warn("No product areas to pre-warm in " + getProductAreasSource());
+                return;
+            }
+            for (ProductArea productArea : productAreas) {
+                awaitIdle();
+                long prewarmStart = System.nanoTime();
+                ProductAreaCodeCoverage productAreaCodeCoverage = this.codeCoverageService
+                        .evaluateProductAreaInBackground(productArea, this.prewarmAnalysisPool);
+                if (productAreaCodeCoverage.getComponentCodeCoverage() == null) {
+                    log.warn("Could not pre-warm ProductID=" + productArea.getProductId());
+                } else {
+                    log.info("Pre-warmed ProductID=" + productArea.getProductId() + " in "
+                            + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - prewarmStart) + " seconds");
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not read the product areas to pre-warm from " + this.productAreasFile);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!this.prewarmExecutor.isShutdown()) {
+                scheduleNextRun();
+            }
+        }
+    }
+
+    private String getProductAreasSource() {
+
+        return this.inlineProducts != null ? Prewarm.PRODUCT_AREAS : this.productAreasFile.getPath();
+    }
+
+    /**
+     * Wait until no coverage request is in flight
+     *
+     * @throws InterruptedException If the service is shutting down
+     */
+    private void awaitIdle() throws InterruptedException {
+
+        while (this.metrics.getRequestsInFlight() > 0) {
+            Thread.sleep(this.idlePollMillis);
+        }
+    }
+}
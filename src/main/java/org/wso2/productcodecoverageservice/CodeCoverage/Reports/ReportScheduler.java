@@ -0,0 +1,183 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.reports;
+
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Report;
+import org.wso2.productcodecoverageservice.codecoverage.jacocoanalyzer.CoverageCalculator;
+import org.wso2.productcodecoverageservice.codecoverage.workspace.Workspace;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Generates html coverage reports of product area components off the coverage request path. Reports of different
+components are generated concurrently, while a single report is never written by two tasks at once. A report queued
+again before it started is generated once, from the latest calculation, so that the queue holds at most one report per
+component and never keeps the workspaces and calculators of superseded calculations
+ */
+@Component
+public class ReportScheduler {
+
+    private static final Logger log = Logger.getLogger(ReportScheduler.class);
+    private final boolean reportInBackground;
+    private final ExecutorService reportExecutor;
+    private final ConcurrentHashMap<String, Object> reportLocks = new ConcurrentHashMap<>();
+    /*
+    Latest calculation of each queued report which has not started yet
+     */
+    private final ConcurrentHashMap<String, PendingReport> pendingReports = new ConcurrentHashMap<>();
+
+    public ReportScheduler() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        this.reportInBackground = Boolean.parseBoolean(application.getProperty(Report.REPORT_IN_BACKGROUND,
+                Boolean.toString(Report.DEFAULT_REPORT_IN_BACKGROUND)).trim());
+        int reportParallelism = Integer.parseInt(application.getProperty(Report.REPORT_PARALLELISM,
+                Integer.toString(Report.DEFAULT_REPORT_PARALLELISM)).trim());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.reportExecutor = Executors.newFixedThreadPool(reportParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "coverage-report-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        this.reportExecutor.shutdownNow();
+    }
+
+    /**
+     * Generate the reports of the product area components. In background mode the reports are queued and the
+     * workspace is kept until the last of them is generated or superseded, otherwise they are generated before
+     * returning
+     *
+     * @param workspace  Workspace holding the classes and sources of the components
+     * @param calculator Coverage calculator holding the merged execution data of the product area
+     * @param productId  ID of the product area
+     * @param components Product area components
+     */
+    public void generateReports(Workspace workspace, CoverageCalculator calculator, String productId,
+                                String[] components) {
+
+        if (!this.reportInBackground) {
+            for (String component : components) {
+                generateReport(calculator, productId, component);
+            }
+            return;
+        }
+
+        workspace.retain();
+        AtomicInteger remainingReports = new AtomicInteger(components.length);
+        if (components.length == 0) {
+            workspace.release();
+        }
+        int queuedReports = 0;
+        for (String component : components) {
+            String reportKey = getReportKey(productId, component);
+            PendingReport replacedReport = this.pendingReports.put(reportKey,
+                    new PendingReport(calculator, workspace, remainingReports));
+            if (replacedReport != null) {
+                /* The queued task generates the report from this calculation instead */
+                replacedReport.release();
+                continue;
+            }
+            try {
+                this.reportExecutor.execute(() -> {
+                    PendingReport pendingReport = this.pendingReports.remove(reportKey);
+                    if (pendingReport != null) {
+                        try {
+                            generateReport(pendingReport.calculator, productId, component);
+                        } finally {
+                            pendingReport.release();
+                        }
+                    }
+                });
+                queuedReports++;
+            } catch (RejectedExecutionException e) {
+                log.warn("Report of " + component + " is not generated as the service is shutting down");
+                PendingReport pendingReport = this.pendingReports.remove(reportKey);
+                if (pendingReport != null) {
+                    pendingReport.release();
+                }
+            }
+        }
+        log.info("Queued " + queuedReports + " coverage reports of ProductID=" + productId + " and updated "
+                + (components.length - queuedReports) + " queued reports");
+    }
+
+    private static String getReportKey(String productId, String component) {
+
+        return productId + File.separator + component;
+    }
+
+    private void generateReport(CoverageCalculator calculator, String productId, String component) {
+
+        Object reportLock = this.reportLocks.computeIfAbsent(getReportKey(productId, component), key -> new Object());
+        synchronized (reportLock) {
+            calculator.generateCoverageReport(component);
+        }
+    }
+
+    /*
+    Calculation a queued report is generated from. The workspace of the calculation is released once every report of
+    the calculation is generated or superseded
+     */
+    private static class PendingReport {
+
+        private final CoverageCalculator calculator;
+        private final Workspace workspace;
+        private final AtomicInteger remainingReports;
+
+        private PendingReport(CoverageCalculator calculator, Workspace workspace, AtomicInteger remainingReports) {
+
+            this.calculator = calculator;
+            this.workspace = workspace;
+            this.remainingReports = remainingReports;
+        }
+
+        private void release() {
+
+            if (this.remainingReports.decrementAndGet() == 0) {
+                this.workspace.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.resultcache;
+
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductArea;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaCodeCoverage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+Bounded cache of product area results, keyed by the normalized product area definition and the build numbers of its
+components. Identical calculations running at the same time are coalesced into one
+ */
+@Component
+public class CoverageResultCache {
+
+    private static final Logger log = Logger.getLogger(CoverageResultCache.class);
+    private final int cacheSize;
+    private final long timeToLiveMillis;
+
+    /*
+    Completed results in access order, so that the least recently used result is evicted first
+     */
+    private final LinkedHashMap<String, CachedResult> results;
+
+    /*
+    Calculations in progress, joined by identical requests arriving meanwhile
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<ProductAreaCodeCoverage>> calculations = new ConcurrentHashMap<>();
+
+    /*
+    Incremented by every invalidation, guarded by the results lock
+     */
+    private long generation;
+
+    public CoverageResultCache() throws IOException {
+
+        this(loadApplicationProperties());
+    }
+
+    private CoverageResultCache(Properties application) {
+
+        this(Integer.parseInt(application.getProperty(Coverage.RESULT_CACHE_SIZE,
+                Integer.toString(Coverage.DEFAULT_RESULT_CACHE_SIZE)).trim()),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(application.getProperty(Coverage.RESULT_CACHE_TTL_MINUTES,
+                        Long.toString(Coverage.DEFAULT_RESULT_CACHE_TTL_MINUTES)).trim())));
+    }
+
+    /**
+     * Create a cache of the given size
+     *
+     * @param cacheSize        Maximum number of cached results, 0 to disable caching
+     * @param timeToLiveMillis Time a result is served from the cache
+     */
+    public CoverageResultCache(int cacheSize, long timeToLiveMillis) {
+
+        this.cacheSize = cacheSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.results = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    private static Properties loadApplicationProperties() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        return application;
+    }
+
+    /**
+     * Build the cache key of a product area. Components are normalized by trimming, removing duplicates and sorting,
+     * so that the same product area sent in a different order shares its results
+     *
+     * @param productArea  Product area definition
+     * @param buildNumbers Resolved build number of each Jenkins job name
+     * @return Cache key, or null if the result cannot be cached as a build number is unknown
+     */
+    public static String getKey(ProductArea productArea, Map<String, String> buildNumbers) {
+
+        TreeSet<String> components = new TreeSet<>();
+        for (String component : productArea.getComponents()) {
+            components.add(component.trim());
+        }
+        StringBuilder key = new StringBuilder(String.valueOf(productArea.getProductId()));
+        for (String component : components) {
+            String[] componentSplitted = component.split(General.URL_SEPARATOR);
+            String buildNumber = buildNumbers.get(componentSplitted[componentSplitted.length - 1]);
+            if (buildNumber == null) {
+                return null;
+            }
+            key.append('\n').append(component).append('#').append(buildNumber);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get the cached result of a product area, or calculate it. If the same calculation is already in progress, its
+     * result is awaited instead of calculating again. Failed calculations and incomplete results are not cached
+     *
+     * @param key         Cache key from getKey, or null to calculate without caching
+     * @param calculation Calculation of the product area result
+     * @return Result of the product area
+     * @throws Exception If the calculation fails
+     */
+    public ProductAreaCodeCoverage get(String key, Calculation calculation) throws Exception {
+
+        if (key == null || this.cacheSize <= 0) {
+            return calculation.calculate().getResult();
+        }
+        ProductAreaCodeCoverage cachedResult = getCachedResult(key);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        CompletableFuture<ProductAreaCodeCoverage> pendingResult = new CompletableFuture<>();
+        CompletableFuture<ProductAreaCodeCoverage> runningCalculation = this.calculations.putIfAbsent(key, pendingResult);
+        if (runningCalculation != null) {
+            log.info("Waiting for an identical calculation in progress");
+            try {
+                return runningCalculation.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        try {
+            long generation;
+            synchronized (this.results) {
+                /* An identical calculation may have finished after the first lookup and before this one started */
+                cachedResult = getCachedResult(key);
+                if (cachedResult != null) {
+                    pendingResult.complete(cachedResult);
+                    return cachedResult;
+                }
+                generation = this.generation;
+            }
+
+            ProductAreaCodeCoverage result = store(key, generation, calculation.calculate());
+            pendingResult.complete(result);
+            return result;
+        } catch (Exception e) {
+            pendingResult.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.calculations.remove(key);
+        }
+    }
+
+    /**
+     * Get the cached result of a product area, or calculate it without coalescing with identical calculations. Used
+     * by background work, so that requests arriving meanwhile never wait for a calculation running on the throttled
+     * threads of the background work, but calculate on their own threads instead
+     *
+     * @param key         Cache key from getKey, or null to calculate without caching
+     * @param calculation Calculation of the product area result
+     * @return Result of the product area
+     * @throws Exception If the calculation fails
+     */
+    public ProductAreaCodeCoverage getInBackground(String key, Calculation calculation) throws Exception {
+
+        if (key == null || this.cacheSize <= 0) {
+            return calculation.calculate().getResult();
+        }
+        long generation;
+        synchronized (this.results) {
+            ProductAreaCodeCoverage cachedResult = getCachedResult(key);
+            if (cachedResult != null) {
+                return cachedResult;
+            }
+            generation = this.generation;
+        }
+        return store(key, generation, calculation.calculate());
+    }
+
+    /**
+     * Keep a calculated result unless it is incomplete or was calculated across an invalidation
+     *
+     * @param key              Cache key of the result
+     * @param generation       Invalidation generation the calculation started in
+     * @param calculatedResult Result of the calculation
+     * @return The calculated product area result
+     */
+    private ProductAreaCodeCoverage store(String key, long generation, CalculatedResult calculatedResult) {
+
+        ProductAreaCodeCoverage result = calculatedResult.getResult();
+        synchronized (this.results) {
+            /* A result calculated across an invalidation is handed out but not kept */
+            if (calculatedResult.isComplete() && generation == this.generation) {
+                this.results.put(key, new CachedResult(result, System.currentTimeMillis() + this.timeToLiveMillis));
+            }
+        }
+        if (!calculatedResult.isComplete()) {
+            log.info("Not caching the incomplete result of ProductID=" + result.getProductId());
+        }
+        return result;
+    }
+
+    /**
+     * Find a cached result which has not expired
+     *
+     * @return Cached result or null
+     */
+    private ProductAreaCodeCoverage getCachedResult(String key) {
+
+        synchronized (this.results) {
+            CachedResult cachedResult = this.results.get(key);
+            if (cachedResult != null && !cachedResult.isExpired()) {
+                log.info("Using the cached result of ProductID=" + cachedResult.productId);
+                return cachedResult.result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drop all cached results
+     */
+    public void invalidateAll() {
+
+        synchronized (this.results) {
+            this.results.clear();
+            this.generation++;
+        }
+    }
+
+    /**
+     * Drop the cached results of a product area
+     *
+     * @param productId ID of the product area
+     */
+    public void invalidate(String productId) {
+
+        synchronized (this.results) {
+            Iterator<CachedResult> cachedResults = this.results.values().iterator();
+            while (cachedResults.hasNext()) {
+                if (productId.equals(cachedResults.next().productId)) {
+                    cachedResults.remove();
+                }
+            }
+            this.generation++;
+        }
+    }
+
+    /*
+    Calculation of a product area result
+     */
+    public interface Calculation {
+
+        CalculatedResult calculate() throws Exception;
+    }
+
+    /*
+    Product area result of a calculation. Results missing components due to errors are incomplete and not cached, so
+    that the next request calculates them again
+     */
+    public static class CalculatedResult {
+
+        private final ProductAreaCodeCoverage result;
+        private final boolean complete;
+
+        public CalculatedResult(ProductAreaCodeCoverage result, boolean complete) {
+
+            this.result = result;
+            this.complete = complete;
+        }
+
+        public ProductAreaCodeCoverage getResult() {
+
+            return this.result;
+        }
+
+        public boolean isComplete() {
+
+            return this.complete;
+        }
+    }
+
+    private static class CachedResult {
+
+        private final ProductAreaCodeCoverage result;
+        private final String productId;
+        private final long expiresAt;
+
+        private CachedResult(ProductAreaCodeCoverage result, long expiresAt) {
+
+            this.result = result;
+            this.productId = result.getProductId();
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+
+            return System.currentTimeMillis() > this.expiresAt;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.resultcache;
+
+import org.apache.log4j.Logger;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+
+@RestController
+public class CoverageResultCacheController {
+
+    private static final Logger log = Logger.getLogger(CoverageResultCacheController.class);
+    private final CoverageResultCache coverageResultCache;
+
+    public CoverageResultCacheController(CoverageResultCache coverageResultCache) {
+
+        this.coverageResultCache = coverageResultCache;
+    }
+
+    @RequestMapping(value = {Coverage.DELETE_RESULT_CACHE_REQUEST}, method = {RequestMethod.DELETE})
+    public void invalidateAll() {
+
+        log.info("Invalidating all cached coverage results");
+        this.coverageResultCache.invalidateAll();
+    }
+
+    @RequestMapping(value = {Coverage.DELETE_PRODUCT_AREA_RESULT_CACHE_REQUEST}, method = {RequestMethod.DELETE})
+    public void invalidate(@PathVariable(Coverage.PRODUCT_ID) String productId) {
+
+        log.info("Invalidating cached coverage results of ProductID=" + productId);
+        this.coverageResultCache.invalidate(productId);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage;
+
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.Coverage;
+import org.wso2.productcodecoverageservice.Constants.General;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*
+Async support of the streamed coverage responses. A streamed request lasts as long as its slowest product area, so the
+container default async timeout is replaced, and the responses are written from a dedicated pool instead of a thread
+per request
+ */
+@Configuration
+public class StreamingConfiguration implements WebMvcConfigurer {
+
+    private final long streamTimeoutMillis;
+    private final ThreadPoolTaskExecutor streamExecutor;
+
+    public StreamingConfiguration() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        this.streamTimeoutMillis = TimeUnit.MINUTES.toMillis(Long.parseLong(application.getProperty(
+                Coverage.STREAM_TIMEOUT_MINUTES, Long.toString(Coverage.DEFAULT_STREAM_TIMEOUT_MINUTES)).trim()));
+        int streamParallelism = Integer.parseInt(application.getProperty(Coverage.STREAM_PARALLELISM,
+                Integer.toString(Coverage.DEFAULT_STREAM_PARALLELISM)).trim());
+
+        this.streamExecutor = new ThreadPoolTaskExecutor();
+        this.streamExecutor.setCorePoolSize(streamParallelism);
+        this.streamExecutor.setMaxPoolSize(streamParallelism);
+        this.streamExecutor.setThreadNamePrefix("coverage-stream-");
+        this.streamExecutor.setDaemon(true);
+        this.streamExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        this.streamExecutor.shutdown();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+
+        /* A timeout of 0 never times out */
+        configurer.setDefaultTimeout(this.streamTimeoutMillis);
+        configurer.setTaskExecutor(this.streamExecutor);
+    }
+}
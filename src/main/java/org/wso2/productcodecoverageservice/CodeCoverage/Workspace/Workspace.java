@@ -0,0 +1,85 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.workspace;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Reference counted temporary folder handed out by the workspace manager. The folder is deleted in the background once
+the last reference is released
+ */
+public class Workspace implements AutoCloseable {
+
+    private final Path path;
+    private final WorkspaceManager workspaceManager;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    Workspace(Path path, WorkspaceManager workspaceManager) {
+
+        this.path = path;
+        this.workspaceManager = workspaceManager;
+    }
+
+    /**
+     * Get the folder of the workspace
+     *
+     * @return Path to the workspace folder
+     */
+    public Path getPath() {
+
+        return this.path;
+    }
+
+    /**
+     * Add a reference to the workspace, so that it is kept until the new holder releases it as well
+     *
+     * @return This workspace
+     */
+    public Workspace retain() {
+
+        int currentReferences;
+        do {
+            currentReferences = this.references.get();
+            if (currentReferences == 0) {
+                throw new IllegalStateException("Workspace " + this.path + " is already released");
+            }
+        } while (!this.references.compareAndSet(currentReferences, currentReferences + 1));
+        return this;
+    }
+
+    /**
+     * Remove a reference to the workspace. The workspace is handed back for cleanup when no references are left
+     */
+    public void release() {
+
+        int remainingReferences = this.references.decrementAndGet();
+        if (remainingReferences == 0) {
+            this.workspaceManager.release(this);
+        } else if (remainingReferences < 0) {
+            throw new IllegalStateException("Workspace " + this.path + " is released more than once");
+        }
+    }
+
+    @Override
+    public void close() {
+
+        release();
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.codecoverage.workspace;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
+import org.wso2.productcodecoverageservice.Application;
+import org.wso2.productcodecoverageservice.Constants.General;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Hands out unique temporary workspaces for coverage calculations and deletes released workspaces in the background.
+Workspaces keep growing while in use, so the disk usage is calculated again before a workspace is handed out
+ */
+@Component
+public class WorkspaceManager {
+
+    private static final Logger log = Logger.getLogger(WorkspaceManager.class);
+    /*
+    Age up to which a calculated disk usage is reused by the next acquisitions, so that a burst of requests walks the
+    workspaces only once
+     */
+    private static final long DISK_USAGE_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final Path workspaceRoot;
+    private final long diskQuotaBytes;
+    private final ConcurrentLinkedQueue<Path> releasedWorkspaces = new ConcurrentLinkedQueue<>();
+    private final AtomicLong diskUsage = new AtomicLong();
+    private long diskUsageCalculatedNanos;
+    private boolean diskUsageCalculated;
+    private final ScheduledExecutorService cleanupExecutor;
+
+    public WorkspaceManager() throws IOException {
+
+        this(loadApplicationProperties());
+    }
+
+    private WorkspaceManager(Properties application) throws IOException {
+
+        this(Paths.get(new ApplicationHome(Application.class).getDir() + File.separator
+                        + Jenkins.WORKSPACE_DIRECTORY_PREFIX),
+                Long.parseLong(application.getProperty(Jenkins.WORKSPACE_DISK_QUOTA,
+                        Long.toString(Jenkins.DEFAULT_WORKSPACE_DISK_QUOTA)).trim()),
+                Long.parseLong(application.getProperty(Jenkins.WORKSPACE_CLEANUP_INTERVAL_SECONDS,
+                        Long.toString(Jenkins.DEFAULT_WORKSPACE_CLEANUP_INTERVAL_SECONDS)).trim()));
+    }
+
+    /**
+     * Create a manager of the workspaces in the given folder
+     *
+     * @param workspaceRoot   Folder holding the workspaces
+     * @param diskQuotaBytes  Maximum total size of the workspaces, 0 for no limit
+     * @param cleanupInterval Seconds between the background cleanups of released workspaces
+     * @throws IOException If the workspace folder cannot be created or read
+     */
+    public WorkspaceManager(Path workspaceRoot, long diskQuotaBytes, long cleanupInterval) throws IOException {
+
+        this.diskQuotaBytes = diskQuotaBytes;
+        this.workspaceRoot = Files.createDirectories(workspaceRoot);
+
+        /* Workspaces left behind by a previous run of the service are not referenced by anyone */
+        try (DirectoryStream<Path> staleWorkspaces = Files.newDirectoryStream(this.workspaceRoot)) {
+            for (Path staleWorkspace : staleWorkspaces) {
+                this.releasedWorkspaces.add(staleWorkspace);
+            }
+        }
+
+        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workspace-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cleanupExecutor.scheduleWithFixedDelay(this::cleanUp, 0, cleanupInterval, TimeUnit.SECONDS);
+    }
+
+    private static Properties loadApplicationProperties() throws IOException {
+
+        ApplicationHome home = new ApplicationHome(Application.class);
+
+        Properties application = new Properties();
+        try (FileInputStream propertiesStream = new FileInputStream(home.getDir() + File.separator + General.PROPERTIES_PATH)) {
+            application.load(propertiesStream);
+        }
+        return application;
+    }
+
+    /**
+     * Create a new workspace. The caller holds the only reference to it and must release it when done. The disk usage
+     * is checked against the quota as of the last second, counting what the workspaces in use have written since the
+     * last cleanup
+     *
+     * @param name Descriptive name used as the prefix of the workspace folder
+     * @return A unique workspace
+     * @throws IOException If the disk quota is exceeded or the workspace folder cannot be created
+     */
+    public Workspace acquire(String name) throws IOException {
+
+        if (this.diskQuotaBytes > 0) {
+            /* Released workspaces might not have been removed yet */
+            cleanUp(DISK_USAGE_MAX_AGE_NANOS);
+            if (this.diskUsage.get() >= this.diskQuotaBytes) {
+                throw new IOException("Workspace disk quota of " + this.diskQuotaBytes + " bytes is exceeded");
+            }
+        }
+
+        String workspaceName = String.valueOf(name).replaceAll("[^A-Za-z0-9._-]", "_") + "-" + UUID.randomUUID();
+        return new Workspace(Files.createDirectories(this.workspaceRoot.resolve(workspaceName)), this);
+    }
+
+    /**
+     * Get the disk usage of all workspaces as of the last calculation
+     *
+     * @return Size of the workspace root in bytes
+     */
+    public long getDiskUsage() {
+
+        return this.diskUsage.get();
+    }
+
+    /**
+     * Queue a workspace without references for deletion
+     *
+     * @param workspace Released workspace
+     */
+    void release(Workspace workspace) {
+
+        this.releasedWorkspaces.add(workspace.getPath());
+        if (!this.cleanupExecutor.isShutdown()) {
+            this.cleanupExecutor.execute(this::cleanUp);
+        }
+    }
+
+    /**
+     * Delete released workspaces and recalculate the disk usage
+     */
+    private void cleanUp() {
+
+        cleanUp(0);
+    }
+
+    /**
+     * Delete released workspaces and recalculate the disk usage, unless nothing was deleted and the disk usage was
+     * calculated within the given age
+     *
+     * @param maxAgeNanos Age up to which the last calculated disk usage is kept
+     */
+    private synchronized void cleanUp(long maxAgeNanos) {
+
+        boolean deleted = false;
+        Path releasedWorkspace;
+        while ((releasedWorkspace = this.releasedWorkspaces.poll()) != null) {
+            try {
+                FileUtils.deleteDirectory(releasedWorkspace.toFile());
+                deleted = true;
+            } catch (IOException e) {
+                log.warn("Could not delete workspace " + releasedWorkspace + ". Retrying in the next cleanup");
+                this.releasedWorkspaces.add(releasedWorkspace);
+                break;
+            }
+        }
+        if (deleted || !this.diskUsageCalculated || System.nanoTime() - this.diskUsageCalculatedNanos >= maxAgeNanos) {
+            this.diskUsage.set(calculateDiskUsage());
+            this.diskUsageCalculatedNanos = System.nanoTime();
+            this.diskUsageCalculated = true;
+        }
+    }
+
+    /**
+     * Walk the workspace root and sum up the file sizes. Files removed while walking are ignored
+     */
+    private long calculateDiskUsage() {
+
+        AtomicLong totalSize = new AtomicLong();
+        try {
+            Files.walkFileTree(this.workspaceRoot, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+
+                    totalSize.addAndGet(attributes.size());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not calculate disk usage of " + this.workspaceRoot);
+        }
+        return totalSize.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        this.cleanupExecutor.shutdown();
+    }
+}
@@ -22,13 +22,19 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Enumeration;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class Unzipper {
 
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Unzip a compressed file in to a given folder
      *
@@ -38,23 +44,102 @@ public class Unzipper {
      */
     public static void unzipFile(String zippedFile, File unzipFolder) throws IOException {
 
-        byte[] buffer = new byte[1024];
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zippedFile))) {
-            ZipEntry zipEntry = zis.getNextEntry();
-            while (zipEntry != null) {
-                String fileName = zipEntry.getName();
-                File newFile = new File(unzipFolder + File.separator + fileName);
-                Files.createDirectories(Paths.get(newFile.getParent()));
-                newFile.createNewFile();
-                try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                    int len;
-                    while ((len = zis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, len);
+        try (InputStream zippedStream = new FileInputStream(zippedFile)) {
+            unzipStream(zippedStream, unzipFolder);
+        }
+    }
+
+    /**
+     * Unzip a stream of zip content in to a given folder. Entries are written as they are read, so the stream can be
+     * consumed directly from a network connection. The given stream is not closed
+     *
+     * @param zippedStream Stream of the zip content
+     * @param unzipFolder  Path file after unzipped
+     * @throws IOException Failure while reading the stream, creating folders or writing the entries
+     */
+    public static void unzipStream(InputStream zippedStream, File unzipFolder) throws IOException {
+
+        unzipStream(zippedStream, unzipFolder, "");
+    }
+
+    /**
+     * Unzip only the entries of a compressed file whose names start with the given prefix. Entry names are kept as
+     * they are, so the extracted files end up in the same locations as with a full unzip. Entries are looked up in the
+     * central directory, so entries that are not extracted are never read
+     *
+     * @param zippedFile  Path to the zipped file
+     * @param unzipFolder Path file after unzipped
+     * @param entryPrefix Prefix of the zip entry names to be extracted, or the name of a single entry
+     * @throws IOException Failure while creating folders or unzipping the zipped folder
+     */
+    public static void unzipEntries(String zippedFile, File unzipFolder, String entryPrefix) throws IOException {
+
+        try (ZipFile zipFile = new ZipFile(zippedFile)) {
+            ZipEntry singleEntry = zipFile.getEntry(entryPrefix);
+            if (singleEntry != null && !singleEntry.isDirectory()) {
+                try (InputStream entryStream = zipFile.getInputStream(singleEntry)) {
+                    writeEntry(entryStream, singleEntry, unzipFolder);
+                }
+                return;
+            }
+
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (zipEntry.getName().startsWith(entryPrefix)) {
+                    try (InputStream entryStream = zipFile.getInputStream(zipEntry)) {
+                        writeEntry(entryStream, zipEntry, unzipFolder);
                     }
                 }
-                zipEntry = zis.getNextEntry();
             }
-            zis.closeEntry();
+        }
+    }
+
+    /**
+     * Unzip only the entries of a stream of zip content whose names start with the given prefix. The other entries
+     * are read through but not written, and the given stream is not closed
+     *
+     * @param zippedStream Stream of the zip content
+     * @param unzipFolder  Path file after unzipped
+     * @param entryPrefix  Prefix of the zip entry names to be extracted
+     * @throws IOException Failure while reading the stream, creating folders or writing the entries
+     */
+    public static void unzipStream(InputStream zippedStream, File unzipFolder, String entryPrefix) throws IOException {
+
+        ZipInputStream zis = new ZipInputStream(zippedStream);
+        ZipEntry zipEntry = zis.getNextEntry();
+        while (zipEntry != null) {
+            if (zipEntry.getName().startsWith(entryPrefix)) {
+                writeEntry(zis, zipEntry, unzipFolder);
+            }
+            zipEntry = zis.getNextEntry();
+        }
+        zis.closeEntry();
+    }
+
+    /**
+     * Write the content of a zip entry to its location in the unzip folder, or create the folder of a directory entry.
+     * Entries whose names would place them outside of the unzip folder are rejected
+     */
+    private static void writeEntry(InputStream entryStream, ZipEntry zipEntry, File unzipFolder) throws IOException {
+
+        Path unzipPath = unzipFolder.toPath().toAbsolutePath().normalize();
+        Path entryPath = unzipPath.resolve(zipEntry.getName()).normalize();
+        if (!entryPath.startsWith(unzipPath)) {
+            throw new IOException("Zip entry " + zipEntry.getName() + " is outside of the unzip folder");
+        }
+        File newFile = entryPath.toFile();
+        if (zipEntry.isDirectory()) {
+            Files.createDirectories(newFile.toPath());
+        } else {
+            Files.createDirectories(Paths.get(newFile.getParent()));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (FileOutputStream fos = new FileOutputStream(newFile)) {
+                int len;
+                while ((len = entryStream.read(buffer)) > 0) {
+                    fos.write(buffer, 0, len);
+                }
+            }
         }
     }
 }
@@ -24,11 +24,17 @@ public class Constants {
 
         public static final String GET_REQUEST_INFO = "/product-coverage-service/info";
         public static final String MESSAGE = "wso2 product coverage service";
+        public static final String GET_STAGE_METRICS_INFO = "/product-coverage-service/info/stages";
+        public static final String GET_HTTP_CLIENT_INFO = "/product-coverage-service/info/http-client";
     }
 
     public static class Jenkins {
 
         public static final String WORKSPACE_DIRECTORY_PREFIX = "codeCoverageServiceTemp";
+        public static final String WORKSPACE_DISK_QUOTA = "workspace.disk.quota.bytes";
+        public static final String WORKSPACE_CLEANUP_INTERVAL_SECONDS = "workspace.cleanup.interval.seconds";
+        public static final long DEFAULT_WORKSPACE_DISK_QUOTA = 0;
+        public static final long DEFAULT_WORKSPACE_CLEANUP_INTERVAL_SECONDS = 60;
         public static final String JENKINS_SERVER_BASE64_AUTH_STRING = "jenkins.base64.encoded.basic.auth.string";
         public static final String LAST_SUCCESSFUL_BUILD = "lastSuccessfulBuild";
         public static final String JACOCO_DATA_FILE = "jacoco/jacoco.exec";
@@ -46,15 +52,78 @@ public class Constants {
         public static final String COVERAGE_SOURCES_TEMP_FOLDER = "sources_temp";
         public static final String JACOCO_RESOURCES_ZIP = "jacoco/resources.zip";
         public static final String EXTRACTED_JACOCO_FOLDER = "jacocoResources";
+        public static final String DOWNLOAD_PARALLELISM = "jenkins.download.parallelism";
+        public static final String DOWNLOAD_TIMEOUT_SECONDS = "jenkins.download.timeout.seconds";
+        public static final int DEFAULT_DOWNLOAD_PARALLELISM = 4;
+        public static final long DEFAULT_DOWNLOAD_TIMEOUT_SECONDS = 600;
+        public static final String STREAMING_UNZIP = "jenkins.download.streaming.unzip";
+        public static final boolean DEFAULT_STREAMING_UNZIP = true;
+        public static final String ANALYZE_FROM_ARCHIVE = "coverage.analysis.from.archive";
+        public static final boolean DEFAULT_ANALYZE_FROM_ARCHIVE = true;
+        public static final String LOCAL_ARTIFACTS_DIRECTORY = "jenkins.local.artifacts.directory";
+        public static final String ZIP_ENTRY_SEPARATOR = "/";
+        public static final String BUILD_NUMBER = "buildNumber";
+        public static final String ARTIFACT_CACHE_DIRECTORY = "codeCoverageServiceCache";
+        public static final String PARTIAL_DOWNLOAD_SUFFIX = ".part";
+        public static final String DOWNLOAD_VALIDATORS_SUFFIX = ".validators";
+        public static final String ARTIFACT_CACHE_BUDGET = "artifact.cache.budget.bytes";
+        public static final long DEFAULT_ARTIFACT_CACHE_BUDGET = 10L * 1024 * 1024 * 1024;
+    }
+
+    public static class Http {
+
+        public static final String MAX_CONNECTIONS = "http.client.max.connections";
+        public static final String MAX_CONNECTIONS_PER_HOST = "http.client.max.connections.per.host";
+        public static final String CONNECT_TIMEOUT_MILLIS = "http.client.connect.timeout.millis";
+        public static final String READ_TIMEOUT_MILLIS = "http.client.read.timeout.millis";
+        public static final String MAX_RETRIES = "http.client.max.retries";
+        public static final String RETRY_BACKOFF_MILLIS = "http.client.retry.backoff.millis";
+        public static final int DEFAULT_MAX_CONNECTIONS = 50;
+        public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+        public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+        public static final int DEFAULT_READ_TIMEOUT_MILLIS = 60000;
+        public static final int DEFAULT_MAX_RETRIES = 3;
+        public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 500;
+        public static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
     }
 
     public static class Coverage {
 
         public static final String MERGED_JACOCO_DATA_FILE = "jacoco-merged.exec";
+        public static final String MERGED_PACKED_DATA_FILE = "jacoco-merged.pexec";
         public static final String DATA_FILE_EXTENSION = "exec";
         public static final String CLASS_FILE_EXTENSION = "class";
         public static final String EXTRACTED_CLASS_FOLDER = "extractedClasses";
         public static final String POST_COVERAGE_REQUEST = "/product-coverage-service/code-coverage";
+        public static final String POST_COVERAGE_STREAM_REQUEST = "/product-coverage-service/code-coverage/stream";
+        public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+        public static final String STREAM_TIMEOUT_MINUTES = "coverage.stream.timeout.minutes";
+        public static final String STREAM_PARALLELISM = "coverage.stream.parallelism";
+        public static final long DEFAULT_STREAM_TIMEOUT_MINUTES = 120;
+        public static final int DEFAULT_STREAM_PARALLELISM = 8;
+        public static final String POST_COVERAGE_DELTA_REQUEST = "/product-coverage-service/code-coverage/delta";
+        public static final String POST_PATCH_COVERAGE_REQUEST = "/product-coverage-service/code-coverage/patch";
+        public static final String DELTA_BASE_SUFFIX = "-delta-base";
+        public static final String DELTA_TARGET_SUFFIX = "-delta-target";
+        public static final String PATCH_SUFFIX = "-patch";
+        public static final String LOCAL_ARTIFACTS_SUFFIX = "-local";
+        public static final String POST_COVERAGE_JOB_REQUEST = "/product-coverage-service/code-coverage/jobs";
+        public static final String GET_COVERAGE_JOB_REQUEST = "/product-coverage-service/code-coverage/jobs/{jobId}";
+        public static final String GET_COVERAGE_JOB_RESULT_REQUEST = "/product-coverage-service/code-coverage/jobs/{jobId}/result";
+        public static final String JOB_ID = "jobId";
+        public static final String DELETE_RESULT_CACHE_REQUEST = "/product-coverage-service/code-coverage/cache";
+        public static final String DELETE_PRODUCT_AREA_RESULT_CACHE_REQUEST = "/product-coverage-service/code-coverage/cache/{productId}";
+        public static final String PRODUCT_ID = "productId";
+        public static final String RESULT_CACHE_SIZE = "coverage.result.cache.size";
+        public static final String RESULT_CACHE_TTL_MINUTES = "coverage.result.cache.ttl.minutes";
+        public static final int DEFAULT_RESULT_CACHE_SIZE = 100;
+        public static final long DEFAULT_RESULT_CACHE_TTL_MINUTES = 30;
+        public static final String JOB_WORKERS = "coverage.jobs.workers";
+        public static final String JOB_QUEUE_SIZE = "coverage.jobs.queue.size";
+        public static final String JOB_RETENTION_MINUTES = "coverage.jobs.retention.minutes";
+        public static final int DEFAULT_JOB_WORKERS = 2;
+        public static final int DEFAULT_JOB_QUEUE_SIZE = 10;
+        public static final long DEFAULT_JOB_RETENTION_MINUTES = 60;
         public static final String EXTRACTED_SOURCE_FOLDER = "extractedSources";
         public static final String COVERAGE_REPORTS_DIRECTORY = "static";
         public static final String CLASSES = "classes";
@@ -78,6 +147,82 @@ public class Constants {
         public static final String ISSUES = "issues";
         public static final String ANALYTICS_PRODUCT = "analytics-";
         public static final String PRODUCT = "product-";
+        public static final String PRODUCT_AREA_PARALLELISM = "coverage.product.area.parallelism";
+        public static final String EXECUTION_DATA_DIRECTORY = "executionData";
+        public static final String EXECUTION_DATA_CACHED_AREAS = "coverage.execution.data.cached.areas";
+        public static final int DEFAULT_EXECUTION_DATA_CACHED_AREAS = 8;
+        public static final String EXECUTION_DATA_PACKED_CLASSES = "coverage.execution.data.packed.classes";
+        public static final int DEFAULT_EXECUTION_DATA_PACKED_CLASSES = 100000;
+        public static final int DEFAULT_PRODUCT_AREA_PARALLELISM = 4;
+        public static final String ANALYSIS_PARALLELISM = "coverage.analysis.parallelism";
+        public static final int DEFAULT_ANALYSIS_PARALLELISM = 0;
+        public static final String ANALYSIS_INCLUDES = "coverage.analysis.includes";
+        public static final String ANALYSIS_EXCLUDES = "coverage.analysis.excludes";
+        public static final String CLASS_COVERAGE_CACHE_SIZE = "coverage.analysis.class.cache.size";
+        public static final int DEFAULT_CLASS_COVERAGE_CACHE_SIZE = 50000;
+        public static final String CLASS_MANIFEST_DIRECTORY = "classManifests";
+        public static final int CLASS_MANIFEST_BUILDS_KEPT = 4;
+    }
+
+    public static class Index {
+
+        public static final String GET_PRODUCT_AREA_INDEX_REQUEST = "/product-coverage-service/coverage-index/{productId}";
+        public static final String GET_PACKAGES_INDEX_REQUEST = "/product-coverage-service/coverage-index/{productId}/packages";
+        public static final String GET_PACKAGE_INDEX_REQUEST = "/product-coverage-service/coverage-index/{productId}/packages/{packageName:.+}";
+        public static final String GET_CLASS_INDEX_REQUEST = "/product-coverage-service/coverage-index/{productId}/classes/{className:.+}";
+        public static final String PRODUCT_ID = "productId";
+        public static final String PACKAGE_NAME = "packageName";
+        public static final String CLASS_NAME = "className";
+        public static final String COMPONENT = "component";
+        public static final String INDEX_DIRECTORY = "coverageIndex";
+        public static final String INDEX_FILE_EXTENSION = ".idx";
+    }
+
+    public static class History {
+
+        public static final String GET_COVERAGE_HISTORY_REQUEST = "/product-coverage-service/history/{productId}";
+        public static final String GET_COVERAGE_DELTA_REQUEST = "/product-coverage-service/history/{productId}/delta";
+        public static final String PRODUCT_ID = "productId";
+        public static final String COMPONENT = "component";
+        public static final String PACKAGE = "package";
+        public static final String FROM = "from";
+        public static final String TO = "to";
+        public static final String SINCE = "since";
+        public static final String HISTORY_DIRECTORY = "history";
+        public static final String HISTORY_FILE = "history.log";
+        public static final String COMPACTION_INTERVAL_MINUTES = "coverage.history.compaction.interval.minutes";
+        public static final String PACKAGE_RETENTION_DAYS = "coverage.history.package.retention.days";
+        public static final long DEFAULT_COMPACTION_INTERVAL_MINUTES = 60;
+        public static final long DEFAULT_PACKAGE_RETENTION_DAYS = 30;
+    }
+
+    public static class Metrics {
+
+        public static final String DOWNLOAD = "coverage.download";
+        public static final String DOWNLOAD_BYTES = "coverage.download.bytes";
+        public static final String UNZIP = "coverage.unzip";
+        public static final String MERGE = "coverage.merge";
+        public static final String ANALYSIS = "coverage.analysis";
+        public static final String REPORT = "coverage.report";
+        public static final String REQUESTS_IN_FLIGHT = "coverage.requests.in.flight";
+        public static final String PRODUCT_AREAS_IN_FLIGHT = "coverage.product.areas.in.flight";
+        public static final String WORKSPACE_DISK_USAGE = "coverage.workspace.disk.usage";
+        public static final String METRIC_PREFIX = "coverage.";
+        public static final String JOB_TAG = "job";
+        public static final String PRODUCT_AREA_TAG = "productArea";
+        public static final String COMPONENT_TAG = "component";
+        public static final String BYTES = "bytes";
+    }
+
+    public static class Prewarm {
+
+        public static final String CRON = "coverage.prewarm.cron";
+        public static final String PRODUCT_AREAS = "coverage.prewarm.product.areas";
+        public static final String PRODUCT_AREAS_FILE = "coverage.prewarm.product.areas.file";
+        public static final String IDLE_POLL_SECONDS = "coverage.prewarm.idle.poll.seconds";
+        public static final String ANALYSIS_PARALLELISM = "coverage.prewarm.analysis.parallelism";
+        public static final long DEFAULT_IDLE_POLL_SECONDS = 5;
+        public static final int DEFAULT_ANALYSIS_PARALLELISM = 1;
     }
 
     public static class Report {
@@ -94,6 +239,13 @@ public class Constants {
         public static final String REPORT_TYPE = "reportType";
         public static final String HTML = "html";
         public static final String XML = "xml";
+        public static final String COMPILED_FILES = "compiled-files";
+        public static final String SOURCE_FILES = "source-files";
+        public static final String REPORT_STAMP_FILE = ".report-builds";
+        public static final String REPORT_IN_BACKGROUND = "coverage.report.background";
+        public static final String REPORT_PARALLELISM = "coverage.report.parallelism";
+        public static final boolean DEFAULT_REPORT_IN_BACKGROUND = true;
+        public static final int DEFAULT_REPORT_PARALLELISM = 2;
     }
 
     public static class General {
@@ -18,19 +18,85 @@
 
 package org.wso2.productcodecoverageservice.info;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.pool.PoolStats;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.wso2.productcodecoverageservice.Constants.Info;
+import org.wso2.productcodecoverageservice.Constants.Metrics;
+import org.wso2.productcodecoverageservice.codecoverage.HTTPutils.JenkinsHttpClient;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+import org.wso2.productcodecoverageservice.info.jsonobject.HttpClientInfo;
+import org.wso2.productcodecoverageservice.info.jsonobject.StageMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class InfoController {
 
     private static final String serviceInfo = Info.MESSAGE;
+    private static final String SECONDS = "seconds";
+    private final JenkinsHttpClient httpClient;
+    private final CoverageMetrics metrics;
+
+    public InfoController(JenkinsHttpClient httpClient, CoverageMetrics metrics) {
+
+        this.httpClient = httpClient;
+        this.metrics = metrics;
+    }
 
     @RequestMapping(value = {Info.GET_REQUEST_INFO}, method = {RequestMethod.GET})
     public org.wso2.productcodecoverageservice.info.jsonobject.Info introduce() {
 
         return new org.wso2.productcodecoverageservice.info.jsonobject.Info(serviceInfo);
     }
+
+    @RequestMapping(value = {Info.GET_HTTP_CLIENT_INFO}, method = {RequestMethod.GET})
+    public HttpClientInfo getHttpClientInfo() {
+
+        PoolStats poolStatistics = this.httpClient.getPoolStatistics();
+        return new HttpClientInfo(poolStatistics.getLeased(), poolStatistics.getAvailable(), poolStatistics.getPending(),
+                poolStatistics.getMax(), this.httpClient.getRequestCount(), this.httpClient.getRetryCount(),
+                this.httpClient.getFailureCount());
+    }
+
+    /**
+     * Summarise the stage timers and size distributions recorded by the coverage pipeline. The full meters,
+     * including percentiles, stay available through the actuator metrics endpoint.
+     *
+     * @return Count, total and maximum of every coverage stage meter
+     */
+    @RequestMapping(value = {Info.GET_STAGE_METRICS_INFO}, method = {RequestMethod.GET})
+    public ArrayList<StageMetrics> getStageMetrics() {
+
+        ArrayList<StageMetrics> stageMetrics = new ArrayList<>();
+        for (Meter meter : this.metrics.getRegistry().getMeters()) {
+            Meter.Id id = meter.getId();
+            if (!id.getName().startsWith(Metrics.METRIC_PREFIX)) {
+                continue;
+            }
+            LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+            for (Tag tag : id.getTags()) {
+                tags.put(tag.getKey(), tag.getValue());
+            }
+            if (meter instanceof Timer) {
+                Timer timer = (Timer) meter;
+                stageMetrics.add(new StageMetrics(id.getName(), tags, timer.count(), timer.totalTime(TimeUnit.SECONDS),
+                        timer.max(TimeUnit.SECONDS), SECONDS));
+            } else if (meter instanceof DistributionSummary) {
+                DistributionSummary summary = (DistributionSummary) meter;
+                stageMetrics.add(new StageMetrics(id.getName(), tags, summary.count(), summary.totalAmount(),
+                        summary.max(), id.getBaseUnit()));
+            }
+        }
+        stageMetrics.sort(Comparator.comparing(StageMetrics::getName));
+        return stageMetrics;
+    }
 }
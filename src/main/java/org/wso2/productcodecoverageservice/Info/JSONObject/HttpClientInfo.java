@@ -0,0 +1,80 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.info.jsonobject;
+
+/**
+ * Usage of the pooled HTTP client used for Jenkins
+ */
+public class HttpClientInfo {
+
+    private final int leasedConnections;
+    private final int availableConnections;
+    private final int pendingConnections;
+    private final int maxConnections;
+    private final long requests;
+    private final long retries;
+    private final long failures;
+
+    public HttpClientInfo(int leasedConnections, int availableConnections, int pendingConnections, int maxConnections,
+                          long requests, long retries, long failures) {
+
+        this.leasedConnections = leasedConnections;
+        this.availableConnections = availableConnections;
+        this.pendingConnections = pendingConnections;
+        this.maxConnections = maxConnections;
+        this.requests = requests;
+        this.retries = retries;
+        this.failures = failures;
+    }
+
+    public int getLeasedConnections() {
+
+        return leasedConnections;
+    }
+
+    public int getAvailableConnections() {
+
+        return availableConnections;
+    }
+
+    public int getPendingConnections() {
+
+        return pendingConnections;
+    }
+
+    public int getMaxConnections() {
+
+        return maxConnections;
+    }
+
+    public long getRequests() {
+
+        return requests;
+    }
+
+    public long getRetries() {
+
+        return retries;
+    }
+
+    public long getFailures() {
+
+        return failures;
+    }
+}
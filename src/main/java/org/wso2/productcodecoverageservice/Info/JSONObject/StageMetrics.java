@@ -0,0 +1,74 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+
+package org.wso2.productcodecoverageservice.info.jsonobject;
+
+import java.util.Map;
+
+/**
+ * Summary of a timer or distribution recorded for a coverage pipeline stage
+ */
+public class StageMetrics {
+
+    private final String name;
+    private final Map<String, String> tags;
+    private final long count;
+    private final double total;
+    private final double max;
+    private final String unit;
+
+    public StageMetrics(String name, Map<String, String> tags, long count, double total, double max, String unit) {
+
+        this.name = name;
+        this.tags = tags;
+        this.count = count;
+        this.total = total;
+        this.max = max;
+        this.unit = unit;
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public Map<String, String> getTags() {
+
+        return tags;
+    }
+
+    public long getCount() {
+
+        return count;
+    }
+
+    public double getTotal() {
+
+        return total;
+    }
+
+    public double getMax() {
+
+        return max;
+    }
+
+    public String getUnit() {
+
+        return unit;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.artifactcache;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/*
+Artifact cache with a budget of two artifacts. Fetchers write an artifact of fixed size whose content is derived from
+the build number, and fetches are counted per build
+ */
+public class ArtifactCacheTest {
+
+    private static final int ARTIFACT_SIZE = 1000;
+    private static final String JENKINS_JOB = "wso2/job/component-a";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ConcurrentHashMap<String, AtomicInteger> fetchCounts = new ConcurrentHashMap<>();
+    private ArtifactCache artifactCache;
+
+    @Before
+    public void createCache() throws IOException {
+
+        this.artifactCache = new ArtifactCache(this.temporaryFolder.newFolder().toPath(), 2 * ARTIFACT_SIZE + 1);
+    }
+
+    @Test
+    public void fetchesEachBuildOnce() throws IOException {
+
+        File firstTarget = copyArtifact("1");
+        File secondTarget = copyArtifact("1");
+
+        assertEquals(1, getFetchCount("1"));
+        assertArrayEquals(createArtifact("1"), FileUtils.readFileToByteArray(firstTarget));
+        assertArrayEquals(createArtifact("1"), FileUtils.readFileToByteArray(secondTarget));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedArtifact() throws IOException {
+
+        copyArtifact("1");
+        copyArtifact("2");
+        copyArtifact("1");
+        copyArtifact("3");
+
+        copyArtifact("1");
+        assertEquals(1, getFetchCount("1"));
+        copyArtifact("2");
+        assertEquals(2, getFetchCount("2"));
+    }
+
+    @Test
+    public void servesCachedBuildsWhileAnotherBuildIsFetched() throws Exception {
+
+        copyArtifact("1");
+
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch fetchReleased = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> slowFetch = executor.submit(() -> {
+                this.artifactCache.copyArtifact(JENKINS_JOB, "2", this.temporaryFolder.newFile(), artifactFile -> {
+                    fetchStarted.countDown();
+                    try {
+                        fetchReleased.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    FileUtils.writeByteArrayToFile(artifactFile, createArtifact("2"));
+                });
+                return null;
+            });
+            fetchStarted.await();
+
+            /* The hit of another build does not wait for the fetch in progress */
+            executor.submit(() -> copyArtifact("1")).get(10, TimeUnit.SECONDS);
+
+            fetchReleased.countDown();
+            slowFetch.get(10, TimeUnit.SECONDS);
+        } finally {
+            fetchReleased.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(1, getFetchCount("1"));
+    }
+
+    private File copyArtifact(String buildNumber) throws IOException {
+
+        File target = this.temporaryFolder.newFile();
+        this.artifactCache.copyArtifact(JENKINS_JOB, buildNumber, target, artifactFile -> {
+            this.fetchCounts.computeIfAbsent(buildNumber, build -> new AtomicInteger()).incrementAndGet();
+            FileUtils.writeByteArrayToFile(artifactFile, createArtifact(buildNumber));
+        });
+        return target;
+    }
+
+    private int getFetchCount(String buildNumber) {
+
+        AtomicInteger fetchCount = this.fetchCounts.get(buildNumber);
+        return fetchCount != null ? fetchCount.get() : 0;
+    }
+
+    private static byte[] createArtifact(String buildNumber) {
+
+        byte[] artifact = new byte[ARTIFACT_SIZE];
+        Arrays.fill(artifact, (byte) buildNumber.hashCode());
+        return artifact;
+    }
+}
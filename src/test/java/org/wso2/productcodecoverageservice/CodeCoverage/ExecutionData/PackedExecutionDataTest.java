@@ -0,0 +1,139 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.executiondata;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/*
+Execution data converted between the jacoco exec format and the packed format, and packed data with some of its
+classes replaced. Class names are chosen so that the order of the names differs from the order of the ids
+ */
+public class PackedExecutionDataTest {
+
+    private static final ExecutionData FIRST_CLASS = new ExecutionData(3, "org/wso2/c/Third",
+            new boolean[]{true, false, true});
+    private static final ExecutionData SECOND_CLASS = new ExecutionData(5, "org/wso2/a/First",
+            new boolean[]{false, false, false, false, false, false, false, false, true});
+    private static final ExecutionData THIRD_CLASS = new ExecutionData(9, "org/wso2/b/Second", new boolean[0]);
+    private static final SessionInfo SESSION = new SessionInfo("integration-tests", 1000, 2000);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void convertsExecFileToPackedFileAndBack() throws IOException {
+
+        File execFile = this.temporaryFolder.newFile();
+        try (OutputStream output = new FileOutputStream(execFile)) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(output);
+            writer.visitSessionInfo(SESSION);
+            writer.visitClassExecution(THIRD_CLASS);
+            writer.visitClassExecution(FIRST_CLASS);
+            writer.visitClassExecution(SECOND_CLASS);
+            writer.flush();
+        }
+
+        File packedFile = this.temporaryFolder.newFile();
+        ExecutionDataConverter.pack(execFile, packedFile);
+        PackedExecutionData packedExecutionData = PackedExecutionData.map(packedFile);
+        assertEquals(3, packedExecutionData.getClassCount());
+        assertEquals(1, packedExecutionData.getSessionInfoStore().getInfos().size());
+        assertEquals(SESSION.getId(), packedExecutionData.getSessionInfoStore().getInfos().get(0).getId());
+        assertClass(SECOND_CLASS, packedExecutionData.get(SECOND_CLASS.getId()));
+        assertClass(THIRD_CLASS, packedExecutionData.get(THIRD_CLASS.getName()));
+        assertNull(packedExecutionData.get(7));
+        assertNull(packedExecutionData.get("org/wso2/d/Missing"));
+
+        File unpackedFile = this.temporaryFolder.newFile();
+        ExecutionDataConverter.unpack(packedFile, unpackedFile);
+        ExecFileLoader loader = new ExecFileLoader();
+        loader.load(unpackedFile);
+        assertEquals(3, loader.getExecutionDataStore().getContents().size());
+        assertClass(FIRST_CLASS, loader.getExecutionDataStore().get(FIRST_CLASS.getId()));
+        assertClass(SECOND_CLASS, loader.getExecutionDataStore().get(SECOND_CLASS.getId()));
+        assertClass(THIRD_CLASS, loader.getExecutionDataStore().get(THIRD_CLASS.getId()));
+        SessionInfo session = loader.getSessionInfoStore().getInfos().get(0);
+        assertEquals(SESSION.getId(), session.getId());
+        assertEquals(SESSION.getStartTimeStamp(), session.getStartTimeStamp());
+        assertEquals(SESSION.getDumpTimeStamp(), session.getDumpTimeStamp());
+    }
+
+    @Test
+    public void replacesAffectedClassesOfPreviousData() throws IOException {
+
+        SessionInfoStore sessionInfoStore = new SessionInfoStore();
+        sessionInfoStore.visitSessionInfo(SESSION);
+        ExecutionDataStore executionData = new ExecutionDataStore();
+        executionData.put(FIRST_CLASS);
+        executionData.put(SECOND_CLASS);
+        executionData.put(THIRD_CLASS);
+        File packedFile = this.temporaryFolder.newFile();
+        PackedExecutionData.write(packedFile, sessionInfoStore, executionData);
+        PackedExecutionData previous = PackedExecutionData.map(packedFile);
+
+        /* The second class is dropped, the third one is replaced and a new class is added */
+        ExecutionData replacedClass = new ExecutionData(THIRD_CLASS.getId(), THIRD_CLASS.getName(),
+                new boolean[]{true, true});
+        ExecutionData addedClass = new ExecutionData(4, "org/wso2/a/Added", new boolean[]{true});
+        ExecutionDataStore replacements = new ExecutionDataStore();
+        replacements.put(replacedClass);
+        replacements.put(addedClass);
+        PackedExecutionData.write(packedFile, sessionInfoStore, previous,
+                Collections.singleton(SECOND_CLASS.getId()), replacements);
+
+        PackedExecutionData packedExecutionData = PackedExecutionData.map(packedFile);
+        assertEquals(3, packedExecutionData.getClassCount());
+        assertClass(FIRST_CLASS, packedExecutionData.get(FIRST_CLASS.getId()));
+        assertClass(FIRST_CLASS, packedExecutionData.get(FIRST_CLASS.getName()));
+        assertClass(replacedClass, packedExecutionData.get(THIRD_CLASS.getId()));
+        assertClass(replacedClass, packedExecutionData.get(THIRD_CLASS.getName()));
+        assertClass(addedClass, packedExecutionData.get(addedClass.getName()));
+        assertNull(packedExecutionData.get(SECOND_CLASS.getId()));
+        assertNull(packedExecutionData.get(SECOND_CLASS.getName()));
+
+        ExecutionDataStore visitedClasses = new ExecutionDataStore();
+        packedExecutionData.accept(visitedClasses);
+        assertEquals(3, visitedClasses.getContents().size());
+        assertClass(addedClass, visitedClasses.get(addedClass.getId()));
+    }
+
+    private static void assertClass(ExecutionData expected, ExecutionData actual) {
+
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertArrayEquals(expected.getProbes(), actual.getProbes());
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.HTTPutils;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.productcodecoverageservice.Constants.Http;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+Conditional, resumed and compressed downloads from a stub server. Every test installs the handler answering its
+requests, and the request headers received by the server are recorded for the assertions
+ */
+public class FileDownloaderTest {
+
+    private static final String AUTH_STRING = "dXNlcjpwYXNzd29yZA==";
+    private static final String ETAG = "\"v1\"";
+    private static final byte[] CONTENT = createContent();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Headers> requestHeaders = new ArrayList<>();
+    private volatile HttpHandler handler;
+    private HttpServer server;
+    private JenkinsHttpClient httpClient;
+    private File savedFile;
+
+    @Before
+    public void startServer() throws IOException {
+
+        this.server = HttpServer.create(new InetSocketAddress(0), 0);
+        this.server.createContext("/", exchange -> {
+            try {
+                synchronized (this.requestHeaders) {
+                    this.requestHeaders.add(exchange.getRequestHeaders());
+                }
+                this.handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        this.server.start();
+        this.httpClient = new JenkinsHttpClient(new Properties());
+        this.savedFile = new File(this.temporaryFolder.getRoot(), Jenkins.JACOCO_SOURCES_FILE_ZIP);
+    }
+
+    @After
+    public void stopServer() throws IOException {
+
+        this.httpClient.shutdown();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void keepsLocalCopyWhenNotModified() throws IOException {
+
+        this.handler = exchange -> {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                send(exchange, 200, CONTENT);
+            }
+        };
+
+        assertTrue(download());
+        assertFalse(download());
+
+        assertEquals(2, this.requestHeaders.size());
+        assertNull(this.requestHeaders.get(0).getFirst("If-None-Match"));
+        assertEquals(ETAG, this.requestHeaders.get(1).getFirst("If-None-Match"));
+        assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(this.savedFile));
+    }
+
+    @Test
+    public void resumesPartialDownloadWithRange() throws IOException {
+
+        int partialLength = CONTENT.length / 3;
+        createPartialDownload(partialLength, ETAG);
+
+        this.handler = exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null && ETAG.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+                int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + start + "-" + (CONTENT.length - 1) + "/" + CONTENT.length);
+                send(exchange, 206, Arrays.copyOfRange(CONTENT, start, CONTENT.length));
+            } else {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        };
+
+        assertTrue(download());
+
+        Headers headers = this.requestHeaders.get(0);
+        assertEquals("bytes=" + partialLength + "-", headers.getFirst("Range"));
+        assertEquals(ETAG, headers.getFirst("If-Range"));
+        /* Byte ranges refer to the unencoded content, so a resumed download must not ask for compression */
+        assertNull(headers.getFirst("Accept-Encoding"));
+        assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(this.savedFile));
+        assertFalse(new File(this.savedFile.getPath() + Jenkins.PARTIAL_DOWNLOAD_SUFFIX).exists());
+    }
+
+    @Test
+    public void replacesPartialDownloadWhenRangeIsIgnored() throws IOException {
+
+        /* The partial download belongs to an older version, so the server answers the range request in full */
+        createPartialDownload(CONTENT.length / 3, "\"v0\"");
+        byte[] newContent = "new version of the artifact".getBytes(StandardCharsets.UTF_8);
+
+        this.handler = exchange -> {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            send(exchange, 200, newContent);
+        };
+
+        assertTrue(download());
+
+        assertEquals("\"v0\"", this.requestHeaders.get(0).getFirst("If-Range"));
+        assertArrayEquals(newContent, FileUtils.readFileToByteArray(this.savedFile));
+    }
+
+    @Test
+    public void decodesGzipResponse() throws IOException {
+
+        this.handler = exchange -> {
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(CONTENT);
+                }
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                send(exchange, 200, compressed.toByteArray());
+            } else {
+                send(exchange, 200, CONTENT);
+            }
+        };
+
+        assertTrue(download());
+
+        assertEquals("gzip", this.requestHeaders.get(0).getFirst("Accept-Encoding"));
+        assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(this.savedFile));
+    }
+
+    @Test
+    public void retriesInterruptedDownloadFromWhereItStopped() throws IOException {
+
+        int interruptedLength = CONTENT.length / 2;
+        useRetryingClient();
+
+        this.handler = exchange -> {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null) {
+                /* Closing the exchange before the whole body is written drops the connection */
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                exchange.getResponseBody().write(CONTENT, 0, interruptedLength);
+                exchange.getResponseBody().flush();
+                return;
+            }
+            int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + start + "-" + (CONTENT.length - 1) + "/" + CONTENT.length);
+            send(exchange, 206, Arrays.copyOfRange(CONTENT, start, CONTENT.length));
+        };
+
+        FileDownloader.downloadWithBasicAuth(this.httpClient,
+                "http://localhost:" + this.server.getAddress().getPort() + "/job/artifact.zip", this.savedFile,
+                AUTH_STRING);
+
+        assertEquals(2, this.requestHeaders.size());
+        assertEquals("bytes=" + interruptedLength + "-", this.requestHeaders.get(1).getFirst("Range"));
+        assertEquals(ETAG, this.requestHeaders.get(1).getFirst("If-Range"));
+        assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(this.savedFile));
+        assertFalse(new File(this.savedFile.getPath() + Jenkins.PARTIAL_DOWNLOAD_SUFFIX).exists());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws IOException {
+
+        useRetryingClient();
+        this.handler = exchange -> exchange.sendResponseHeaders(404, -1);
+
+        try {
+            download();
+            fail("A missing file must fail the download");
+        } catch (IOException e) {
+            assertEquals(1, this.requestHeaders.size());
+        }
+    }
+
+    private boolean download() throws IOException {
+
+        return FileDownloader.downloadConditionallyWithBasicAuth(this.httpClient,
+                "http://localhost:" + this.server.getAddress().getPort() + "/job/artifact.zip", this.savedFile,
+                AUTH_STRING);
+    }
+
+    private void useRetryingClient() throws IOException {
+
+        Properties application = new Properties();
+        application.setProperty(Http.MAX_RETRIES, "2");
+        application.setProperty(Http.RETRY_BACKOFF_MILLIS, "10");
+        this.httpClient.shutdown();
+        this.httpClient = new JenkinsHttpClient(application);
+    }
+
+    /**
+     * Leave the first bytes of the content behind as an interrupted download of the given version
+     */
+    private void createPartialDownload(int length, String eTag) throws IOException {
+
+        File partialFile = new File(this.savedFile.getPath() + Jenkins.PARTIAL_DOWNLOAD_SUFFIX);
+        FileUtils.writeByteArrayToFile(partialFile, Arrays.copyOf(CONTENT, length));
+
+        Properties validators = new Properties();
+        validators.setProperty("ETag", eTag);
+        try (OutputStream validatorsStream = new FileOutputStream(partialFile.getPath()
+                + Jenkins.DOWNLOAD_VALIDATORS_SUFFIX)) {
+            validators.store(validatorsStream, null);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] content) throws IOException {
+
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(content);
+        }
+    }
+
+    private static byte[] createContent() {
+
+        byte[] content = new byte[64 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31 + i / 256);
+        }
+        return content;
+    }
+}
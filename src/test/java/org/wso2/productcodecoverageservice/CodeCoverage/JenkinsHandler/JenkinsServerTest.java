@@ -0,0 +1,216 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.jenkinshandler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.productcodecoverageservice.Constants.Http;
+import org.wso2.productcodecoverageservice.Constants.Jenkins;
+import org.wso2.productcodecoverageservice.codecoverage.HTTPutils.JenkinsHttpClient;
+import org.wso2.productcodecoverageservice.codecoverage.metrics.CoverageMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+Downloads of the jacoco sources of a product area from a stub Jenkins server, which answers every request after a fixed
+latency. Each Jenkins server model gets an HTTP client of its own, holding the download permits of its parallelism
+ */
+public class JenkinsServerTest {
+
+    private static final long LATENCY_MILLIS = 300;
+    private static final long STALL_MILLIS = 30000;
+    private static final String[] JENKINS_JOBS = {"wso2/job/component-a", "wso2/job/component-b",
+            "wso2/job/component-c", "wso2/job/component-d"};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Set<String> stalledJobs = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private final List<JenkinsHttpClient> httpClients = new ArrayList<>();
+    private byte[] jacocoResources;
+
+    @Before
+    public void startServer() throws IOException {
+
+        this.jacocoResources = createJacocoResources();
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(0), 0);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+
+        for (JenkinsHttpClient httpClient : this.httpClients) {
+            httpClient.shutdown();
+        }
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void downloadsJobsConcurrently() throws IOException {
+
+        long sequentialStart = System.nanoTime();
+        ArrayList<String> sequentialDataFiles = createJenkinsServer(1, 60).downloadCoverageFiles();
+        long sequentialNanos = System.nanoTime() - sequentialStart;
+
+        long concurrentStart = System.nanoTime();
+        ArrayList<String> concurrentDataFiles = createJenkinsServer(JENKINS_JOBS.length, 60).downloadCoverageFiles();
+        long concurrentNanos = System.nanoTime() - concurrentStart;
+
+        assertEquals(JENKINS_JOBS.length, sequentialDataFiles.size());
+        assertEquals(JENKINS_JOBS.length, concurrentDataFiles.size());
+        /* Every job costs two round trips, which overlap when the jobs are downloaded concurrently */
+        assertTrue("Sequential downloads took " + TimeUnit.NANOSECONDS.toMillis(sequentialNanos)
+                        + " ms and concurrent downloads " + TimeUnit.NANOSECONDS.toMillis(concurrentNanos) + " ms",
+                concurrentNanos * 2 < sequentialNanos);
+    }
+
+    @Test
+    public void abortsDownloadExceedingTimeout() throws IOException {
+
+        this.stalledJobs.add(JENKINS_JOBS[0]);
+        JenkinsServer jenkins = createJenkinsServer(1, 2);
+
+        long start = System.nanoTime();
+        ArrayList<String> dataFiles = jenkins.downloadCoverageFiles();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        /* The stalled download gives its permit back on the timeout, so the other jobs do not wait for the stall */
+        assertEquals(JENKINS_JOBS.length - 1, dataFiles.size());
+        assertFalse(jenkins.getDownloadedDataFiles().containsKey("component-a"));
+        assertTrue("Downloads took " + elapsedMillis + " ms", elapsedMillis < STALL_MILLIS / 2);
+    }
+
+    @Test
+    public void takesArtifactsFromLocalFolderWhenSet() throws IOException {
+
+        File localArtifactsDirectory = this.temporaryFolder.newFolder();
+        for (String jenkinsJob : JENKINS_JOBS) {
+            File jobFolder = new File(localArtifactsDirectory, jenkinsJob.substring(jenkinsJob.lastIndexOf('/') + 1));
+            FileUtils.writeByteArrayToFile(new File(jobFolder, Jenkins.JACOCO_SOURCES_FILE_ZIP), this.jacocoResources);
+        }
+        JenkinsServer jenkins = createJenkinsServer(1, 60);
+        jenkins.setLocalArtifactsDirectory(localArtifactsDirectory);
+
+        ArrayList<String> dataFiles = jenkins.downloadCoverageFiles();
+
+        assertEquals(JENKINS_JOBS.length, dataFiles.size());
+        /* Local artifacts must not share the manifests and merged data kept per Jenkins build number */
+        assertTrue(jenkins.getResolvedBuildNumbers().isEmpty());
+        assertEquals(0, this.requestCount.get());
+    }
+
+    private JenkinsServer createJenkinsServer(int downloadParallelism, long downloadTimeoutSeconds) throws IOException {
+
+        Properties application = new Properties();
+        application.setProperty(Jenkins.JENKINS_SERVER_URL, "http://localhost:" + this.server.getAddress().getPort());
+        application.setProperty(Jenkins.JENKINS_SERVER_BASE64_AUTH_STRING, "dXNlcjpwYXNzd29yZA==");
+        application.setProperty(Jenkins.DOWNLOAD_PARALLELISM, Integer.toString(downloadParallelism));
+        application.setProperty(Jenkins.DOWNLOAD_TIMEOUT_SECONDS, Long.toString(downloadTimeoutSeconds));
+        application.setProperty(Http.READ_TIMEOUT_MILLIS, Long.toString(2 * STALL_MILLIS));
+
+        JenkinsHttpClient httpClient = new JenkinsHttpClient(application);
+        this.httpClients.add(httpClient);
+        JenkinsServer jenkins = new JenkinsServer(this.temporaryFolder.newFolder().toPath(), application, null,
+                httpClient, CoverageMetrics.unpublished());
+        jenkins.setProductAreaJenkinsJobs(JENKINS_JOBS);
+        return jenkins;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            this.requestCount.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/" + Jenkins.BUILD_NUMBER)) {
+                send(exchange, "1".getBytes(StandardCharsets.UTF_8));
+            } else if (path.endsWith("/" + Jenkins.JACOCO_RESOURCES_ZIP)) {
+                String jenkinsJob = path.substring(1, path.lastIndexOf("/1/" + Jenkins.JACOCO_RESOURCES_ZIP));
+                if (this.stalledJobs.contains(jenkinsJob)) {
+                    /* Announce the content but never send it, leaving the client blocked in a socket read */
+                    exchange.sendResponseHeaders(200, this.jacocoResources.length);
+                    exchange.getResponseBody().flush();
+                    TimeUnit.MILLISECONDS.sleep(STALL_MILLIS);
+                } else {
+                    send(exchange, this.jacocoResources);
+                }
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, byte[] content) throws IOException {
+
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(content);
+        }
+    }
+
+    private static byte[] createJacocoResources() throws IOException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(output)) {
+            zip.putNextEntry(new ZipEntry(Jenkins.EXTRACTED_JACOCO_FOLDER + Jenkins.ZIP_ENTRY_SEPARATOR
+                    + Jenkins.JACOCO_DATAFILE_NAME));
+            zip.write(new byte[1024]);
+            zip.closeEntry();
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.patch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+Changed lines read from git diffs and from line ranges
+ */
+public class ChangedLinesTest {
+
+    private static final String EXAMPLE_FILE = "modules/core/src/main/java/org/wso2/Example.java";
+    private static final String[] MULTI_HUNK_DIFF = {
+            "diff --git a/" + EXAMPLE_FILE + " b/" + EXAMPLE_FILE,
+            "index 3b18e51..a4c2f3d 100644",
+            "--- a/" + EXAMPLE_FILE,
+            "+++ b/" + EXAMPLE_FILE,
+            "@@ -10,4 +10,5 @@ public class Example {",
+            "     private int first;",
+            "-    private int second;",
+            "+    private int third;",
+            "+    private int fourth;",
+            "     private int fifth;",
+            "",
+            "@@ -40,2 +41,3 @@ public class Example {",
+            "     public void run() {",
+            "+        this.first++;",
+            "     }",
+            "diff --git a/modules/core/src/main/java/org/wso2/Removed.java b/modules/core/src/main/java/org/wso2/Removed.java",
+            "deleted file mode 100644",
+            "--- a/modules/core/src/main/java/org/wso2/Removed.java",
+            "+++ /dev/null",
+            "@@ -1,2 +0,0 @@",
+            "-package org.wso2;",
+            "-class Removed {}",
+            "diff --git a/modules/core/src/main/java/org/wso2/Added.java b/modules/core/src/main/java/org/wso2/Added.java",
+            "new file mode 100644",
+            "--- /dev/null",
+            "+++ b/modules/core/src/main/java/org/wso2/Added.java",
+            "@@ -0,0 +1,2 @@",
+            "+package org.wso2;",
+            "+class Added {}",
+            "\\ No newline at end of file"
+    };
+
+    @Test
+    public void readsAddedLinesOfEachFile() {
+
+        ChangedLines changedLines = ChangedLines.fromUnifiedDiff(String.join("\n", MULTI_HUNK_DIFF));
+
+        TreeMap<String, SortedSet<Integer>> expectedFiles = new TreeMap<>();
+        expectedFiles.put(EXAMPLE_FILE, lines(11, 12, 42));
+        expectedFiles.put("modules/core/src/main/java/org/wso2/Added.java", lines(1, 2));
+        assertEquals(expectedFiles, changedLines.getFiles());
+    }
+
+    @Test
+    public void readsDiffWithWindowsLineEndings() {
+
+        assertEquals(ChangedLines.fromUnifiedDiff(String.join("\n", MULTI_HUNK_DIFF)).getFiles(),
+                ChangedLines.fromUnifiedDiff(String.join("\r\n", MULTI_HUNK_DIFF)).getFiles());
+    }
+
+    @Test
+    public void skipsMissingNewlineMarkers() {
+
+        String diff = String.join("\n",
+                "--- a/Example.java",
+                "+++ b/Example.java",
+                "@@ -1,2 +1,2 @@",
+                " first",
+                "-second",
+                "\\ No newline at end of file",
+                "+changed",
+                "\\ No newline at end of file",
+                "@@ -8 +8 @@",
+                "-eighth",
+                "+changed");
+
+        assertEquals(Collections.singletonMap("Example.java", lines(2, 8)),
+                ChangedLines.fromUnifiedDiff(diff).getFiles());
+    }
+
+    @Test
+    public void readsLineRanges() {
+
+        ChangedLines changedLines = ChangedLines.fromLineRanges(new String[]{
+                EXAMPLE_FILE + ":10-12, 20", ".\\modules\\core\\Other.java:5", "/" + EXAMPLE_FILE + ":30"});
+
+        TreeMap<String, SortedSet<Integer>> expectedFiles = new TreeMap<>();
+        expectedFiles.put(EXAMPLE_FILE, lines(10, 11, 12, 20, 30));
+        expectedFiles.put("modules/core/Other.java", lines(5));
+        assertEquals(expectedFiles, changedLines.getFiles());
+    }
+
+    @Test
+    public void rejectsInvalidLineRanges() {
+
+        String[] invalidLineRanges = {"Example.java", ":10", "Example.java:", "Example.java:12-10",
+                "Example.java:ten", "Example.java:1-200000"};
+        for (String invalidLineRange : invalidLineRanges) {
+            try {
+                ChangedLines.fromLineRanges(new String[]{invalidLineRange});
+                fail("Accepted the invalid line range " + invalidLineRange);
+            } catch (IllegalArgumentException e) {
+                /* Expected */
+            }
+        }
+    }
+
+    @Test
+    public void matchesSourceFilesByPackageFolders() {
+
+        ChangedLines changedLines = ChangedLines.fromLineRanges(new String[]{EXAMPLE_FILE + ":1",
+                "modules/extension/src/main/java/org/wso2/Example.java:1", "src/main/java/xorg/wso2/Example.java:1"});
+
+        assertEquals(Arrays.asList(EXAMPLE_FILE, "modules/extension/src/main/java/org/wso2/Example.java"),
+                changedLines.getMatchingFiles("org/wso2", "Example.java"));
+        assertEquals(3, changedLines.getMatchingFiles("", "Example.java").size());
+        assertTrue(changedLines.getMatchingFiles("org/wso2", "Other.java").isEmpty());
+        assertTrue(changedLines.containsPackage("org/wso2"));
+        assertFalse(changedLines.containsPackage("org"));
+    }
+
+    private static SortedSet<Integer> lines(Integer... lines) {
+
+        return new TreeSet<>(Arrays.asList(lines));
+    }
+}
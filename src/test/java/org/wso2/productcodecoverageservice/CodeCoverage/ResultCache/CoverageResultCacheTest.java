@@ -0,0 +1,99 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.resultcache;
+
+import org.junit.Test;
+import org.wso2.productcodecoverageservice.codecoverage.jsonobject.ProductAreaCodeCoverage;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/*
+Result cache with calculations counting how often they run
+ */
+public class CoverageResultCacheTest {
+
+    private static final String KEY = "apim\nwso2/job/component-a#1";
+
+    private final CoverageResultCache coverageResultCache = new CoverageResultCache(10, TimeUnit.MINUTES.toMillis(10));
+    private final AtomicInteger calculationCount = new AtomicInteger();
+
+    @Test
+    public void keepsCompleteResult() throws Exception {
+
+        ProductAreaCodeCoverage firstResult = this.coverageResultCache.get(KEY, () -> calculate(true));
+        ProductAreaCodeCoverage secondResult = this.coverageResultCache.get(KEY, () -> calculate(true));
+
+        assertEquals(1, this.calculationCount.get());
+        assertSame(firstResult, secondResult);
+    }
+
+    @Test
+    public void calculatesIncompleteResultAgain() throws Exception {
+
+        this.coverageResultCache.get(KEY, () -> calculate(false));
+        this.coverageResultCache.get(KEY, () -> calculate(true));
+        this.coverageResultCache.get(KEY, () -> calculate(true));
+
+        assertEquals(2, this.calculationCount.get());
+    }
+
+    @Test
+    public void doesNotWaitForBackgroundCalculation() throws Exception {
+
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+        CountDownLatch backgroundReleased = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ProductAreaCodeCoverage> backgroundResult = executor.submit(
+                    () -> this.coverageResultCache.getInBackground(KEY, () -> {
+                        backgroundStarted.countDown();
+                        backgroundReleased.await();
+                        return calculate(true);
+                    }));
+            backgroundStarted.await();
+
+            /* The request calculates on its own thread while the background calculation is held */
+            this.coverageResultCache.get(KEY, () -> calculate(true));
+            assertEquals(1, this.calculationCount.get());
+
+            backgroundReleased.countDown();
+            backgroundResult.get(10, TimeUnit.SECONDS);
+            assertEquals(2, this.calculationCount.get());
+            this.coverageResultCache.get(KEY, () -> calculate(true));
+            assertEquals(2, this.calculationCount.get());
+        } finally {
+            backgroundReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private CoverageResultCache.CalculatedResult calculate(boolean complete) {
+
+        this.calculationCount.incrementAndGet();
+        return new CoverageResultCache.CalculatedResult(new ProductAreaCodeCoverage("apim", new HashMap<>()), complete);
+    }
+}
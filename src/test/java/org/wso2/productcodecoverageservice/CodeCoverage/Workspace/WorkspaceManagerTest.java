@@ -0,0 +1,82 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.workspace;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/*
+Workspaces under a disk quota, with a cleanup interval long enough that only the workspace manager itself calculates
+the disk usage during a test
+ */
+public class WorkspaceManagerTest {
+
+    private static final long DISK_QUOTA_BYTES = 10000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private WorkspaceManager workspaceManager;
+
+    @Before
+    public void createWorkspaceManager() throws IOException {
+
+        this.workspaceManager = new WorkspaceManager(this.temporaryFolder.newFolder().toPath(), DISK_QUOTA_BYTES,
+                TimeUnit.HOURS.toSeconds(1));
+    }
+
+    @After
+    public void shutdownWorkspaceManager() {
+
+        this.workspaceManager.shutdown();
+    }
+
+    @Test
+    public void countsGrowthOfWorkspacesInUse() throws Exception {
+
+        Workspace workspace = this.workspaceManager.acquire("product-area");
+        FileUtils.writeByteArrayToFile(new File(workspace.getPath().toFile(), "jacoco.exec"),
+                new byte[(int) DISK_QUOTA_BYTES]);
+
+        /* Wait until the disk usage calculated by the first acquisition is too old to be reused */
+        TimeUnit.MILLISECONDS.sleep(1100);
+        try {
+            this.workspaceManager.acquire("product-area").release();
+            fail("The workspace in use exceeds the disk quota");
+        } catch (IOException e) {
+            assertEquals(DISK_QUOTA_BYTES, this.workspaceManager.getDiskUsage());
+        }
+
+        workspace.release();
+        Workspace nextWorkspace = this.workspaceManager.acquire("product-area");
+        assertFalse(workspace.getPath().toFile().exists());
+        nextWorkspace.release();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *   Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ */
+package org.wso2.productcodecoverageservice.codecoverage.ziputils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/*
+Extraction of zip files and zip streams, including entries trying to escape the unzip folder
+ */
+public class UnzipperTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void extractsEntriesWithPrefix() throws IOException {
+
+        File zippedFile = this.temporaryFolder.newFile("resources.zip");
+        Files.write(zippedFile.toPath(), createZip("jacocoResources/jacoco.exec", "jacocoResources/classes/A.class",
+                "other/B.class"));
+        File unzipFolder = this.temporaryFolder.newFolder("unzipped");
+
+        Unzipper.unzipEntries(zippedFile.getPath(), unzipFolder, "jacocoResources/");
+
+        assertEquals("jacocoResources/jacoco.exec", new String(Files.readAllBytes(
+                new File(unzipFolder, "jacocoResources/jacoco.exec").toPath()), StandardCharsets.UTF_8));
+        assertEquals("jacocoResources/classes/A.class", new String(Files.readAllBytes(
+                new File(unzipFolder, "jacocoResources/classes/A.class").toPath()), StandardCharsets.UTF_8));
+        assertFalse(new File(unzipFolder, "other").exists());
+    }
+
+    @Test
+    public void rejectsEntriesOutsideOfUnzipFolder() throws IOException {
+
+        File unzipFolder = this.temporaryFolder.newFolder("unzipped");
+        File zippedFile = this.temporaryFolder.newFile("slip.zip");
+        Files.write(zippedFile.toPath(), createZip("jacocoResources/jacoco.exec", "../escaped.txt"));
+
+        try {
+            Unzipper.unzipStream(new ByteArrayInputStream(Files.readAllBytes(zippedFile.toPath())), unzipFolder);
+            fail("Extracted an entry outside of the unzip folder");
+        } catch (IOException e) {
+            /* Expected */
+        }
+        try {
+            Unzipper.unzipEntries(zippedFile.getPath(), unzipFolder, "");
+            fail("Extracted an entry outside of the unzip folder");
+        } catch (IOException e) {
+            /* Expected */
+        }
+        assertFalse(new File(this.temporaryFolder.getRoot(), "escaped.txt").exists());
+    }
+
+    /**
+     * Create a zip file whose entries contain their own names
+     */
+    private static byte[] createZip(String... entryNames) throws IOException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(output)) {
+            for (String entryName : entryNames) {
+                zip.putNextEntry(new ZipEntry(entryName));
+                zip.write(entryName.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return output.toByteArray();
+    }
+}